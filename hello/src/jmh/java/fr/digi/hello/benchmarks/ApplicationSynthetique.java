@@ -0,0 +1,114 @@
+package fr.digi.hello.benchmarks;
+
+import fr.digi.hello.HelloApplication;
+import fr.digi.hello.evenements.VillesRechargeesEvent;
+import fr.digi.hello.utils.NormaliseurNom;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Démarrage de l'application pour les benchmarks : H2 embarquée en mode MariaDB, sans serveur web,
+ * puis insertion de villes synthétiques par JDBC.
+ */
+final class ApplicationSynthetique {
+
+    private ApplicationSynthetique() {
+    }
+
+    /**
+     * Démarre l'application sur une base H2 dédiée.
+     *
+     * @param base nom de la base en mémoire, distinct pour chaque jeu de paramètres
+     * @return contexte démarré, à fermer en fin de benchmark
+     */
+    static ConfigurableApplicationContext demarrer(String base) {
+        SpringApplication application = new SpringApplication(HelloApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setDefaultProperties(Map.of(
+                "spring.datasource.url", "jdbc:h2:mem:" + base + ";MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+                "spring.datasource.username", "sa",
+                "spring.datasource.password", "",
+                "spring.jpa.show-sql", "false",
+                "logging.level.root", "WARN"));
+        return application.run();
+    }
+
+    /**
+     * Crée un département et lui ajoute {@code lignes} villes nommées {@code Ville-<i>}, puis
+     * reconstruit les index en mémoire.
+     *
+     * @param contexte       contexte démarré
+     * @param nomDepartement nom du département créé
+     * @param code           code du département créé
+     * @param lignes         nombre de villes
+     */
+    static void insererVilles(ConfigurableApplicationContext contexte, String nomDepartement, String code, int lignes) {
+        insererVilles(contexte, nomDepartement, code, lignes, i -> "Ville-" + i);
+    }
+
+    /**
+     * Comme {@link #insererVilles(ConfigurableApplicationContext, String, String, int)}, avec des noms choisis.
+     *
+     * @param contexte       contexte démarré
+     * @param nomDepartement nom du département créé
+     * @param code           code du département créé
+     * @param lignes         nombre de villes
+     * @param noms           nom de la ville de rang {@code i}, à partir de 1
+     */
+    static void insererVilles(ConfigurableApplicationContext contexte, String nomDepartement, String code, int lignes,
+                              IntFunction<String> noms) {
+        JdbcTemplate jdbcTemplate = contexte.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO departement (nom, nom_normalise, code, version) VALUES (?, ?, ?, 0)",
+                nomDepartement, NormaliseurNom.normaliser(nomDepartement), code);
+        Integer departementId = jdbcTemplate.queryForObject(
+                "SELECT id FROM departement WHERE code = ?", Integer.class, code);
+
+        List<Object[]> villes = new ArrayList<>(lignes);
+        for (int i = 1; i <= lignes; i++) {
+            String nom = noms.apply(i);
+            villes.add(new Object[]{nom, NormaliseurNom.normaliser(nom), population(i), departementId,
+                    latitude(i), longitude(i)});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO villes (nom, nom_normalise, nb_habitants, departement_id, latitude, longitude, version) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, 0)", villes);
+        contexte.publishEvent(new VillesRechargeesEvent("benchmark"));
+    }
+
+    /**
+     * Populations réparties sur [1 000, 1 000 000[, dans un ordre sans rapport avec l'identifiant.
+     *
+     * @param i rang de la ville
+     * @return population synthétique
+     */
+    static int population(int i) {
+        return 1_000 + (int) ((i * 2_654_435_761L) % 999_000);
+    }
+
+    /**
+     * Latitudes réparties uniformément sur la France métropolitaine (suite à faible discrépance).
+     *
+     * @param i rang de la ville
+     * @return latitude synthétique, en degrés
+     */
+    static double latitude(int i) {
+        return 42.3 + 8.8 * ((i * 0.6180339887498949) % 1);
+    }
+
+    /**
+     * Longitudes réparties uniformément sur la France métropolitaine, indépendantes des latitudes.
+     *
+     * @param i rang de la ville
+     * @return longitude synthétique, en degrés
+     */
+    static double longitude(int i) {
+        return -4.8 + 13.0 * ((i * 0.7548776662466927) % 1);
+    }
+}
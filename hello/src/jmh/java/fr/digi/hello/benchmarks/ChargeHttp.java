@@ -0,0 +1,196 @@
+package fr.digi.hello.benchmarks;
+
+import fr.digi.hello.HelloApplication;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Test de charge HTTP : débit et latences (p50, p99) de l'application en threads de plateforme
+ * puis en threads virtuels (profil {@code virtuel}).
+ * <p>
+ * Chaque mode démarre l'application sur un port libre, sur une H2 embarquée dont chaque requête SQL
+ * est ralentie de {@code --latence-ms} pour simuler l'aller-retour réseau vers MariaDB, puis
+ * {@code --concurrence} clients envoient des requêtes en boucle pendant {@code --duree} secondes.
+ * Avec {@code --url=http://hote:port}, seule l'application déjà démarrée à cette adresse est mesurée.
+ * <p>
+ * Options : {@code --chemin=/villes/1 --concurrence=400 --duree=20 --latence-ms=20 --pool=200
+ * --threads-tomcat=200}.
+ */
+public final class ChargeHttp {
+
+    private ChargeHttp() {
+    }
+
+    /** Résultat d'une mesure. */
+    private record Mesure(String mode, long requetes, long erreurs, double secondes, long p50Micros, long p99Micros) {
+
+        double debit() {
+            return requetes / secondes;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        String chemin = options.getOrDefault("chemin", "/villes/1");
+        int concurrence = Integer.parseInt(options.getOrDefault("concurrence", "400"));
+        int duree = Integer.parseInt(options.getOrDefault("duree", "20"));
+
+        List<Mesure> mesures = new ArrayList<>();
+        if (options.containsKey("url")) {
+            mesures.add(charger(options.get("url"), "externe", chemin, concurrence, duree));
+        } else {
+            for (boolean virtuel : new boolean[]{false, true}) {
+                try (ConfigurableApplicationContext contexte = demarrer(virtuel, options)) {
+                    String base = "http://localhost:" + contexte.getEnvironment().getProperty("local.server.port");
+                    String mode = virtuel ? "virtuel" : "plateforme";
+                    charger(base, mode + " (chauffe)", chemin, concurrence, Math.max(2, duree / 4));
+                    mesures.add(charger(base, mode, chemin, concurrence, duree));
+                }
+            }
+        }
+
+        System.out.printf("%n%-12s %12s %10s %12s %12s%n", "mode", "requêtes/s", "erreurs", "p50 (ms)", "p99 (ms)");
+        for (Mesure mesure : mesures) {
+            System.out.printf("%-12s %12.0f %10d %12.2f %12.2f%n", mesure.mode(), mesure.debit(), mesure.erreurs(),
+                    mesure.p50Micros() / 1000.0, mesure.p99Micros() / 1000.0);
+        }
+    }
+
+    private static ConfigurableApplicationContext demarrer(boolean virtuel, Map<String, String> options) {
+        long latenceMs = Long.parseLong(options.getOrDefault("latence-ms", "20"));
+        SpringApplication application = new SpringApplication(HelloApplication.class);
+        if (virtuel) {
+            application.setAdditionalProfiles("virtuel");
+        }
+        application.setDefaultProperties(Map.of(
+                "server.port", "0",
+                "server.tomcat.threads.max", options.getOrDefault("threads-tomcat", "200"),
+                "spring.datasource.url", "jdbc:h2:mem:charge_" + virtuel + ";MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+                "spring.datasource.username", "sa",
+                "spring.datasource.password", "",
+                "spring.jpa.show-sql", "false",
+                "logging.level.root", "WARN"));
+        application.addInitializers(contexte -> {
+            // Prioritaire sur le profil : même taille de pool JDBC dans les deux modes.
+            contexte.getEnvironment().getPropertySources().addFirst(new MapPropertySource("charge",
+                    Map.of("spring.datasource.hikari.maximum-pool-size", options.getOrDefault("pool", "200"))));
+            contexte.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nom) {
+                    return bean instanceof DataSource source ? ralentir(source, latenceMs) : bean;
+                }
+            });
+        });
+        return application.run();
+    }
+
+    /**
+     * Enveloppe une source de données : chaque préparation de requête attend {@code latenceMs},
+     * connexion tenue, comme un aller-retour réseau.
+     */
+    private static DataSource ralentir(DataSource source, long latenceMs) {
+        return (DataSource) Proxy.newProxyInstance(ChargeHttp.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, methode, arguments) -> {
+                    Object resultat = invoquer(source, methode, arguments);
+                    if (resultat instanceof Connection connexion) {
+                        return Proxy.newProxyInstance(ChargeHttp.class.getClassLoader(), new Class<?>[]{Connection.class},
+                                (p, m, a) -> {
+                                    if (m.getName().startsWith("prepare")) {
+                                        Thread.sleep(latenceMs);
+                                    }
+                                    return invoquer(connexion, m, a);
+                                });
+                    }
+                    return resultat;
+                });
+    }
+
+    private static Object invoquer(Object cible, Method methode, Object[] arguments) throws Throwable {
+        try {
+            return methode.invoke(cible, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Mesure charger(String base, String mode, String chemin, int concurrence, int duree) throws Exception {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create(base + chemin)).timeout(Duration.ofSeconds(30)).build();
+        LongAdder erreurs = new LongAdder();
+        long debut = System.nanoTime();
+        long fin = debut + Duration.ofSeconds(duree).toNanos();
+
+        List<long[]> latences = new ArrayList<>();
+        // HTTP/1.1 explicite : la tentative de passage en HTTP/2 du client JDK fausse les latences.
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<long[]>> resultats = new ArrayList<>();
+            for (int i = 0; i < concurrence; i++) {
+                resultats.add(clients.submit(() -> {
+                    long[] mesures = new long[1024];
+                    int n = 0;
+                    while (System.nanoTime() < fin) {
+                        long t0 = System.nanoTime();
+                        try {
+                            HttpResponse<Void> reponse = client.send(requete, HttpResponse.BodyHandlers.discarding());
+                            if (reponse.statusCode() >= 400) {
+                                erreurs.increment();
+                            }
+                        } catch (Exception e) {
+                            erreurs.increment();
+                        }
+                        if (n == mesures.length) {
+                            mesures = Arrays.copyOf(mesures, n * 2);
+                        }
+                        mesures[n++] = (System.nanoTime() - t0) / 1_000;
+                    }
+                    return Arrays.copyOf(mesures, n);
+                }));
+            }
+            for (Future<long[]> resultat : resultats) {
+                latences.add(resultat.get());
+            }
+        }
+        double secondes = (System.nanoTime() - debut) / 1e9;
+
+        long[] toutes = latences.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Mesure(mode, toutes.length, erreurs.sum(), secondes, centile(toutes, 0.50), centile(toutes, 0.99));
+    }
+
+    private static long centile(long[] tries, double centile) {
+        return tries.length == 0 ? 0 : tries[(int) Math.min(tries.length - 1, Math.ceil(centile * tries.length) - 1)];
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int egal = arg.indexOf('=');
+                options.put(egal < 0 ? arg.substring(2) : arg.substring(2, egal), egal < 0 ? "" : arg.substring(egal + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,80 @@
+package fr.digi.hello.benchmarks;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.services.ImplVilleService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requêtes de {@link ImplVilleService} sur une H2 embarquée contenant {@code lignes} villes
+ * synthétiques dans un même département.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImplVilleServiceBenchmark {
+
+    private static final String DEPARTEMENT = "Département de test";
+
+    @Param({"35000"})
+    public int lignes;
+
+    private ConfigurableApplicationContext contexte;
+    private ImplVilleService implVilleService;
+    private int premierId;
+    private final SplittableRandom aleatoire = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        contexte = ApplicationSynthetique.demarrer("service_" + lignes);
+        ApplicationSynthetique.insererVilles(contexte, DEPARTEMENT, "ZZ", lignes);
+        implVilleService = contexte.getBean(ImplVilleService.class);
+        premierId = implVilleService.extractVille("Ville-1").orElseThrow().getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        contexte.close();
+    }
+
+    @Benchmark
+    public Optional<VilleDto> extractVilleParId() {
+        return implVilleService.extractVille(premierId + aleatoire.nextInt(lignes));
+    }
+
+    @Benchmark
+    public Optional<VilleDto> extractVilleParNom() {
+        return implVilleService.extractVille("VILLE-" + (1 + aleatoire.nextInt(lignes)));
+    }
+
+    @Benchmark
+    public List<VilleDto> plusGrandesDuDepartement() {
+        return implVilleService.nVillesByDepartementOrderByPopulationDesc(DEPARTEMENT, 10);
+    }
+
+    @Benchmark
+    public List<VilleDto> entreDeuxPopulations() {
+        int min = 1_000 + aleatoire.nextInt(989_000);
+        return implVilleService.findVillesByDepartementAndPopulationBetween(DEPARTEMENT, min, min + 9_990);
+    }
+}
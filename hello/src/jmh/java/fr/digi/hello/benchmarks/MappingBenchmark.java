@@ -0,0 +1,71 @@
+package fr.digi.hello.benchmarks;
+
+import fr.digi.hello.dto.DepartementDto;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.items.Departement;
+import fr.digi.hello.items.Ville;
+import fr.digi.hello.mappers.MapperUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion entités → DTO par {@link MapperUtil} sur de grandes listes, comme le faisaient
+ * les endpoints de lecture avant la projection JPQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"1000", "100000"})
+    public int lignes;
+
+    private List<Ville> villes;
+    private List<Departement> departements;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        departements = new ArrayList<>(lignes);
+        villes = new ArrayList<>(lignes);
+        for (int i = 1; i <= lignes; i++) {
+            Departement departement = new Departement(i, "Département-" + i, Integer.toString(i % 100));
+            departements.add(departement);
+            villes.add(new Ville(i, "Ville-" + i, ApplicationSynthetique.population(i), departement));
+        }
+    }
+
+    @Benchmark
+    public List<VilleDto> toVilleDto() {
+        List<VilleDto> dtos = new ArrayList<>(villes.size());
+        for (Ville ville : villes) {
+            dtos.add(MapperUtil.toVilleDto(ville));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<DepartementDto> toDepartementDto() {
+        List<DepartementDto> dtos = new ArrayList<>(departements.size());
+        for (Departement departement : departements) {
+            dtos.add(MapperUtil.toDepartementDto(departement));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,98 @@
+package fr.digi.hello.benchmarks;
+
+import fr.digi.hello.dao.VilleDao;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.services.ImplVilleService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requête « les k villes les plus proches d'un point » : index spatial en mémoire
+ * ({@code ImplVilleService.villesProches}) contre un tri SQL de toute la table sur une distance
+ * approchée (équirectangulaire), calculée par la base pour chaque ligne.
+ * <p>
+ * L'application est démarrée par {@link ApplicationSynthetique} ; {@code lignes} villes réparties
+ * sur la France métropolitaine sont ajoutées, puis l'index est reconstruit. Chaque appel cherche
+ * autour d'un point aléatoire de la même zone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProchesBenchmark {
+
+    private static final String JPQL = VilleDao.PROJECTION_DTO
+            + "WHERE v.latitude IS NOT NULL AND v.longitude IS NOT NULL "
+            + "ORDER BY (v.latitude - :lat) * (v.latitude - :lat) "
+            + "+ (v.longitude - :lon) * (v.longitude - :lon) * :cos2, v.id";
+
+    @Param({"1000", "35000"})
+    public int lignes;
+
+    @Param({"10"})
+    public int k;
+
+    private ConfigurableApplicationContext contexte;
+    private ImplVilleService implVilleService;
+    private EntityManager entityManager;
+    private final SplittableRandom aleatoire = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        contexte = ApplicationSynthetique.demarrer("proches_" + lignes);
+        ApplicationSynthetique.insererVilles(contexte, "Département de test", "ZZ", lignes);
+        implVilleService = contexte.getBean(ImplVilleService.class);
+        entityManager = contexte.getBean(EntityManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        contexte.close();
+    }
+
+    /** Anneaux de cellules autour du point, arrêtés dès que les k meilleures sont certaines. */
+    @Benchmark
+    public List<VilleDto> index() {
+        return implVilleService.villesProches(latitude(), longitude(), k);
+    }
+
+    /** Distance calculée par la base sur toutes les lignes, puis tri. */
+    @Benchmark
+    public List<VilleDto> sql() {
+        double latitude = latitude();
+        double cosinus = Math.cos(Math.toRadians(latitude));
+        return entityManager.createQuery(JPQL, VilleDto.class)
+                .setParameter("lat", latitude)
+                .setParameter("lon", longitude())
+                .setParameter("cos2", cosinus * cosinus)
+                .setMaxResults(k)
+                .getResultList();
+    }
+
+    private double latitude() {
+        return 42.3 + 8.8 * aleatoire.nextDouble();
+    }
+
+    private double longitude() {
+        return -4.8 + 13.0 * aleatoire.nextDouble();
+    }
+}
@@ -0,0 +1,124 @@
+package fr.digi.hello.benchmarks;
+
+import fr.digi.hello.utils.NormaliseurNom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latence d'une recherche de ville par nom : {@code LOWER(nom) = LOWER(?)} (parcours complet)
+ * contre l'égalité sur la colonne indexée {@code nom_normalise}, à 35 000 et 1 000 000 de lignes.
+ * <p>
+ * Par défaut la base est une H2 embarquée en mode MariaDB ; une vraie MariaDB peut être visée avec
+ * {@code -Dbench.jdbc.url=... -Dbench.jdbc.user=... -Dbench.jdbc.password=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RechercheNomBenchmark {
+
+    private static final String[] PREFIXES = {"Saint-Étienne", "Nîmes", "Besançon", "Orléans", "Châlons", "Évry"};
+
+    @Param({"35000", "1000000"})
+    public int lignes;
+
+    private Connection connexion;
+    private PreparedStatement parLower;
+    private PreparedStatement parNomNormalise;
+    private final SplittableRandom aleatoire = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void preparer() throws SQLException {
+        String url = System.getProperty("bench.jdbc.url",
+                "jdbc:h2:mem:recherche_" + lignes + ";MODE=MariaDB;DB_CLOSE_DELAY=-1");
+        connexion = DriverManager.getConnection(url,
+                System.getProperty("bench.jdbc.user", "sa"), System.getProperty("bench.jdbc.password", ""));
+
+        try (Statement statement = connexion.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_villes");
+            statement.execute("CREATE TABLE bench_villes (id INT PRIMARY KEY, nom VARCHAR(255), "
+                    + "nom_normalise VARCHAR(255), nb_habitants INT)");
+            statement.execute("CREATE INDEX idx_bench_villes_nom_normalise ON bench_villes (nom_normalise)");
+        }
+
+        connexion.setAutoCommit(false);
+        try (PreparedStatement insertion = connexion.prepareStatement(
+                "INSERT INTO bench_villes (id, nom, nom_normalise, nb_habitants) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= lignes; i++) {
+                String nom = nomVille(i);
+                insertion.setInt(1, i);
+                insertion.setString(2, nom);
+                insertion.setString(3, NormaliseurNom.normaliser(nom));
+                insertion.setInt(4, 100 + i);
+                insertion.addBatch();
+                if (i % 5_000 == 0) {
+                    insertion.executeBatch();
+                }
+            }
+            insertion.executeBatch();
+        }
+        connexion.commit();
+        connexion.setAutoCommit(true);
+
+        parLower = connexion.prepareStatement("SELECT id FROM bench_villes WHERE LOWER(nom) = LOWER(?)");
+        parNomNormalise = connexion.prepareStatement("SELECT id FROM bench_villes WHERE nom_normalise = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void fermer() throws SQLException {
+        try (Statement statement = connexion.createStatement()) {
+            statement.execute("DROP TABLE bench_villes");
+        }
+        connexion.close();
+    }
+
+    /** Requête historique : fonction sur la colonne, aucun index utilisable. */
+    @Benchmark
+    public int lowerNom() throws SQLException {
+        parLower.setString(1, nomVille(1 + aleatoire.nextInt(lignes)).toUpperCase());
+        return compter(parLower);
+    }
+
+    /** Requête réécrite : normalisation côté Java puis égalité sur la colonne indexée. */
+    @Benchmark
+    public int nomNormalise() throws SQLException {
+        parNomNormalise.setString(1, NormaliseurNom.normaliser(nomVille(1 + aleatoire.nextInt(lignes)).toUpperCase()));
+        return compter(parNomNormalise);
+    }
+
+    private static String nomVille(int i) {
+        return PREFIXES[i % PREFIXES.length] + "-" + Integer.toString(i, 36);
+    }
+
+    private static int compter(PreparedStatement requete) throws SQLException {
+        int trouvees = 0;
+        try (ResultSet resultat = requete.executeQuery()) {
+            while (resultat.next()) {
+                trouvees++;
+            }
+        }
+        return trouvees;
+    }
+}
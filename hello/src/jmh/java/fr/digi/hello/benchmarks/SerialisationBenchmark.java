@@ -0,0 +1,82 @@
+package fr.digi.hello.benchmarks;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fr.digi.hello.dto.VilleDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écriture et lecture d'une {@code List<VilleDto>} en JSON, CBOR et Smile, avec des {@link ObjectMapper}
+ * configurés comme ceux de Spring MVC ({@link Jackson2ObjectMapperBuilder}).
+ * <p>
+ * La taille du document produit pour chaque format est affichée au démarrage de chaque essai.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerialisationBenchmark {
+
+    @Param({"100", "10000"})
+    public int lignes;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private List<VilleDto> villes;
+    private ObjectWriter ecrivain;
+    private ObjectReader lecteur;
+    private byte[] document;
+
+    @Setup(Level.Trial)
+    public void preparer() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+            case "smile" -> Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        JavaType type = objectMapper.getTypeFactory().constructCollectionType(List.class, VilleDto.class);
+        ecrivain = objectMapper.writerFor(type);
+        lecteur = objectMapper.readerFor(type);
+        villes = new ArrayList<>(lignes);
+        for (int i = 1; i <= lignes; i++) {
+            villes.add(new VilleDto(i, "Ville-" + i, ApplicationSynthetique.population(i), "Département-" + (i % 100),
+                    Integer.toString(i % 100), ApplicationSynthetique.latitude(i), ApplicationSynthetique.longitude(i)));
+        }
+        document = ecrivain.writeValueAsBytes(villes);
+        System.out.printf("%n%s, %d villes : %d octets%n", format, lignes, document.length);
+    }
+
+    @Benchmark
+    public byte[] listeVilles() throws IOException {
+        return ecrivain.writeValueAsBytes(villes);
+    }
+
+    @Benchmark
+    public List<VilleDto> lectureListe() throws IOException {
+        return lecteur.readValue(document);
+    }
+}
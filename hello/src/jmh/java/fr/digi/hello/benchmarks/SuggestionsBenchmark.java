@@ -0,0 +1,111 @@
+package fr.digi.hello.benchmarks;
+
+import fr.digi.hello.dao.VilleDao;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.services.ImplVilleService;
+import fr.digi.hello.utils.NormaliseurNom;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autocomplétion d'un nom de ville : index de trigrammes en mémoire
+ * ({@code ImplVilleService.suggererVilles}, tolérant une lettre manquante) contre la requête
+ * {@code nom_normalise LIKE 'debut%'} triée par population, qui ne trouve que les débuts exacts.
+ * <p>
+ * Les villes portent des noms synthétiques formés de syllabes ; chaque appel cherche le nom d'une
+ * ville existante privé d'une lettre.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SuggestionsBenchmark {
+
+    private static final String[] SYLLABES = {"mar", "sei", "lle", "tou", "lou", "se", "ni", "mes", "ly", "on",
+            "bor", "deau", "ren", "nes", "mont", "pel", "lier", "gre", "no", "ble", "di", "jon", "an", "gers",
+            "bre", "ca", "en", "per", "pi", "gnan", "val", "ence", "au"};
+
+    private static final String JPQL = VilleDao.PROJECTION_DTO
+            + "WHERE v.nomNormalise LIKE :motif ORDER BY v.nbHabitants DESC, v.id";
+
+    @Param({"1000", "35000"})
+    public int lignes;
+
+    @Param({"10"})
+    public int n;
+
+    private ConfigurableApplicationContext contexte;
+    private ImplVilleService implVilleService;
+    private EntityManager entityManager;
+    private final SplittableRandom aleatoire = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        contexte = ApplicationSynthetique.demarrer("suggestions_" + lignes);
+        ApplicationSynthetique.insererVilles(contexte, "Département de test", "ZZ", lignes, SuggestionsBenchmark::nom);
+        implVilleService = contexte.getBean(ImplVilleService.class);
+        entityManager = contexte.getBean(EntityManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        contexte.close();
+    }
+
+    /** Trigrammes : listes les plus rares pour les candidats, puis classement. */
+    @Benchmark
+    public List<VilleDto> index() {
+        return implVilleService.suggererVilles(saisie(), n);
+    }
+
+    /** Début de nom par {@code LIKE}, sur les quatre premières lettres de la saisie. */
+    @Benchmark
+    public List<VilleDto> sqlPrefixe() {
+        String saisie = NormaliseurNom.normaliser(saisie());
+        return entityManager.createQuery(JPQL, VilleDto.class)
+                .setParameter("motif", saisie.substring(0, Math.min(4, saisie.length())) + "%")
+                .setMaxResults(n)
+                .getResultList();
+    }
+
+    /** Nom d'une ville existante dont une lettre, hors la première, a été oubliée. */
+    private String saisie() {
+        String nom = nom(1 + aleatoire.nextInt(lignes));
+        int oubli = 1 + aleatoire.nextInt(nom.length() - 1);
+        return nom.substring(0, oubli) + nom.substring(oubli + 1);
+    }
+
+    /**
+     * @param i rang de la ville
+     * @return nom de deux à quatre syllabes, précédé de « Saint- » pour une ville sur sept
+     */
+    static String nom(int i) {
+        long melange = i * 2_654_435_761L;
+        StringBuilder nom = new StringBuilder(i % 7 == 0 ? "Saint-" : "");
+        for (int s = 0; s < 2 + i % 3; s++) {
+            nom.append(SYLLABES[(int) ((melange >>> (7 * s)) % SYLLABES.length)]);
+        }
+        int debut = i % 7 == 0 ? 6 : 0;
+        nom.setCharAt(debut, Character.toUpperCase(nom.charAt(debut)));
+        return nom.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package fr.digi.hello.benchmarks;
+
+import fr.digi.hello.dao.VilleDao;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.services.ImplVilleService;
+import fr.digi.hello.utils.NormaliseurNom;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requête « villes d'un département entre deux populations » : index mémoire
+ * ({@code ImplVilleService.findVillesByDepartementAndPopulationBetween}) contre la requête JPQL
+ * {@code BETWEEN ... ORDER BY nbHabitants DESC} utilisée en repli.
+ * <p>
+ * L'application est démarrée par {@link ApplicationSynthetique} ; un département
+ * supplémentaire reçoit {@code lignes} villes, puis l'index est reconstruit. Chaque appel
+ * demande une tranche aléatoire couvrant environ 1 % des villes du département.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranchePopulationBenchmark {
+
+    private static final String DEPARTEMENT = "Département de test";
+
+    /** Même requête que le repli de {@code ImplVilleService}. */
+    private static final String JPQL = VilleDao.PROJECTION_DTO + "WHERE d.nomNormalise = :nomDepartement "
+            + "AND v.nbHabitants BETWEEN :min AND :max ORDER BY v.nbHabitants DESC, v.id";
+
+    @Param({"1000", "35000"})
+    public int lignes;
+
+    private ConfigurableApplicationContext contexte;
+    private ImplVilleService implVilleService;
+    private EntityManager entityManager;
+    private final SplittableRandom aleatoire = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        contexte = ApplicationSynthetique.demarrer("tranches_" + lignes);
+        ApplicationSynthetique.insererVilles(contexte, DEPARTEMENT, "ZZ", lignes);
+        implVilleService = contexte.getBean(ImplVilleService.class);
+        entityManager = contexte.getBean(EntityManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        contexte.close();
+    }
+
+    /** Deux recherches dichotomiques et une tranche contiguë. */
+    @Benchmark
+    public List<VilleDto> index() {
+        int min = minAleatoire();
+        return implVilleService.findVillesByDepartementAndPopulationBetween(DEPARTEMENT, min, min + largeur());
+    }
+
+    /** Requête JPQL projetée en DTO. */
+    @Benchmark
+    public List<VilleDto> jpql() {
+        int min = minAleatoire();
+        return entityManager.createQuery(JPQL, VilleDto.class)
+                .setParameter("nomDepartement", NormaliseurNom.normaliser(DEPARTEMENT))
+                .setParameter("min", min)
+                .setParameter("max", min + largeur())
+                .getResultList();
+    }
+
+    private int minAleatoire() {
+        return 1_000 + aleatoire.nextInt(999_000 - largeur());
+    }
+
+    private int largeur() {
+        return 999_000 / 100;
+    }
+}
@@ -0,0 +1,86 @@
+package fr.digi.hello.benchmarks;
+
+import fr.digi.hello.dto.DepartementDto;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.validators.DepartementValidator;
+import fr.digi.hello.validators.VilleValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'une validation {@link VilleValidator} / {@link DepartementValidator}, avec le
+ * {@link BeanPropertyBindingResult} créé par les contrôleurs, pour un objet valide et un objet rejeté.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private final DepartementValidator departementValidator = new DepartementValidator();
+    private final VilleValidator villeValidator = new VilleValidator(departementValidator);
+
+    private final VilleDto villeValide = new VilleDto(null, "Saint-Étienne", 170000, "Loire", "42");
+    private final VilleDto villeInvalide = new VilleDto(null, "Ville2", 0, "Loire", "42");
+    private final DepartementDto departementValide = new DepartementDto(null, "Bouches-du-Rhône", "13");
+    private final DepartementDto departementInvalide = new DepartementDto(null, "-Rhône", "69");
+    private final List<VilleDto> lot = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        for (int i = 0; i < 1_000; i++) {
+            lot.add(i % 100 == 0 ? villeInvalide : new VilleDto(null, "Ville-" + (char) ('a' + i % 26), 1 + i, "Loire", "42"));
+        }
+    }
+
+    @Benchmark
+    public Errors villeValide() {
+        return valider(villeValidator, villeValide, "villeDto");
+    }
+
+    @Benchmark
+    public Errors villeInvalide() {
+        return valider(villeValidator, villeInvalide, "villeDto");
+    }
+
+    @Benchmark
+    public Errors departementValide() {
+        return valider(departementValidator, departementValide, "departementDto");
+    }
+
+    @Benchmark
+    public Errors departementInvalide() {
+        return valider(departementValidator, departementInvalide, "departementDto");
+    }
+
+    /** 1 000 villes dont 1 % rejetées, en un appel. */
+    @Benchmark
+    public Map<Integer, Errors> lotDeVilles() {
+        return villeValidator.validerLot(lot, "villeDto");
+    }
+
+    private static Errors valider(Validator validateur, Object cible, String nom) {
+        Errors erreurs = new BeanPropertyBindingResult(cible, nom);
+        validateur.validate(cible, erreurs);
+        return erreurs;
+    }
+}
@@ -2,12 +2,19 @@ package fr.digi.hello;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Classe principale de l'application Spring Boot.
  * Point d'entrée pour démarrer le contexte et lancer l'application.
+ * <p>
+ * Le profil {@code virtuel} exécute les requêtes HTTP et les tâches {@code @Async} sur des threads virtuels.
+ * Les tâches {@code @Scheduled} (écriture différée des populations) s'exécutent sur le planificateur de Spring Boot.
  */
 @SpringBootApplication
+@EnableAsync
+@EnableScheduling
 public class HelloApplication {
 
     /**
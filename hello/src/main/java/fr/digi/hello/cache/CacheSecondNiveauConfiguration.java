@@ -0,0 +1,84 @@
+package fr.digi.hello.cache;
+
+import fr.digi.hello.items.Departement;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * Cache de second niveau Hibernate (JCache, implémentation Ehcache en mémoire du processus).
+ * <p>
+ * Les régions sont déclarées ici plutôt que créées à la volée
+ * ({@code hibernate.javax.cache.missing_cache_strategy=fail}) :
+ * <ul>
+ *     <li>{@link Departement} : entités, lues par identifiant et par les villes qui les référencent ;</li>
+ *     <li>{@value RegionFactory#DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME} : résultats des requêtes
+ *     marquées {@code org.hibernate.cacheable} (recherches par code et par nom) ;</li>
+ *     <li>{@value RegionFactory#DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME} : date de dernière
+ *     écriture par table, qui invalide les résultats de requêtes après une écriture Hibernate.</li>
+ * </ul>
+ * Les écritures JDBC directes (imports CSV) ne passent pas par Hibernate et doivent vider les régions
+ * elles-mêmes. Chaque contexte Spring reçoit son propre gestionnaire de cache, pour que deux
+ * applications dans la même JVM (tests, benchmarks) ne partagent pas leurs entrées.
+ */
+@Configuration
+public class CacheSecondNiveauConfiguration {
+
+    /**
+     * Gestionnaire JCache des régions Hibernate.
+     *
+     * @param tailleEntites nombre maximal de départements en cache
+     * @param tailleRequetes nombre maximal de résultats de requêtes en cache
+     * @return gestionnaire de cache, fermé avec le contexte
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerHibernate(@Value("${cache.hibernate.entites.taille-max:1000}") long tailleEntites,
+                                              @Value("${cache.hibernate.requetes.taille-max:1000}") long tailleRequetes) {
+        org.ehcache.config.Configuration configuration = ConfigurationBuilder.newConfigurationBuilder()
+                .withCache(Departement.class.getName(), region(tailleEntites))
+                .withCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(tailleRequetes))
+                // Une entrée par table : la région ne doit jamais perdre d'entrée par manque de place.
+                .withCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, region(10_000))
+                .build();
+        EhcacheCachingProvider fournisseur = (EhcacheCachingProvider)
+                Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        return fournisseur.getCacheManager(URI.create("hello:hibernate:" + UUID.randomUUID()), configuration);
+    }
+
+    /**
+     * Active le cache de second niveau et celui des requêtes, et transmet le gestionnaire de cache à Hibernate.
+     *
+     * @param cacheManagerHibernate gestionnaire des régions
+     * @return personnalisation des propriétés Hibernate
+     */
+    @Bean
+    public HibernatePropertiesCustomizer cacheSecondNiveau(CacheManager cacheManagerHibernate) {
+        return proprietes -> {
+            proprietes.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            proprietes.put(AvailableSettings.USE_QUERY_CACHE, true);
+            proprietes.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            proprietes.put(ConfigSettings.CACHE_MANAGER, cacheManagerHibernate);
+            proprietes.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CacheConfiguration<Object, Object> region(long taille) {
+        return CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(taille))
+                .build();
+    }
+}
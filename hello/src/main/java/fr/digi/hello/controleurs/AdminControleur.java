@@ -0,0 +1,125 @@
+package fr.digi.hello.controleurs;
+
+import fr.digi.hello.execution.DetecteurEpinglage;
+import fr.digi.hello.generiqueData.ImportCsvService;
+import fr.digi.hello.profilage.ProfileurSql;
+import fr.digi.hello.services.DepartementCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Contrôleur REST d'administration.
+ * Expose l'état interne de l'application (caches, statistiques) pour l'exploitation.
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminControleur {
+
+    private final DepartementCache departementCache;
+    private final ImportCsvService importCsvService;
+    private final DetecteurEpinglage detecteurEpinglage;
+    private final ProfileurSql profileurSql;
+
+    /**
+     * Constructeur avec injection des composants observés.
+     *
+     * @param departementCache cache des départements
+     * @param importCsvService service d'import CSV en masse
+     * @param detecteurEpinglage détection des threads virtuels épinglés
+     * @param profileurSql       profileur des requêtes SQL
+     */
+    public AdminControleur(DepartementCache departementCache, ImportCsvService importCsvService,
+                           DetecteurEpinglage detecteurEpinglage, ProfileurSql profileurSql) {
+        this.departementCache = departementCache;
+        this.importCsvService = importCsvService;
+        this.detecteurEpinglage = detecteurEpinglage;
+        this.profileurSql = profileurSql;
+    }
+
+    /**
+     * Statistiques du cache des départements (succès, échecs, chargements, invalidations).
+     *
+     * @return statistiques courantes
+     */
+    @GetMapping("/caches/departements")
+    public DepartementCache.Statistiques getStatistiquesCacheDepartements() {
+        return departementCache.statistiques();
+    }
+
+    /**
+     * Mode d'exécution (threads virtuels ou non) et épinglages de threads virtuels observés.
+     *
+     * @return rapport de détection des épinglages
+     */
+    @GetMapping("/threads")
+    public DetecteurEpinglage.Rapport getEpinglages() {
+        return detecteurEpinglage.rapport();
+    }
+
+    /**
+     * Statistiques des requêtes SQL par empreinte (exécutions, durées, lignes) et motifs N+1 détectés.
+     *
+     * @param limite nombre maximal d'empreintes, les plus coûteuses d'abord (par défaut 50)
+     * @return rapport du profileur SQL
+     */
+    @GetMapping("/sql")
+    public ProfileurSql.Rapport getStatistiquesSql(@RequestParam(defaultValue = "50") int limite) {
+        return profileurSql.rapport(limite);
+    }
+
+    /**
+     * Remet à zéro les statistiques SQL.
+     *
+     * @return 204
+     */
+    @DeleteMapping("/sql")
+    public ResponseEntity<Void> reinitialiserStatistiquesSql() {
+        profileurSql.reinitialiser();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Importe un fichier CSV de départements ({@code code;nom}) situé dans le répertoire d'import.
+     *
+     * @param fichier nom du fichier, relatif à {@code import.repertoire}
+     * @return rapport d'import, ou 400 si le fichier est introuvable ou hors du répertoire d'import
+     * @throws IOException en cas d'erreur de lecture
+     */
+    @PostMapping("/import/departements")
+    public ResponseEntity<?> importerDepartements(@RequestParam String fichier) throws IOException {
+        Path chemin;
+        try {
+            chemin = importCsvService.resoudre(fichier);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(importCsvService.importerDepartements(chemin));
+    }
+
+    /**
+     * Importe un fichier CSV de villes ({@code nom;nbHabitants;codeDpt[;nomDepartement]})
+     * situé dans le répertoire d'import.
+     *
+     * @param fichier nom du fichier, relatif à {@code import.repertoire}
+     * @return rapport d'import, ou 400 si le fichier est introuvable ou hors du répertoire d'import
+     * @throws IOException en cas d'erreur de lecture
+     */
+    @PostMapping("/import/villes")
+    public ResponseEntity<?> importerVilles(@RequestParam String fichier) throws IOException {
+        Path chemin;
+        try {
+            chemin = importCsvService.resoudre(fichier);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(importCsvService.importerVilles(chemin));
+    }
+}
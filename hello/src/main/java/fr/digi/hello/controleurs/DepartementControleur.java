@@ -1,19 +1,31 @@
 package fr.digi.hello.controleurs;
 
 import fr.digi.hello.dto.DepartementDto;
+import fr.digi.hello.dto.Resolution;
 import fr.digi.hello.dto.VilleDto;
 import fr.digi.hello.mappers.MapperUtil;
+import fr.digi.hello.instantanes.InstantanesCollections;
 import fr.digi.hello.items.Departement;
+import fr.digi.hello.pagination.Pagination;
 import fr.digi.hello.services.DepartementService;
 import fr.digi.hello.services.ImplVilleService;
+import fr.digi.hello.services.VersionsCollections;
 import fr.digi.hello.validators.DepartementValidator;
 import jakarta.validation.constraints.Positive;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * Contrôleur REST pour la gestion des départements.
@@ -27,39 +39,122 @@ public class DepartementControleur {
     private final ImplVilleService implVilleService;
     private final DepartementService departementService;
     private final DepartementValidator departementValidator;
+    private final Pagination pagination;
+    private final VersionsCollections versionsCollections;
+    private final InstantanesCollections instantanesCollections;
 
     /**
      * Constructeur avec injection des dépendances nécessaires.
      *
      * @param departementService service métier pour les départements
      * @param departementValidator validateur personnalisé pour les départements
+     * @param pagination pagination par curseur des listes
+     * @param versionsCollections versions des collections, pour les ETags des listes
+     * @param instantanesCollections pages de la liste déjà sérialisées
      */
-    public DepartementControleur(ImplVilleService implVilleService, DepartementService departementService, DepartementValidator departementValidator) {
+    public DepartementControleur(ImplVilleService implVilleService, DepartementService departementService,
+                                 DepartementValidator departementValidator, Pagination pagination,
+                                 VersionsCollections versionsCollections,
+                                 InstantanesCollections instantanesCollections) {
         this.implVilleService = implVilleService;
         this.departementService = departementService;
         this.departementValidator = departementValidator;
+        this.pagination = pagination;
+        this.versionsCollections = versionsCollections;
+        this.instantanesCollections = instantanesCollections;
     }
 
     /**
-     * Récupère la liste de tous les départements.
+     * Récupère une page de départements, triés par identifiant.
+     * Le curseur de la page suivante est renvoyé dans l'en-tête
+     * {@value Pagination#ENTETE_CURSEUR_SUIVANT} (absent sur la dernière page).
+     * En JSON, la page est servie depuis son instantané ({@link InstantanesCollections}), compressé
+     * en gzip si le client l'accepte.
      *
-     * @return liste de DTO des départements
+     * @param curseur curseur opaque de la page à lire (absent pour la première page)
+     * @param taille  taille de page souhaitée, plafonnée par {@code pagination.taille-max}
+     * @param webRequest requête, pour la comparaison de l'ETag avec {@code If-None-Match}
+     * @return page de DTO des départements, 304 si la collection n'a pas changé,
+     *         ou 400 si le curseur ou la taille est invalide
      */
     @GetMapping
-    public List<DepartementDto> getAllDepartements() {
-        return departementService.extractDepartements().stream()
-                .map(MapperUtil::toDepartementDto)
-                .toList();
+    public ResponseEntity<?> getAllDepartements(@RequestParam(required = false) String curseur,
+                                                @RequestParam(required = false) Integer taille,
+                                                WebRequest webRequest) {
+        int apresId;
+        int tailleEffective;
+        try {
+            apresId = pagination.decoder(curseur);
+            tailleEffective = pagination.taille(taille);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        return PagesInstantanees.servir(instantanesCollections, pagination, VersionsCollections.DEPARTEMENTS,
+                versionsCollections.version(VersionsCollections.DEPARTEMENTS), apresId, tailleEffective, webRequest,
+                () -> {
+                    List<DepartementDto> departements = departementService.extractDepartements(apresId, tailleEffective)
+                            .stream()
+                            .map(MapperUtil::toDepartementDto)
+                            .toList();
+                    return pagination.reponse(departements, tailleEffective, DepartementDto::getId);
+                });
+    }
+
+    /**
+     * Récupère plusieurs départements par leurs codes (insensibles à la casse), sans requête
+     * lorsque la table est en mémoire ({@link fr.digi.hello.services.DepartementCache}).
+     *
+     * @param codes codes des départements ({@code ?codes=30,13} ou {@code ?codes=30&codes=13})
+     * @return une {@link Resolution} par code, dans l'ordre demandé, ou 400 si la liste est vide
+     *         ou trop longue
+     */
+    @GetMapping(params = "codes")
+    public ResponseEntity<?> getDepartementsParCodes(@RequestParam List<String> codes) {
+        return departementsParCodes(codes);
+    }
+
+    /**
+     * Variante de {@link #getDepartementsParCodes(List)} pour les listes trop longues pour une URL.
+     *
+     * @param codes codes des départements, en tableau JSON
+     * @return une {@link Resolution} par code, dans l'ordre demandé, ou 400 si la liste est vide
+     *         ou trop longue
+     */
+    @PostMapping("/par-codes")
+    public ResponseEntity<?> postDepartementsParCodes(@RequestBody List<String> codes) {
+        return departementsParCodes(codes);
+    }
+
+    private ResponseEntity<?> departementsParCodes(List<String> codes) {
+        Map<String, Departement> departements;
+        try {
+            departements = departementService.extractDepartements(codes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(codes.stream()
+                .map(code -> Resolution.de(code, MapperUtil.toDepartementDto(departements.get(code))))
+                .toList());
     }
 
     /**
      * Récupère un département par son identifiant.
      *
      * @param id identifiant du département (doit être positif)
-     * @return DTO du département si trouvé, 404 sinon
+     * @param webRequest requête, pour la comparaison de l'ETag avec {@code If-None-Match}
+     * @return DTO du département si trouvé, 304 s'il n'a pas changé, 404 sinon
      */
     @GetMapping("/{id}")
-    public ResponseEntity<DepartementDto> getDepartementById(@PathVariable @Positive Integer id) {
+    public ResponseEntity<DepartementDto> getDepartementById(@PathVariable @Positive Integer id,
+                                                             WebRequest webRequest) {
+        Optional<String> version = departementService.versionDepartement(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (Etags.nonModifie(webRequest, "departement", version.get())) {
+            return null;
+        }
         return departementService.extractDepartement(id)
                 .map(MapperUtil::toDepartementDto)
                 .map(ResponseEntity::ok)
@@ -70,10 +165,18 @@ public class DepartementControleur {
      * Récupère un département par son nom (insensible à la casse).
      *
      * @param nom nom du département
-     * @return DTO du département si trouvé, 404 sinon
+     * @param webRequest requête, pour la comparaison de l'ETag avec {@code If-None-Match}
+     * @return DTO du département si trouvé, 304 s'il n'a pas changé, 404 sinon
      */
     @GetMapping("/nom/{nom}")
-    public ResponseEntity<DepartementDto> getDepartementByNom(@PathVariable String nom) {
+    public ResponseEntity<DepartementDto> getDepartementByNom(@PathVariable String nom, WebRequest webRequest) {
+        Optional<String> version = departementService.versionDepartement(nom);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (Etags.nonModifie(webRequest, "departement", version.get())) {
+            return null;
+        }
         return departementService.extractDepartement(nom)
                 .map(MapperUtil::toDepartementDto)
                 .map(ResponseEntity::ok)
@@ -90,8 +193,7 @@ public class DepartementControleur {
     public ResponseEntity<List<VilleDto>> getNPlusGrandesVilles(
             @PathVariable String nom,
             @RequestParam(defaultValue = "3") int n) {
-        List<VilleDto> villes = implVilleService.nVillesByDepartementOrderByPopulationDesc(nom, n)
-                .stream().map(MapperUtil::toVilleDto).toList();
+        List<VilleDto> villes = implVilleService.nVillesByDepartementOrderByPopulationDesc(nom, n);
         return ResponseEntity.ok(villes);
     }
 
@@ -100,8 +202,7 @@ public class DepartementControleur {
             @PathVariable String nom,
             @RequestParam int min,
             @RequestParam int max) {
-        List<VilleDto> villes = implVilleService.findVillesByDepartementAndPopulationBetween(nom, min, max)
-                .stream().map(MapperUtil::toVilleDto).toList();
+        List<VilleDto> villes = implVilleService.findVillesByDepartementAndPopulationBetween(nom, min, max);
         return ResponseEntity.ok(villes);
     }
 
@@ -111,10 +212,14 @@ public class DepartementControleur {
      *
      * @param departementDto DTO du département à créer
      * @param bindingResult résultat de la validation
-     * @return liste mise à jour des départements, ou erreurs 400
+     * @param retour mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return réponse selon le {@link ModeReponse} demandé, ou erreurs 400
      */
     @PostMapping
-    public ResponseEntity<?> createDepartement(@RequestBody DepartementDto departementDto, BindingResult bindingResult) {
+    public ResponseEntity<?> createDepartement(@RequestBody DepartementDto departementDto, BindingResult bindingResult,
+                                               @RequestParam(required = false) String retour,
+                                               @RequestHeader(value = "Prefer", required = false) String prefer) {
         departementValidator.validate(departementDto, bindingResult);
 
         // Vérifier doublon code département
@@ -135,12 +240,9 @@ public class DepartementControleur {
             return ResponseEntity.badRequest().body("Un département avec ce nom existe déjà");
         }
 
-        Departement departement = MapperUtil.toDepartement(departementDto);
-        List<Departement> departements = departementService.insertDepartement(departement);
-        List<DepartementDto> dtos = departements.stream()
-                .map(MapperUtil::toDepartementDto)
-                .toList();
-        return ResponseEntity.ok(dtos);
+        Departement departement = departementService.insertDepartement(MapperUtil.toDepartement(departementDto));
+        return ModeReponse.depuis(retour, prefer).creation(
+                location(departement.getId()), MapperUtil.toDepartementDto(departement), this::listeDepartements);
     }
 
 
@@ -152,12 +254,16 @@ public class DepartementControleur {
      * @param nom nom actuel du département à modifier
      * @param departementDto données modifiées du département
      * @param bindingResult résultat de la validation
-     * @return liste mise à jour des départements, ou erreurs 400
+     * @param retour mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return réponse selon le {@link ModeReponse} demandé, ou erreurs 400
      */
     @PutMapping("/nom/{nom}")
     public ResponseEntity<?> updateDepartementNom(@PathVariable String nom,
                                                   @RequestBody DepartementDto departementDto,
-                                                  BindingResult bindingResult) {
+                                                  BindingResult bindingResult,
+                                                  @RequestParam(required = false) String retour,
+                                                  @RequestHeader(value = "Prefer", required = false) String prefer) {
         departementValidator.validate(departementDto, bindingResult);
         if (bindingResult.hasErrors()) {
             List<String> erreurs = bindingResult.getAllErrors().stream()
@@ -174,12 +280,12 @@ public class DepartementControleur {
             return ResponseEntity.badRequest().body("Un département avec ce nom existe déjà");
         }
 
-        Departement departement = MapperUtil.toDepartement(departementDto);
-        List<Departement> departements = departementService.modifierDepartementParNom(nom, departement);
-        List<DepartementDto> dtos = departements.stream()
-                .map(MapperUtil::toDepartementDto)
-                .toList();
-        return ResponseEntity.ok(dtos);
+        Departement departement = departementService
+                .modifierDepartementParNom(nom, MapperUtil.toDepartement(departementDto))
+                .orElse(null);
+        return ModeReponse.depuis(retour, prefer).modification(
+                departement == null ? null : location(departement.getId()),
+                MapperUtil.toDepartementDto(departement), this::listeDepartements);
     }
 
     /**
@@ -189,12 +295,16 @@ public class DepartementControleur {
      * @param id identifiant du département à modifier
      * @param departementDto données modifiées du département
      * @param bindingResult résultat de la validation
-     * @return liste mise à jour des départements, ou erreurs HTTP appropriées
+     * @param retour mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return réponse selon le {@link ModeReponse} demandé, ou erreurs HTTP appropriées
      */
     @PutMapping("/{id}")
     public ResponseEntity<?> updateDepartement(@PathVariable @Positive Integer id,
                                                @RequestBody DepartementDto departementDto,
-                                               BindingResult bindingResult) {
+                                               BindingResult bindingResult,
+                                               @RequestParam(required = false) String retour,
+                                               @RequestHeader(value = "Prefer", required = false) String prefer) {
         departementValidator.validate(departementDto, bindingResult);
         if (bindingResult.hasErrors()) {
             List<String> erreurs = bindingResult.getAllErrors().stream()
@@ -209,12 +319,65 @@ public class DepartementControleur {
             return ResponseEntity.badRequest().body("Un département avec ce nom existe déjà");
         }
 
-        Departement departement = MapperUtil.toDepartement(departementDto);
-        List<Departement> departements = departementService.modifierDepartement(id, departement);
-        List<DepartementDto> dtos = departements.stream()
+        DepartementDto dto = departementService.modifierDepartement(id, MapperUtil.toDepartement(departementDto))
                 .map(MapperUtil::toDepartementDto)
-                .toList();
-        return ResponseEntity.ok(dtos);
+                .orElse(null);
+        return ModeReponse.depuis(retour, prefer).modification(location(id), dto, this::listeDepartements);
+    }
+
+    /**
+     * Modifie partiellement un département, s'il n'a pas changé depuis la lecture du client.
+     * <p>
+     * L'en-tête {@code If-Match} porte l'ETag renvoyé par {@code GET /departements/{id}} ; la
+     * modification est une seule requête conditionnée par la version de la ligne, sans la charger.
+     *
+     * @param id             identifiant du département
+     * @param departementDto nom et/ou code à modifier
+     * @param bindingResult  résultat de la validation
+     * @param ifMatch        ETag de la version lue par le client
+     * @param webRequest     requête, pour le format de l'ETag renvoyé
+     * @return 200 avec le département et son nouvel ETag, 400 si le corps ou l'ETag est invalide,
+     *         404 s'il n'existe pas, 409 s'il a été modifié depuis, 428 sans {@code If-Match}
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchDepartement(@PathVariable @Positive Integer id,
+                                              @RequestBody DepartementDto departementDto,
+                                              BindingResult bindingResult,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              WebRequest webRequest) {
+        if (ifMatch == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).body("En-tête If-Match obligatoire");
+        }
+        OptionalInt version = Etags.versionLigne(ifMatch, "departement", id);
+        if (version.isEmpty()) {
+            return ResponseEntity.badRequest().body("If-Match ne désigne pas une version du département " + id);
+        }
+        departementValidator.validerModification(departementDto, bindingResult);
+        if (bindingResult.hasErrors()) {
+            List<String> erreurs = bindingResult.getAllErrors().stream()
+                    .map(e -> e.getDefaultMessage())
+                    .toList();
+            return ResponseEntity.badRequest().body(erreurs);
+        }
+        if (departementDto.getNom() != null && departementService.extractDepartement(departementDto.getNom())
+                .filter(homonyme -> !homonyme.getId().equals(id))
+                .isPresent()) {
+            return ResponseEntity.badRequest().body("Un département avec ce nom existe déjà");
+        }
+
+        Optional<Departement> modifie = departementService.modifierDepartementSiVersion(id, version.getAsInt(),
+                MapperUtil.toDepartement(departementDto));
+        if (modifie.isEmpty()) {
+            return departementService.versionDepartement(id).isEmpty()
+                    ? ResponseEntity.notFound().build()
+                    : ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Le département " + id + " a été modifié depuis la version " + version.getAsInt());
+        }
+        return ResponseEntity.ok()
+                .location(location(id))
+                .eTag(Etags.representation(webRequest, "departement",
+                        departementService.versionDepartement(modifie.get())))
+                .body(MapperUtil.toDepartementDto(modifie.get()));
     }
 
     /**
@@ -222,19 +385,20 @@ public class DepartementControleur {
      * Vérifie que le département existe avant suppression.
      *
      * @param id identifiant du département à supprimer
-     * @return liste mise à jour des départements, ou message d'erreur si inexistant
+     * @param retour mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return réponse selon le {@link ModeReponse} demandé, ou message d'erreur si inexistant
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteDepartement(@PathVariable @Positive Integer id) {
+    public ResponseEntity<?> deleteDepartement(@PathVariable @Positive Integer id,
+                                               @RequestParam(required = false) String retour,
+                                               @RequestHeader(value = "Prefer", required = false) String prefer) {
         if (departementService.extractDepartement(id).isEmpty()) {
             return ResponseEntity.badRequest().body("Le département à supprimer n'existe pas !");
         }
 
-        List<Departement> departements = departementService.supprimerDepartement(id);
-        List<DepartementDto> dtos = departements.stream()
-                .map(MapperUtil::toDepartementDto)
-                .toList();
-        return ResponseEntity.ok(dtos);
+        boolean supprime = departementService.supprimerDepartement(id);
+        return ModeReponse.depuis(retour, prefer).suppression(supprime, this::listeDepartements);
     }
 
     /**
@@ -242,18 +406,41 @@ public class DepartementControleur {
      * Vérifie que le département existe avant suppression.
      *
      * @param nom nom du département à supprimer
-     * @return liste mise à jour des départements, ou message d'erreur si inexistant
+     * @param retour mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return réponse selon le {@link ModeReponse} demandé, ou message d'erreur si inexistant
      */
     @DeleteMapping("/nom/{nom}")
-    public ResponseEntity<?> deleteDepartementParNom(@PathVariable String nom) {
+    public ResponseEntity<?> deleteDepartementParNom(@PathVariable String nom,
+                                                     @RequestParam(required = false) String retour,
+                                                     @RequestHeader(value = "Prefer", required = false) String prefer) {
         if (departementService.extractDepartement(nom).isEmpty()) {
             return ResponseEntity.badRequest().body("Le département à supprimer n'existe pas !");
         }
 
-        List<Departement> departements = departementService.supprimerDepartementParNom(nom);
-        List<DepartementDto> dtos = departements.stream()
+        boolean supprime = departementService.supprimerDepartementParNom(nom);
+        return ModeReponse.depuis(retour, prefer).suppression(supprime, this::listeDepartements);
+    }
+
+    /**
+     * Liste complète des départements, renvoyée en mode {@link ModeReponse#LISTE}
+     * pour les clients historiques.
+     *
+     * @return tous les départements sous forme de DTO
+     */
+    private List<DepartementDto> listeDepartements() {
+        return departementService.extractDepartements().stream()
                 .map(MapperUtil::toDepartementDto)
                 .toList();
-        return ResponseEntity.ok(dtos);
+    }
+
+    /**
+     * Construit l'URI d'un département.
+     *
+     * @param id identifiant du département
+     * @return URI {@code /departements/{id}}
+     */
+    private URI location(Integer id) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path("/departements/{id}").buildAndExpand(id).toUri();
     }
 }
@@ -0,0 +1,150 @@
+package fr.digi.hello.controleurs;
+
+import fr.digi.hello.serialisation.FormatsBinairesConfiguration;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.StringJoiner;
+
+/**
+ * Construction des ETags forts renvoyés par les lectures.
+ * <p>
+ * Un ETag est calculé à partir des versions ({@code @Version} des entités, version de la
+ * collection pour les listes) et des paramètres qui déterminent le contenu de la réponse, sans
+ * relire les lignes : une requête {@code If-None-Match} qui correspond reçoit un 304 après une
+ * seule lecture sur clé.
+ * <p>
+ * La version est lue avant le contenu, dans une autre transaction : une écriture intercalée
+ * donne au pire un ETag plus ancien que le contenu, que la requête conditionnelle suivante
+ * remplace par un 200.
+ * <p>
+ * Un même contenu peut être servi en JSON, CBOR ou Smile selon l'en-tête {@code Accept} : l'ETag
+ * d'une représentation binaire porte le nom de son format, et la réponse annonce
+ * {@code Vary: Accept} pour que les caches ne confondent pas les représentations.
+ */
+final class Etags {
+
+    private Etags() {
+    }
+
+    /**
+     * Compare l'ETag de la représentation demandée à l'en-tête {@code If-None-Match}.
+     * En cas de correspondance, la réponse est déjà un 304 et le contrôleur renvoie {@code null}.
+     *
+     * @param requete requête en cours
+     * @param parties éléments de l'ETag (type de ressource, versions, paramètres)
+     * @return {@code true} si le client détient déjà cette représentation
+     */
+    static boolean nonModifie(WebRequest requete, Object... parties) {
+        return requete.checkNotModified(representation(requete, parties));
+    }
+
+    /**
+     * ETag de la représentation demandée, avec {@code Vary: Accept} ajouté à la réponse.
+     *
+     * @param requete requête en cours
+     * @param parties éléments de l'ETag (type de ressource, versions, paramètres)
+     * @return ETag fort, suffixé du format binaire éventuel
+     */
+    static String representation(WebRequest requete, Object... parties) {
+        if (requete instanceof NativeWebRequest natif
+                && natif.getNativeResponse(HttpServletResponse.class) instanceof HttpServletResponse reponse) {
+            reponse.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        String format = format(requete.getHeader(HttpHeaders.ACCEPT));
+        String etag = etag(parties);
+        return format == null ? etag : etag.substring(0, etag.length() - 1) + "-" + format + "\"";
+    }
+
+    /**
+     * Version de ligne portée par l'ETag d'un élément, tel que renvoyé par sa lecture
+     * ({@code "ville-12.4.1"} : ville 12, version 4). Sert aux écritures conditionnelles
+     * ({@code If-Match}), qui ne modifient la ligne que si elle n'a pas changé depuis.
+     *
+     * @param ifMatch valeur de l'en-tête {@code If-Match}
+     * @param type    type de ressource ({@code "ville"}, {@code "departement"})
+     * @param id      identifiant de l'élément
+     * @return la version de la ligne, vide si l'en-tête ne désigne pas cet élément
+     */
+    static OptionalInt versionLigne(String ifMatch, String type, Object id) {
+        String etag = ifMatch.trim();
+        if (etag.startsWith("W/")) {
+            etag = etag.substring(2);
+        }
+        String prefixe = "\"" + type + "-" + id + ".";
+        if (!etag.startsWith(prefixe) || !etag.endsWith("\"")) {
+            return OptionalInt.empty();
+        }
+        int debut = prefixe.length();
+        int fin = debut;
+        while (fin < etag.length() && Character.isDigit(etag.charAt(fin))) {
+            fin++;
+        }
+        if (fin == debut || fin - debut > 9) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(Integer.parseInt(etag, debut, fin, 10));
+    }
+
+    /**
+     * @param requete requête en cours
+     * @return {@code true} si la réponse sera en JSON (ni CBOR ni Smile)
+     */
+    static boolean json(WebRequest requete) {
+        return format(requete.getHeader(HttpHeaders.ACCEPT)) == null;
+    }
+
+    /**
+     * @return {@code "cbor"} ou {@code "smile"} si le type préféré de l'en-tête {@code Accept} est binaire,
+     *         {@code null} pour JSON (y compris sans en-tête, illisible ou avec {@code *}{@code /*})
+     */
+    private static String format(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        // Qualité décroissante, puis le type le plus précis d'abord, comme la négociation de Spring MVC.
+        MimeTypeUtils.sortBySpecificity(types);
+        types.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : types) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return null;
+            }
+            if (type.equalsTypeAndSubtype(MediaType.valueOf(FormatsBinairesConfiguration.CBOR))) {
+                return "cbor";
+            }
+            if (type.equalsTypeAndSubtype(MediaType.valueOf(FormatsBinairesConfiguration.SMILE))) {
+                return "smile";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param parties éléments de l'ETag (type de ressource, versions, paramètres)
+     * @return ETag fort, entre guillemets
+     */
+    static String etag(Object... parties) {
+        StringJoiner etag = new StringJoiner("-", "\"", "\"");
+        for (Object partie : parties) {
+            etag.add(String.valueOf(partie));
+        }
+        return etag.toString();
+    }
+}
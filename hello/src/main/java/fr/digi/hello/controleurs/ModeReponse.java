@@ -0,0 +1,112 @@
+package fr.digi.hello.controleurs;
+
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Forme de la réponse renvoyée par les endpoints d'écriture (POST, PUT, DELETE).
+ * <p>
+ * Le mode est choisi par le paramètre {@code retour} ({@code liste}, {@code entite}
+ * ou {@code minimal}) ou, à défaut, par l'en-tête {@code Prefer} de la RFC 7240
+ * ({@code return=representation} ou {@code return=minimal}). Sans préférence,
+ * le mode {@link #LISTE} conserve le comportement historique pour les anciens clients.
+ */
+public enum ModeReponse {
+
+    /** Comportement historique : la liste complète après écriture. */
+    LISTE,
+
+    /** Uniquement l'élément créé ou modifié. */
+    ENTITE,
+
+    /** Aucun corps : 204 avec l'en-tête {@code Location} de l'élément. */
+    MINIMAL;
+
+    /**
+     * Détermine le mode de réponse demandé par le client.
+     * Une valeur inconnue est ignorée, comme le prévoit la RFC 7240 pour {@code Prefer}.
+     *
+     * @param retour valeur du paramètre {@code retour} (peut être {@code null})
+     * @param prefer valeur de l'en-tête {@code Prefer} (peut être {@code null})
+     * @return mode de réponse à appliquer
+     */
+    public static ModeReponse depuis(String retour, String prefer) {
+        if (retour != null) {
+            switch (retour.trim().toLowerCase(Locale.ROOT)) {
+                case "entite":
+                    return ENTITE;
+                case "minimal":
+                    return MINIMAL;
+                case "liste":
+                    return LISTE;
+                default:
+                    break;
+            }
+        }
+        if (prefer != null) {
+            for (String preference : prefer.split(",")) {
+                String valeur = preference.trim().toLowerCase(Locale.ROOT);
+                if (valeur.equals("return=representation")) {
+                    return ENTITE;
+                }
+                if (valeur.equals("return=minimal")) {
+                    return MINIMAL;
+                }
+            }
+        }
+        return LISTE;
+    }
+
+    /**
+     * Construit la réponse d'une création.
+     *
+     * @param location URI de l'élément créé
+     * @param dto      élément créé
+     * @param liste    liste complète, calculée uniquement en mode {@link #LISTE}
+     * @return 200 avec la liste, 201 avec l'élément, ou 204 avec {@code Location}
+     */
+    public ResponseEntity<?> creation(URI location, Object dto, Supplier<?> liste) {
+        return switch (this) {
+            case LISTE -> ResponseEntity.ok(liste.get());
+            case ENTITE -> ResponseEntity.created(location).body(dto);
+            case MINIMAL -> ResponseEntity.noContent().location(location).build();
+        };
+    }
+
+    /**
+     * Construit la réponse d'une modification.
+     *
+     * @param location URI de l'élément modifié (ignorée si {@code dto} est {@code null})
+     * @param dto      élément modifié, {@code null} s'il n'existait pas
+     * @param liste    liste complète, calculée uniquement en mode {@link #LISTE}
+     * @return 200 avec la liste, 200 avec l'élément, 204 avec {@code Location}, ou 404
+     */
+    public ResponseEntity<?> modification(URI location, Object dto, Supplier<?> liste) {
+        if (this == LISTE) {
+            return ResponseEntity.ok(liste.get());
+        }
+        if (dto == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return this == ENTITE
+                ? ResponseEntity.ok().location(location).body(dto)
+                : ResponseEntity.noContent().location(location).build();
+    }
+
+    /**
+     * Construit la réponse d'une suppression.
+     *
+     * @param supprime {@code true} si l'élément existait
+     * @param liste    liste complète, calculée uniquement en mode {@link #LISTE}
+     * @return 200 avec la liste, 204, ou 404 si l'élément n'existait pas
+     */
+    public ResponseEntity<?> suppression(boolean supprime, Supplier<?> liste) {
+        if (this == LISTE) {
+            return ResponseEntity.ok(liste.get());
+        }
+        return supprime ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,84 @@
+package fr.digi.hello.controleurs;
+
+import fr.digi.hello.instantanes.Instantane;
+import fr.digi.hello.instantanes.InstantanesCollections;
+import fr.digi.hello.pagination.Pagination;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Réponses des listes paginées servies depuis leurs instantanés ({@link InstantanesCollections}).
+ * <p>
+ * Seules les réponses JSON sont conservées : CBOR et Smile repassent par la lecture et la
+ * sérialisation habituelles. L'ETag d'une page servie depuis un instantané porte la version de
+ * l'instantané, pas la version courante : il décrit les octets réellement envoyés.
+ */
+final class PagesInstantanees {
+
+    private PagesInstantanees() {
+    }
+
+    /**
+     * Répond à la lecture d'une page de liste.
+     *
+     * @param instantanes       instantanés des listes
+     * @param pagination        en-têtes de la page suivante
+     * @param collection        nom de la collection
+     * @param version           version courante de la collection
+     * @param apresId           dernier identifiant de la page précédente
+     * @param taille            taille de page effective
+     * @param requete           requête en cours, pour {@code If-None-Match}, {@code Accept} et {@code Accept-Encoding}
+     * @param sansInstantane    réponse construite normalement, pour les formats binaires
+     * @return la page, ou {@code null} si la réponse est déjà un 304
+     */
+    static ResponseEntity<?> servir(InstantanesCollections instantanes, Pagination pagination, String collection,
+                                    long version, int apresId, int taille, WebRequest requete,
+                                    Supplier<ResponseEntity<?>> sansInstantane) {
+        if (!Etags.json(requete)) {
+            if (Etags.nonModifie(requete, collection, version, apresId, taille)) {
+                return null;
+            }
+            return sansInstantane.get();
+        }
+
+        Optional<Instantane> disponible = instantanes.disponible(collection, apresId, taille, version);
+        long versionServie = disponible.map(Instantane::version).orElse(version);
+        if (Etags.nonModifie(requete, collection, versionServie, apresId, taille)) {
+            return null;
+        }
+        Instantane instantane = disponible.orElseGet(() -> instantanes.construire(collection, apresId, taille, version));
+        return pagination.reponse(instantane, taille, accepteGzip(requete.getHeader(HttpHeaders.ACCEPT_ENCODING)));
+    }
+
+    /**
+     * @param acceptEncoding en-tête {@code Accept-Encoding}
+     * @return {@code true} si gzip y figure sans {@code q=0}
+     */
+    static boolean accepteGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String codage : acceptEncoding.split(",")) {
+            String[] parties = codage.split(";");
+            if (!parties[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parties.length; i++) {
+                String parametre = parties[i].trim();
+                if (parametre.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parametre.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
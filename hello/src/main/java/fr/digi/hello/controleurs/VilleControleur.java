@@ -1,18 +1,42 @@
 package fr.digi.hello.controleurs;
 
-import fr.digi.hello.dao.DepartementDao;
+import fr.digi.hello.dto.RapportSuppression;
+import fr.digi.hello.dto.Resolution;
 import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.instantanes.InstantanesCollections;
 import fr.digi.hello.items.Departement;
 import fr.digi.hello.items.Ville;
 import fr.digi.hello.mappers.MapperUtil;
+import fr.digi.hello.pagination.Pagination;
+import fr.digi.hello.services.DepartementCache;
+import fr.digi.hello.services.ImplVilleService;
+import fr.digi.hello.services.TamponPopulations;
+import fr.digi.hello.services.VersionsCollections;
 import fr.digi.hello.services.VilleService;
+import fr.digi.hello.validators.RegleNom;
 import fr.digi.hello.validators.VilleValidator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * Contrôleur REST pour gérer les opérations sur les villes.
@@ -23,45 +47,263 @@ import java.util.List;
 public class VilleControleur {
 
     private final VilleService villeService;
-    private final DepartementDao departementDao;
+    private final ImplVilleService implVilleService;
+    private final DepartementCache departementCache;
     private final VilleValidator villeValidator;
+    private final Pagination pagination;
+    private final VersionsCollections versionsCollections;
+    private final InstantanesCollections instantanesCollections;
+    private final TamponPopulations tamponPopulations;
+    private final ObjectWriter ecrivainVille;
 
     /**
      * Constructeur injectant les dépendances nécessaires.
      *
      * @param villeService     service gérant les opérations métiers sur les villes
-     * @param departementDao   DAO pour accéder aux départements
+     * @param implVilleService service des recherches par population
+     * @param departementCache cache des départements, résolus sans requête
      * @param villeValidator   validateur personnalisé pour les villes
+     * @param pagination       pagination par curseur des listes
+     * @param versionsCollections versions des collections, pour les ETags des listes
+     * @param instantanesCollections pages de la liste déjà sérialisées
+     * @param tamponPopulations corrections de population en attente d'écriture
+     * @param objectMapper     sérialiseur JSON de l'application, pour l'export
      */
-    public VilleControleur(VilleService villeService, DepartementDao departementDao, VilleValidator villeValidator) {
+    public VilleControleur(VilleService villeService, ImplVilleService implVilleService,
+                           DepartementCache departementCache, VilleValidator villeValidator, Pagination pagination,
+                           VersionsCollections versionsCollections, InstantanesCollections instantanesCollections,
+                           TamponPopulations tamponPopulations, ObjectMapper objectMapper) {
         this.villeService = villeService;
-        this.departementDao = departementDao;
+        this.implVilleService = implVilleService;
+        this.departementCache = departementCache;
         this.villeValidator = villeValidator;
+        this.pagination = pagination;
+        this.versionsCollections = versionsCollections;
+        this.instantanesCollections = instantanesCollections;
+        this.tamponPopulations = tamponPopulations;
+        // Le flux de sortie appartient au conteneur ; les envois sont décidés par ecrireLigne.
+        this.ecrivainVille = objectMapper.writerFor(VilleDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     /**
-     * Récupère la liste de toutes les villes.
+     * Récupère une page de villes, triées par identifiant.
+     * Le curseur de la page suivante est renvoyé dans l'en-tête
+     * {@value Pagination#ENTETE_CURSEUR_SUIVANT} (absent sur la dernière page).
+     * En JSON, la page est servie depuis son instantané ({@link InstantanesCollections}), compressé
+     * en gzip si le client l'accepte.
      *
-     * @return liste des villes sous forme de DTO
+     * @param curseur curseur opaque de la page à lire (absent pour la première page)
+     * @param taille  taille de page souhaitée, plafonnée par {@code pagination.taille-max}
+     * @param webRequest requête, pour la comparaison de l'ETag avec {@code If-None-Match}
+     * @return page de villes sous forme de DTO, 304 si la collection n'a pas changé,
+     *         ou 400 si le curseur ou la taille est invalide
      */
     @GetMapping
-    public List<VilleDto> getAllVilles() {
-        List<Ville> villes = villeService.extractVilles();
-        return villes.stream()
-                .map(MapperUtil::toVilleDto)
-                .toList();
+    public ResponseEntity<?> getAllVilles(@RequestParam(required = false) String curseur,
+                                          @RequestParam(required = false) Integer taille,
+                                          WebRequest webRequest) {
+        int apresId;
+        int tailleEffective;
+        try {
+            apresId = pagination.decoder(curseur);
+            tailleEffective = pagination.taille(taille);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        return PagesInstantanees.servir(instantanesCollections, pagination, VersionsCollections.VILLES,
+                versionsCollections.version(VersionsCollections.VILLES), apresId, tailleEffective, webRequest,
+                () -> pagination.reponse(villeService.extractVilles(apresId, tailleEffective), tailleEffective,
+                        VilleDto::getId));
+    }
+
+    /**
+     * Récupère plusieurs villes par identifiants, en une requête {@code IN} au lieu d'un
+     * {@code GET /villes/{id}} par ville.
+     *
+     * @param ids identifiants des villes ({@code ?ids=1,2,3} ou {@code ?ids=1&ids=2})
+     * @return une {@link Resolution} par identifiant, dans l'ordre demandé, ou 400 si la liste est
+     *         vide ou trop longue
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getVillesParIds(@RequestParam List<Integer> ids) {
+        return villesParIds(ids);
+    }
+
+    /**
+     * Variante de {@link #getVillesParIds(List)} pour les listes trop longues pour une URL.
+     *
+     * @param ids identifiants des villes, en tableau JSON
+     * @return une {@link Resolution} par identifiant, dans l'ordre demandé, ou 400 si la liste est
+     *         vide ou trop longue
+     */
+    @PostMapping("/par-ids")
+    public ResponseEntity<?> postVillesParIds(@RequestBody List<Integer> ids) {
+        return villesParIds(ids);
+    }
+
+    private ResponseEntity<?> villesParIds(List<Integer> ids) {
+        Map<Integer, VilleDto> villes;
+        try {
+            villes = villeService.extractVilles(ids);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(ids.stream().map(id -> Resolution.de(id, villes.get(id))).toList());
+    }
+
+    /**
+     * Exporte toutes les villes au format NDJSON (un objet JSON par ligne), par identifiant croissant.
+     * <p>
+     * Le corps est écrit au fil de la lecture de la base, hors du thread de la requête : la mémoire
+     * utilisée ne dépend pas du nombre de villes et la première ligne part dès qu'elle est lue.
+     *
+     * @param webRequest requête, pour la comparaison de l'ETag avec {@code If-None-Match}
+     * @return flux NDJSON des villes, ou 304 si la collection n'a pas changé
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exporterVilles(WebRequest webRequest) {
+        if (Etags.nonModifie(webRequest, VersionsCollections.VILLES,
+                versionsCollections.version(VersionsCollections.VILLES), "export")) {
+            return null;
+        }
+        StreamingResponseBody corps = sortie -> {
+            try (JsonGenerator generateur = ecrivainVille.createGenerator(sortie)) {
+                generateur.setRootValueSeparator(null);
+                villeService.parcourirVilles(ville -> ecrireLigne(generateur, ville));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(corps);
+    }
+
+    /**
+     * Écrit une ville suivie d'un saut de ligne. La première ligne est envoyée aussitôt ; les
+     * suivantes partent à chaque remplissage du tampon de sortie.
+     */
+    private void ecrireLigne(JsonGenerator generateur, VilleDto ville) {
+        try {
+            boolean premiere = generateur.getOutputContext().getEntryCount() == 0;
+            ecrivainVille.writeValue(generateur, ville);
+            generateur.writeRaw('\n');
+            if (premiere) {
+                generateur.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Liste les n plus grandes villes (par habitants) de France.
+     *
+     * @param n nombre de villes à retourner (par défaut 10)
+     * @return liste DTO des villes, par population décroissante
+     */
+    @GetMapping("/plus-grandes")
+    public List<VilleDto> getNPlusGrandesVilles(@RequestParam(defaultValue = "10") int n) {
+        return implVilleService.nVillesOrderByPopulationDesc(n);
+    }
+
+    /**
+     * Liste les villes les plus proches d'un point, servies par l'index spatial en mémoire.
+     *
+     * @param lat latitude du point, en degrés
+     * @param lon longitude du point, en degrés
+     * @param k   nombre de villes à retourner (par défaut 10), plafonné par {@code pagination.taille-max}
+     * @return villes par distance croissante, ou 400 si les paramètres sont invalides
+     */
+    @GetMapping("/proches")
+    public ResponseEntity<?> getVillesProches(@RequestParam double lat, @RequestParam double lon,
+                                              @RequestParam(defaultValue = "10") int k) {
+        String erreur = erreurCoordonnees(lat, lon);
+        if (erreur == null && k < 1) {
+            erreur = "k doit être supérieur ou égal à 1";
+        }
+        if (erreur != null) {
+            return ResponseEntity.badRequest().body(erreur);
+        }
+        return ResponseEntity.ok(implVilleService.villesProches(lat, lon, pagination.taille(k)));
+    }
+
+    /**
+     * Liste les villes situées à moins de {@code km} kilomètres d'un point.
+     *
+     * @param lat    latitude du point, en degrés
+     * @param lon    longitude du point, en degrés
+     * @param km     rayon de recherche, en kilomètres
+     * @param limite nombre maximum de villes, plafonné par {@code pagination.taille-max}
+     * @return villes par distance croissante, ou 400 si les paramètres sont invalides
+     */
+    @GetMapping("/rayon")
+    public ResponseEntity<?> getVillesDansRayon(@RequestParam double lat, @RequestParam double lon,
+                                                @RequestParam double km,
+                                                @RequestParam(required = false) Integer limite) {
+        String erreur = erreurCoordonnees(lat, lon);
+        if (erreur == null && !(km > 0)) {
+            erreur = "Le rayon doit être strictement positif";
+        }
+        if (erreur == null && limite != null && limite < 1) {
+            erreur = "La limite doit être supérieure ou égale à 1";
+        }
+        if (erreur != null) {
+            return ResponseEntity.badRequest().body(erreur);
+        }
+        return ResponseEntity.ok(implVilleService.villesDansRayon(lat, lon, km, pagination.taille(limite)));
+    }
+
+    /**
+     * Suggère des villes pendant la saisie, servies par l'index de trigrammes en mémoire :
+     * début de nom ou nom approximatif, sans tenir compte de la casse ni des accents.
+     *
+     * @param q texte saisi
+     * @param n nombre de suggestions (par défaut 10), plafonné par {@code pagination.taille-max}
+     * @return villes les plus ressemblantes, ou 400 si les paramètres sont invalides
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggererVilles(@RequestParam String q, @RequestParam(defaultValue = "10") int n) {
+        if (RegleNom.estVide(q)) {
+            return ResponseEntity.badRequest().body("Le texte à compléter ne peut pas être vide");
+        }
+        if (n < 1) {
+            return ResponseEntity.badRequest().body("n doit être supérieur ou égal à 1");
+        }
+        return ResponseEntity.ok(implVilleService.suggererVilles(q, pagination.taille(n)));
+    }
+
+    /**
+     * @return message d'erreur si les coordonnées sont hors des bornes WGS 84, {@code null} sinon
+     */
+    private static String erreurCoordonnees(double lat, double lon) {
+        if (!(lat >= -90 && lat <= 90)) {
+            return "La latitude doit être comprise entre -90 et 90";
+        }
+        if (!(lon >= -180 && lon <= 180)) {
+            return "La longitude doit être comprise entre -180 et 180";
+        }
+        return null;
     }
 
     /**
      * Récupère une ville par son identifiant.
      *
      * @param id identifiant de la ville
-     * @return ville trouvée ou 404 si non trouvée
+     * @param webRequest requête, pour la comparaison de l'ETag avec {@code If-None-Match}
+     * @return ville trouvée, 304 si elle n'a pas changé, ou 404 si non trouvée
      */
     @GetMapping("/{id}")
-    public ResponseEntity<VilleDto> getVilleParId(@PathVariable int id) {
+    public ResponseEntity<VilleDto> getVilleParId(@PathVariable int id, WebRequest webRequest) {
+        Optional<String> version = villeService.versionVille(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (Etags.nonModifie(webRequest, "ville", version.get())) {
+            return null;
+        }
         return villeService.extractVille(id)
-                .map(MapperUtil::toVilleDto)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -70,12 +312,19 @@ public class VilleControleur {
      * Récupère une ville par son nom.
      *
      * @param nom nom de la ville
-     * @return ville trouvée ou 404 si non trouvée
+     * @param webRequest requête, pour la comparaison de l'ETag avec {@code If-None-Match}
+     * @return ville trouvée, 304 si elle n'a pas changé, ou 404 si non trouvée
      */
     @GetMapping("/nom/{nom}")
-    public ResponseEntity<VilleDto> getVilleParNom(@PathVariable String nom) {
+    public ResponseEntity<VilleDto> getVilleParNom(@PathVariable String nom, WebRequest webRequest) {
+        Optional<String> version = villeService.versionVille(nom);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (Etags.nonModifie(webRequest, "ville", version.get())) {
+            return null;
+        }
         return villeService.extractVille(nom)
-                .map(MapperUtil::toVilleDto)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -86,10 +335,14 @@ public class VilleControleur {
      *
      * @param villeDto      données de la ville au format DTO
      * @param bindingResult résultat de la validation
-     * @return liste mise à jour des villes ou erreurs de validation
+     * @param retour        mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer        en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return réponse selon le {@link ModeReponse} demandé, ou erreurs de validation
      */
     @PostMapping
-    public ResponseEntity<?> createVille(@Valid @RequestBody VilleDto villeDto, BindingResult bindingResult) {
+    public ResponseEntity<?> createVille(@Valid @RequestBody VilleDto villeDto, BindingResult bindingResult,
+                                         @RequestParam(required = false) String retour,
+                                         @RequestHeader(value = "Prefer", required = false) String prefer) {
 
         villeValidator.validate(villeDto, bindingResult);
 
@@ -102,19 +355,17 @@ public class VilleControleur {
         }
 
         // Récupérer département (par code ou nom)
-        Departement departement = departementDao.findByCodeIgnoreCase(villeDto.getCodeDpt().trim())
+        Departement departement = departementCache.parCode(villeDto.getCodeDpt())
                 .orElse(null);
         if (departement == null && villeDto.getNomDepartement() != null) {
-            departement = departementDao.findByNomIgnoreCase(villeDto.getNomDepartement().trim())
+            departement = departementCache.parNom(villeDto.getNomDepartement())
                     .orElse(null);
         }
 
-        Ville ville = MapperUtil.toVille(villeDto, departement);
-        List<Ville> villes = villeService.insertVille(ville);
-
-        List<VilleDto> dtos = villes.stream().map(MapperUtil::toVilleDto).toList();
+        Ville ville = villeService.insertVille(MapperUtil.toVille(villeDto, departement));
 
-        return ResponseEntity.ok(dtos);
+        return ModeReponse.depuis(retour, prefer)
+                .creation(location(ville.getId()), MapperUtil.toVilleDto(ville), this::listeVilles);
     }
 
 
@@ -125,12 +376,16 @@ public class VilleControleur {
      * @param nom           nom de la ville à modifier
      * @param villeDto      données modifiées de la ville au format DTO
      * @param bindingResult résultat de la validation
-     * @return liste mise à jour des villes ou erreurs de validation
+     * @param retour        mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer        en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return réponse selon le {@link ModeReponse} demandé, ou erreurs de validation
      */
     @PutMapping("/nom/{nom}")
     public ResponseEntity<?> updateVilleByNom(@PathVariable String nom,
                                          @Valid @RequestBody VilleDto villeDto,
-                                         BindingResult bindingResult) {
+                                         BindingResult bindingResult,
+                                         @RequestParam(required = false) String retour,
+                                         @RequestHeader(value = "Prefer", required = false) String prefer) {
 
         villeValidator.validate(villeDto, bindingResult);
         if (bindingResult.hasErrors()) {
@@ -145,7 +400,7 @@ public class VilleControleur {
 
         // Vérification via code département en priorité
         if (villeDto.getCodeDpt() != null && !villeDto.getCodeDpt().isBlank()) {
-            departement = departementDao.findByCodeIgnoreCase(villeDto.getCodeDpt())
+            departement = departementCache.parCode(villeDto.getCodeDpt())
                     .orElse(null);
             if (departement == null) {
                 return ResponseEntity.badRequest().body("Code département introuvable : " + villeDto.getCodeDpt());
@@ -153,7 +408,7 @@ public class VilleControleur {
         }
         // Sinon on peut utiliser nom de département
         else if (villeDto.getNomDepartement() != null && !villeDto.getNomDepartement().isBlank()) {
-            departement = departementDao.findByNomIgnoreCase(villeDto.getNomDepartement())
+            departement = departementCache.parNom(villeDto.getNomDepartement())
                     .orElse(null);
             if (departement == null) {
                 return ResponseEntity.badRequest().body("Nom département introuvable : " + villeDto.getNomDepartement());
@@ -162,11 +417,10 @@ public class VilleControleur {
 
         Ville villeModifiee = MapperUtil.toVille(villeDto, departement);
 
-        List<Ville> villes = villeService.modifierVilleParNom(nom, villeModifiee);
+        Ville ville = villeService.modifierVilleParNom(nom, villeModifiee).orElse(null);
 
-        List<VilleDto> dtos = villes.stream().map(MapperUtil::toVilleDto).toList();
-
-        return ResponseEntity.ok(dtos);
+        return ModeReponse.depuis(retour, prefer).modification(
+                ville == null ? null : location(ville.getId()), MapperUtil.toVilleDto(ville), this::listeVilles);
     }
     /**
      * Modifie une ville identifiée par son identifiant.
@@ -175,12 +429,16 @@ public class VilleControleur {
      * @param id           nom de la ville à modifier
      * @param villeDto      données modifiées de la ville au format DTO
      * @param bindingResult résultat de la validation
-     * @return liste mise à jour des villes ou erreurs de validation
+     * @param retour        mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer        en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return réponse selon le {@link ModeReponse} demandé, ou erreurs de validation
      */
     @PutMapping("/{id}")
     public ResponseEntity<?> updateVille(@PathVariable Integer id,
                                          @Valid @RequestBody VilleDto villeDto,
-                                         BindingResult bindingResult) {
+                                         BindingResult bindingResult,
+                                         @RequestParam(required = false) String retour,
+                                         @RequestHeader(value = "Prefer", required = false) String prefer) {
 
         villeValidator.validate(villeDto, bindingResult);
         if (bindingResult.hasErrors()) {
@@ -195,7 +453,7 @@ public class VilleControleur {
 
         // Vérification via code département en priorité
         if (villeDto.getCodeDpt() != null && !villeDto.getCodeDpt().isBlank()) {
-            departement = departementDao.findByCodeIgnoreCase(villeDto.getCodeDpt())
+            departement = departementCache.parCode(villeDto.getCodeDpt())
                     .orElse(null);
             if (departement == null) {
                 return ResponseEntity.badRequest().body("Code département introuvable : " + villeDto.getCodeDpt());
@@ -203,7 +461,7 @@ public class VilleControleur {
         }
         // Sinon on peut utiliser nom de département
         else if (villeDto.getNomDepartement() != null && !villeDto.getNomDepartement().isBlank()) {
-            departement = departementDao.findByNomIgnoreCase(villeDto.getNomDepartement())
+            departement = departementCache.parNom(villeDto.getNomDepartement())
                     .orElse(null);
             if (departement == null) {
                 return ResponseEntity.badRequest().body("Nom département introuvable : " + villeDto.getNomDepartement());
@@ -212,37 +470,192 @@ public class VilleControleur {
 
         Ville villeModifiee = MapperUtil.toVille(villeDto, departement);
 
-        List<Ville> villes = villeService.modifierVille(id, villeModifiee);
+        VilleDto dto = villeService.modifierVille(id, villeModifiee)
+                .map(MapperUtil::toVilleDto)
+                .orElse(null);
+
+        return ModeReponse.depuis(retour, prefer).modification(location(id), dto, this::listeVilles);
+    }
 
-        List<VilleDto> dtos = villes.stream().map(MapperUtil::toVilleDto).toList();
+    /**
+     * Modifie partiellement une ville, si elle n'a pas changé depuis la lecture du client.
+     * <p>
+     * L'en-tête {@code If-Match} porte l'ETag renvoyé par {@code GET /villes/{id}} ; la modification
+     * est une seule requête conditionnée par la version de la ligne, sans la charger. Seuls les
+     * champs renseignés du corps sont modifiés.
+     *
+     * @param id            identifiant de la ville
+     * @param villeDto      champs à modifier
+     * @param bindingResult résultat de la validation
+     * @param ifMatch       ETag de la version lue par le client
+     * @param webRequest    requête, pour le format de l'ETag renvoyé
+     * @return 200 avec la ville et son nouvel ETag, 400 si le corps ou l'ETag est invalide,
+     *         404 si la ville n'existe pas, 409 si elle a été modifiée depuis, 428 sans {@code If-Match}
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchVille(@PathVariable Integer id,
+                                        @RequestBody VilleDto villeDto,
+                                        BindingResult bindingResult,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                        WebRequest webRequest) {
+        if (ifMatch == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).body("En-tête If-Match obligatoire");
+        }
+        OptionalInt version = Etags.versionLigne(ifMatch, "ville", id);
+        if (version.isEmpty()) {
+            return ResponseEntity.badRequest().body("If-Match ne désigne pas une version de la ville " + id);
+        }
+        villeValidator.validerModification(villeDto, bindingResult);
+        if (bindingResult.hasErrors()) {
+            List<String> erreurs = bindingResult.getAllErrors()
+                    .stream()
+                    .map(err -> err.getDefaultMessage())
+                    .toList();
+            return ResponseEntity.badRequest().body(erreurs);
+        }
 
-        return ResponseEntity.ok(dtos);
+        Departement departement = null;
+        if (villeDto.getCodeDpt() != null) {
+            departement = departementCache.parCode(villeDto.getCodeDpt()).orElse(null);
+            if (departement == null) {
+                return ResponseEntity.badRequest().body("Code département introuvable : " + villeDto.getCodeDpt());
+            }
+        } else if (villeDto.getNomDepartement() != null) {
+            departement = departementCache.parNom(villeDto.getNomDepartement()).orElse(null);
+            if (departement == null) {
+                return ResponseEntity.badRequest().body("Nom département introuvable : " + villeDto.getNomDepartement());
+            }
+        }
+
+        Optional<VilleDto> modifiee = villeService.modifierVilleSiVersion(id, version.getAsInt(),
+                MapperUtil.toVille(villeDto, departement));
+        if (modifiee.isEmpty()) {
+            return villeService.versionVille(id).isEmpty()
+                    ? ResponseEntity.notFound().build()
+                    : ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("La ville " + id + " a été modifiée depuis la version " + version.getAsInt());
+        }
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok().location(location(id));
+        villeService.versionVille(id).ifPresent(v -> reponse.eTag(Etags.representation(webRequest, "ville", v)));
+        return reponse.body(modifiee.get());
     }
 
+    /**
+     * Corrige la population d'une ville, en valeur absolue ou par incrément. La correction est
+     * visible aussitôt en lecture et écrite plus tard, regroupée avec les autres.
+     *
+     * @param id        identifiant de la ville
+     * @param valeur    nouvelle population
+     * @param increment variation de population, éventuellement négative
+     * @return 202 si la correction est acceptée, 400 si ni ou les deux paramètres sont donnés,
+     *         404 si la ville n'existe pas
+     */
+    @PatchMapping("/{id}/population")
+    public ResponseEntity<?> corrigerPopulation(@PathVariable Integer id,
+                                                @RequestParam(required = false) Integer valeur,
+                                                @RequestParam(required = false) Integer increment) {
+        if ((valeur == null) == (increment == null)) {
+            return ResponseEntity.badRequest().body("Indiquer soit valeur, soit increment");
+        }
+        if (valeur != null && valeur < 1) {
+            return ResponseEntity.badRequest().body("La population doit être au moins 1");
+        }
+        // Une correction pour une ville inconnue serait acceptée puis abandonnée sans prévenir le client.
+        if (!villeService.existe(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (valeur != null) {
+            tamponPopulations.fixer(id, valeur);
+        } else {
+            tamponPopulations.incrementer(id, increment);
+        }
+        return ResponseEntity.accepted().build();
+    }
 
     /**
      * Supprime une ville par son nom.
      *
-     * @param nom nom de la ville à supprimer
-     * @return liste mise à jour des villes
+     * @param nom    nom de la ville à supprimer
+     * @param retour mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return liste mise à jour des villes, ou 204/404 selon le {@link ModeReponse} demandé
      */
     @DeleteMapping("/nom/{nom}")
-    public ResponseEntity<List<VilleDto>> deleteVille(@PathVariable String nom) {
-        List<Ville> villes = villeService.supprimerVilleParNom(nom);
-        List<VilleDto> dtos = villes.stream().map(MapperUtil::toVilleDto).toList();
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<?> deleteVille(@PathVariable String nom,
+                                         @RequestParam(required = false) String retour,
+                                         @RequestHeader(value = "Prefer", required = false) String prefer) {
+        boolean supprime = villeService.supprimerVilleParNom(nom);
+        return ModeReponse.depuis(retour, prefer).suppression(supprime, this::listeVilles);
     }
 
     /**
      * Supprime une ville par son identifiant.
      *
-     * @param id nom de la ville à supprimer
-     * @return liste mise à jour des villes
+     * @param id     nom de la ville à supprimer
+     * @param retour mode de réponse ({@code liste}, {@code entite} ou {@code minimal})
+     * @param prefer en-tête {@code Prefer} (RFC 7240), utilisé si {@code retour} est absent
+     * @return liste mise à jour des villes, ou 204/404 selon le {@link ModeReponse} demandé
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<List<VilleDto>> deleteVilleById(@PathVariable Integer id) {
-        List<Ville> villes = villeService.supprimerVille(id);
-        List<VilleDto> dtos = villes.stream().map(MapperUtil::toVilleDto).toList();
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<?> deleteVilleById(@PathVariable Integer id,
+                                             @RequestParam(required = false) String retour,
+                                             @RequestHeader(value = "Prefer", required = false) String prefer) {
+        boolean supprime = villeService.supprimerVille(id);
+        return ModeReponse.depuis(retour, prefer).suppression(supprime, this::listeVilles);
+    }
+
+    /**
+     * Supprime en une requête toutes les villes qui remplissent les critères renseignés : département,
+     * bornes de population incluses, liste d'identifiants. Les villes ne sont pas chargées.
+     *
+     * @param departement code du département
+     * @param min         population minimale
+     * @param max         population maximale
+     * @param ids         identifiants des villes
+     * @return 200 avec le nombre de villes supprimées, 400 sans critère ou avec un critère invalide
+     */
+    @DeleteMapping
+    public ResponseEntity<?> deleteVilles(@RequestParam(required = false) String departement,
+                                          @RequestParam(required = false) Integer min,
+                                          @RequestParam(required = false) Integer max,
+                                          @RequestParam(required = false) List<Integer> ids) {
+        if (departement == null && min == null && max == null && ids == null) {
+            return ResponseEntity.badRequest().body("Au moins un critère est obligatoire : departement, min, max ou ids");
+        }
+        if (min != null && max != null && min > max) {
+            return ResponseEntity.badRequest().body("min doit être inférieur ou égal à max");
+        }
+        if (ids != null && ids.isEmpty()) {
+            return ResponseEntity.badRequest().body("La liste ids ne peut pas être vide");
+        }
+        Integer idDepartement = null;
+        if (departement != null) {
+            Optional<Departement> trouve = departementCache.parCode(departement);
+            if (trouve.isEmpty()) {
+                return ResponseEntity.badRequest().body("Code département introuvable : " + departement);
+            }
+            idDepartement = trouve.get().getId();
+        }
+        return ResponseEntity.ok(new RapportSuppression(villeService.supprimerVilles(idDepartement, min, max, ids)));
+    }
+
+    /**
+     * Liste complète des villes, renvoyée en mode {@link ModeReponse#LISTE}
+     * pour les clients historiques.
+     *
+     * @return toutes les villes sous forme de DTO
+     */
+    private List<VilleDto> listeVilles() {
+        return villeService.extractVilles();
+    }
+
+    /**
+     * Construit l'URI d'une ville.
+     *
+     * @param id identifiant de la ville
+     * @return URI {@code /villes/{id}}
+     */
+    private URI location(Integer id) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path("/villes/{id}").buildAndExpand(id).toUri();
     }
 }
@@ -1,15 +1,42 @@
 package fr.digi.hello.dao;
 
 import fr.digi.hello.items.Departement;
+import fr.digi.hello.utils.NormaliseurNom;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DepartementDao extends JpaRepository<Departement, Integer> {
 
-    Optional<Departement> findByNomIgnoreCase(String nom);
+    /**
+     * Recherche un département par son nom normalisé (colonne indexée, voir {@link NormaliseurNom}).
+     * Résultat conservé dans le cache des requêtes.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    Optional<Departement> findByNomNormalise(String nomNormalise);
+
+    /**
+     * Recherche un département par son code, sans tenir compte de la casse.
+     * Résultat conservé dans le cache des requêtes.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Departement> findByCodeIgnoreCase(String code);
 
+    /**
+     * Recherche des départements par leurs codes, en une requête {@code IN}.
+     *
+     * @param codes codes en majuscules
+     */
+    @Query("SELECT d FROM Departement d WHERE UPPER(d.code) IN :codes")
+    List<Departement> findByCodesMajuscules(@Param("codes") Collection<String> codes);
+
 }
@@ -1,20 +1,41 @@
 package fr.digi.hello.dao;
 
+import fr.digi.hello.dto.VilleDto;
 import fr.digi.hello.items.Ville;
+import fr.digi.hello.utils.NormaliseurNom;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.Optional;
 
 /**
  * DAO (Data Access Object) pour l'entité Ville.
  * Étend JpaRepository pour fournir les opérations CRUD standard.
- * Permet la recherche de Ville par nom, insensible à la casse.
+ * Permet la recherche de Ville par nom, insensible à la casse et aux accents.
  */
 public interface VilleDao extends JpaRepository<Ville, Integer> {
 
     /**
-     * Recherche une ville par son nom (insensible à la casse).
+     * Début de requête JPQL projetant directement une ville et son département dans un {@link VilleDto}.
+     * La jointure est faite dans la même requête et aucune entité n'est chargée
+     * dans le contexte de persistance. L'alias de la ville est {@code v}, celui du département {@code d}.
+     */
+    String PROJECTION_DTO = "SELECT new fr.digi.hello.dto.VilleDto(v.id, v.nom, v.nbHabitants, d.nom, d.code, "
+            + "v.latitude, v.longitude) "
+            + "FROM Ville v LEFT JOIN v.departement d ";
+
+    /**
+     * Recherche une ville par son nom normalisé (colonne indexée, voir {@link NormaliseurNom}).
+     * Plusieurs communes pouvant porter le même nom, seule la première est renvoyée.
      */
-    Optional<Ville> findByNomIgnoreCase(String nom);
+    Optional<Ville> findFirstByNomNormalise(String nomNormalise);
     Optional<Ville> findById(Integer id);
 
+    /**
+     * Recherche une ville par identifiant, projetée en DTO avec son département en une seule requête.
+     */
+    @Query(PROJECTION_DTO + "WHERE v.id = :id")
+    Optional<VilleDto> findDtoById(@Param("id") Integer id);
+
 }
@@ -0,0 +1,9 @@
+package fr.digi.hello.dto;
+
+/**
+ * Bilan d'une suppression groupée de villes.
+ *
+ * @param villesSupprimees nombre de villes supprimées
+ */
+public record RapportSuppression(int villesSupprimees) {
+}
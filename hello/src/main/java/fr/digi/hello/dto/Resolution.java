@@ -0,0 +1,26 @@
+package fr.digi.hello.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Réponse d'une lecture groupée pour une clé demandée (identifiant, code) : l'élément trouvé,
+ * ou l'indication explicite qu'il n'existe pas. Les réponses suivent l'ordre des clés demandées.
+ *
+ * @param cle    clé demandée
+ * @param trouve {@code true} si l'élément existe
+ * @param valeur élément trouvé, absent du JSON sinon
+ * @param <K>    type de la clé
+ * @param <V>    type de l'élément
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Resolution<K, V>(K cle, boolean trouve, V valeur) {
+
+    /**
+     * @param cle    clé demandée
+     * @param valeur élément trouvé, ou {@code null}
+     * @return résolution de la clé
+     */
+    public static <K, V> Resolution<K, V> de(K cle, V valeur) {
+        return new Resolution<>(cle, valeur != null, valeur);
+    }
+}
@@ -11,6 +11,8 @@ public class VilleDto {
     private Integer nbHabitants;
     private String nomDepartement;
     private String codeDpt;
+    private Double latitude;
+    private Double longitude;
 
     public VilleDto() {}
 
@@ -29,6 +31,23 @@ public class VilleDto {
         this.codeDpt = codeDpt;
     }
 
+    /**
+     * Constructeur complet, avec coordonnées géographiques
+     * @param id identifiant unique de la ville
+     * @param nom nom de la ville
+     * @param nbHabitants nombre d'habitants
+     * @param nomDepartement nom du département
+     * @param codeDpt code du département
+     * @param latitude latitude en degrés décimaux (WGS 84), ou {@code null}
+     * @param longitude longitude en degrés décimaux (WGS 84), ou {@code null}
+     */
+    public VilleDto(Integer id, String nom, Integer nbHabitants, String nomDepartement, String codeDpt,
+                    Double latitude, Double longitude) {
+        this(id, nom, nbHabitants, nomDepartement, codeDpt);
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
     // Getters et setters
 
     public Integer getId() {
@@ -70,4 +89,20 @@ public class VilleDto {
     public void setCodeDpt(String codeDpt) {
         this.codeDpt = codeDpt;
     }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
 }
@@ -0,0 +1,14 @@
+package fr.digi.hello.evenements;
+
+import java.util.List;
+
+/**
+ * Événement publié à chaque incrémentation de la version d'une ou plusieurs collections,
+ * c'est-à-dire à chaque écriture (y compris les imports qui contournent JPA).
+ * <p>
+ * Les instantanés des listes l'écoutent après validation de la transaction pour se reconstruire.
+ *
+ * @param noms noms des collections modifiées
+ */
+public record CollectionsModifieesEvent(List<String> noms) {
+}
@@ -0,0 +1,27 @@
+package fr.digi.hello.evenements;
+
+import fr.digi.hello.dto.VilleDto;
+
+/**
+ * Événement publié après la création, la modification ou la suppression d'une ville.
+ * <p>
+ * Les index en mémoire l'écoutent après validation de la transaction pour se mettre à jour
+ * incrémentalement, sans relire la base. Deux transactions sur la même ville pouvant voir leurs
+ * écouteurs s'exécuter dans le désordre, l'événement porte la version de la ligne qu'il décrit.
+ *
+ * @param id      identifiant de la ville
+ * @param ville   nouvel état de la ville, {@code null} si elle a été supprimée
+ * @param version version de la ligne après l'écriture, {@code null} pour une suppression
+ */
+public record VilleModifieeEvent(Integer id, VilleDto ville, Integer version) {
+
+    /**
+     * Suppression d'une ville : définitive, les identifiants n'étant jamais réutilisés.
+     *
+     * @param id identifiant de la ville supprimée
+     * @return événement de suppression
+     */
+    public static VilleModifieeEvent suppression(Integer id) {
+        return new VilleModifieeEvent(id, null, null);
+    }
+}
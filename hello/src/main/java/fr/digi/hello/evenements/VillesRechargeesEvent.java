@@ -0,0 +1,11 @@
+package fr.digi.hello.evenements;
+
+/**
+ * Événement publié après une modification en masse (import, modification d'un département, etc.)
+ * que les index en mémoire ne peuvent pas appliquer ligne à ligne : ils se reconstruisent
+ * entièrement depuis la base.
+ *
+ * @param origine opération à l'origine du rechargement, pour le diagnostic
+ */
+public record VillesRechargeesEvent(String origine) {
+}
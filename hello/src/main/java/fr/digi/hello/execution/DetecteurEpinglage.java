@@ -0,0 +1,162 @@
+package fr.digi.hello.execution;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Détection des threads virtuels épinglés à leur thread porteur.
+ * <p>
+ * Un thread virtuel qui bloque dans un bloc {@code synchronized} (code applicatif ou pilote JDBC)
+ * ne libère pas son porteur : sous charge, les porteurs s'épuisent et le gain des threads virtuels
+ * disparaît. C'est pourquoi les sections critiques de l'application qui peuvent attendre (écritures
+ * des index, tampon des populations) sont gardées par un {@link java.util.concurrent.locks.ReentrantLock}
+ * et non par {@code synchronized}. Lorsque {@code spring.threads.virtual.enabled} est actif, ce composant écoute
+ * l'événement JFR {@code jdk.VirtualThreadPinned} (blocages d'au moins
+ * {@code threads.epinglage.seuil-ms}) et agrège les occurrences par origine, c'est-à-dire par
+ * première méthode hors JDK de la pile. Chaque nouvelle origine est journalisée une fois avec sa pile.
+ */
+@Component
+public class DetecteurEpinglage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DetecteurEpinglage.class);
+    private static final String EVENEMENT = "jdk.VirtualThreadPinned";
+    private static final int PROFONDEUR_PILE = 12;
+
+    /**
+     * Épinglages observés pour une origine.
+     *
+     * @param origine     première méthode hors JDK de la pile
+     * @param occurrences nombre d'épinglages
+     * @param dureeMaxMs  durée maximale d'un épinglage
+     * @param pile        pile du premier épinglage observé
+     */
+    public record Epinglage(String origine, long occurrences, long dureeMaxMs, List<String> pile) {
+    }
+
+    /**
+     * État de la détection.
+     *
+     * @param threadsVirtuels {@code true} si l'application s'exécute sur des threads virtuels
+     * @param actif           {@code true} si l'écoute JFR est démarrée
+     * @param seuilMs         durée minimale d'un blocage pour être signalé
+     * @param epinglages      épinglages par origine, les plus fréquents d'abord
+     */
+    public record Rapport(boolean threadsVirtuels, boolean actif, long seuilMs, List<Epinglage> epinglages) {
+    }
+
+    /** Compteurs d'une origine. */
+    private static final class Compteur {
+        private final LongAdder occurrences = new LongAdder();
+        private final AtomicLong dureeMaxMs = new AtomicLong();
+        private final List<String> pile;
+
+        Compteur(List<String> pile) {
+            this.pile = pile;
+        }
+
+        void ajouter(Duration duree) {
+            occurrences.increment();
+            dureeMaxMs.accumulateAndGet(duree.toMillis(), Math::max);
+        }
+    }
+
+    private final boolean threadsVirtuels;
+    private final long seuilMs;
+    private final Map<String, Compteur> parOrigine = new ConcurrentHashMap<>();
+    private volatile RecordingStream flux;
+
+    /**
+     * Constructeur.
+     *
+     * @param threadsVirtuels mode d'exécution de l'application
+     * @param seuilMs         durée minimale d'un blocage pour être signalé
+     */
+    public DetecteurEpinglage(@Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuels,
+                              @Value("${threads.epinglage.seuil-ms:20}") long seuilMs) {
+        this.threadsVirtuels = threadsVirtuels;
+        this.seuilMs = seuilMs;
+    }
+
+    /**
+     * Démarre l'écoute JFR lorsque l'application s'exécute sur des threads virtuels.
+     */
+    @PostConstruct
+    public void demarrer() {
+        if (!threadsVirtuels) {
+            return;
+        }
+        RecordingStream nouveau = new RecordingStream();
+        nouveau.enable(EVENEMENT).withThreshold(Duration.ofMillis(seuilMs)).withStackTrace();
+        nouveau.onEvent(EVENEMENT, this::enregistrer);
+        nouveau.startAsync();
+        flux = nouveau;
+    }
+
+    /**
+     * Arrête l'écoute JFR.
+     */
+    @PreDestroy
+    public void arreter() {
+        RecordingStream courant = flux;
+        if (courant != null) {
+            flux = null;
+            courant.close();
+        }
+    }
+
+    /**
+     * @return épinglages observés depuis le démarrage
+     */
+    public Rapport rapport() {
+        List<Epinglage> epinglages = parOrigine.entrySet().stream()
+                .map(e -> new Epinglage(e.getKey(), e.getValue().occurrences.sum(), e.getValue().dureeMaxMs.get(),
+                        e.getValue().pile))
+                .sorted(Comparator.comparingLong(Epinglage::occurrences).reversed())
+                .toList();
+        return new Rapport(threadsVirtuels, flux != null, seuilMs, epinglages);
+    }
+
+    private void enregistrer(RecordedEvent evenement) {
+        List<String> pile = pile(evenement.getStackTrace());
+        String origine = pile.stream().filter(cadre -> !estDuJdk(cadre)).findFirst()
+                .orElse(pile.isEmpty() ? "inconnue" : pile.get(0));
+        parOrigine.computeIfAbsent(origine, o -> {
+            LOG.warn("Thread virtuel épinglé {} ms dans {} :\n\t{}", evenement.getDuration().toMillis(), o,
+                    pile.stream().collect(Collectors.joining("\n\t")));
+            return new Compteur(pile);
+        }).ajouter(evenement.getDuration());
+    }
+
+    private static List<String> pile(RecordedStackTrace pile) {
+        if (pile == null) {
+            return List.of();
+        }
+        return pile.getFrames().stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .limit(PROFONDEUR_PILE)
+                .map(cadre -> cadre.getMethod().getType().getName() + "." + cadre.getMethod().getName()
+                        + ":" + cadre.getLineNumber())
+                .toList();
+    }
+
+    private static boolean estDuJdk(String cadre) {
+        return cadre.startsWith("java.") || cadre.startsWith("jdk.") || cadre.startsWith("sun.");
+    }
+}
@@ -0,0 +1,382 @@
+package fr.digi.hello.generiqueData;
+
+import fr.digi.hello.dto.DepartementDto;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VillesRechargeesEvent;
+import fr.digi.hello.items.Departement;
+import fr.digi.hello.services.DepartementCache;
+import fr.digi.hello.services.VersionsCollections;
+import fr.digi.hello.utils.NormaliseurNom;
+import fr.digi.hello.validators.DepartementValidator;
+import fr.digi.hello.validators.ValidateurRegles;
+import fr.digi.hello.validators.VilleValidator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.Errors;
+import org.springframework.validation.MapBindingResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Import en masse des départements et des villes depuis des fichiers CSV locaux.
+ * <p>
+ * Le fichier est lu ligne à ligne : seul le lot en cours est gardé en mémoire. Chaque ligne est
+ * validée avec {@link DepartementValidator} ou {@link VilleValidator}, le département d'une ville
+ * est résolu par {@link DepartementCache}, puis les lignes valides sont écrites par lots de
+ * {@code import.taille-lot} dans un unique {@code INSERT} multi-lignes, sans passer par les entités
+ * JPA (l'identifiant {@code IDENTITY} empêche Hibernate de regrouper les insertions).
+ * <p>
+ * Formats attendus (séparateur {@code ;} ou {@code ,}, en-tête facultatif) :
+ * <ul>
+ *     <li>départements : {@code code;nom}</li>
+ *     <li>villes : {@code nom;nbHabitants;codeDpt[;nomDepartement[;latitude;longitude]]}</li>
+ * </ul>
+ */
+@Service
+public class ImportCsvService {
+
+    /** Nombre maximal d'erreurs détaillées conservées dans le rapport. */
+    private static final int ERREURS_MAX = 100;
+
+    private static final String INSERT_DEPARTEMENTS = "INSERT INTO departement (code, nom, nom_normalise, version) VALUES ";
+    private static final String VALEURS_DEPARTEMENT = "(?, ?, ?, 0)";
+    private static final String INSERT_VILLES = "INSERT INTO villes (nom, nom_normalise, nb_habitants, departement_id, latitude, longitude, version) VALUES ";
+    private static final String VALEURS_VILLE = "(?, ?, ?, ?, ?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DepartementCache departementCache;
+    private final DepartementValidator departementValidator;
+    private final VilleValidator villeValidator;
+    private final ApplicationEventPublisher publisher;
+    private final VersionsCollections versionsCollections;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int tailleLot;
+    private final Path repertoire;
+
+    /**
+     * Constructeur avec injection des dépendances nécessaires.
+     *
+     * @param jdbcTemplate         accès JDBC pour les insertions par lots
+     * @param departementCache     cache de résolution des départements
+     * @param departementValidator validateur des lignes départements
+     * @param villeValidator       validateur des lignes villes
+     * @param publisher            publication du rechargement des index de villes après import
+     * @param versionsCollections  versions des collections, incrémentées après chaque import
+     * @param entityManagerFactory cache de second niveau, vidé après un import de départements
+     * @param tailleLot            nombre de lignes par {@code INSERT}
+     * @param repertoire           répertoire autorisé pour les imports lancés par l'API d'administration
+     */
+    public ImportCsvService(JdbcTemplate jdbcTemplate,
+                            DepartementCache departementCache,
+                            DepartementValidator departementValidator,
+                            VilleValidator villeValidator,
+                            ApplicationEventPublisher publisher,
+                            VersionsCollections versionsCollections,
+                            EntityManagerFactory entityManagerFactory,
+                            @Value("${import.taille-lot:1000}") int tailleLot,
+                            @Value("${import.repertoire:imports}") String repertoire) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.departementCache = departementCache;
+        this.departementValidator = departementValidator;
+        this.villeValidator = villeValidator;
+        this.publisher = publisher;
+        this.versionsCollections = versionsCollections;
+        this.entityManagerFactory = entityManagerFactory;
+        this.tailleLot = Math.max(1, tailleLot);
+        this.repertoire = Path.of(repertoire).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Résout un nom de fichier à l'intérieur du répertoire d'import autorisé.
+     *
+     * @param fichier nom ou chemin relatif du fichier
+     * @return chemin absolu du fichier
+     * @throws IllegalArgumentException si le chemin sort du répertoire d'import ou n'existe pas
+     */
+    public Path resoudre(String fichier) {
+        Path chemin = repertoire.resolve(fichier).normalize();
+        if (!chemin.startsWith(repertoire)) {
+            throw new IllegalArgumentException("Le fichier doit se trouver dans le répertoire d'import");
+        }
+        if (!Files.isRegularFile(chemin)) {
+            throw new IllegalArgumentException("Fichier introuvable : " + fichier);
+        }
+        return chemin;
+    }
+
+    /**
+     * Importe des départements ({@code code;nom}).
+     * Les codes déjà présents en base ou en double dans le fichier sont rejetés.
+     *
+     * @param fichier fichier CSV à lire
+     * @return rapport d'import
+     * @throws IOException en cas d'erreur de lecture
+     */
+    public RapportImport importerDepartements(Path fichier) throws IOException {
+        Set<String> codesVus = new HashSet<>();
+        RapportImport rapport = importer(fichier, "code", INSERT_DEPARTEMENTS, VALEURS_DEPARTEMENT, (champs, lot, erreur) -> {
+            if (champs.size() < 2) {
+                erreur.ajouter("2 colonnes attendues (code;nom)");
+                return;
+            }
+            DepartementDto dto = new DepartementDto(null, champs.get(1).trim(), champs.get(0).trim());
+            if (!valider(departementValidator, dto, erreur)) {
+                return;
+            }
+            String cle = dto.getCode().toUpperCase(Locale.ROOT);
+            if (!codesVus.add(cle) || departementCache.parCode(dto.getCode()).isPresent()) {
+                erreur.ajouter("Un département avec ce code existe déjà");
+                return;
+            }
+            lot.ajouter(dto.getCode(), dto.getNom(), NormaliseurNom.normaliser(dto.getNom()));
+        }, () -> {
+            departementCache.invalider();
+            // Les insertions JDBC échappent à Hibernate : une recherche par code mise en cache sans
+            // résultat le resterait.
+            entityManagerFactory.getCache().evict(Departement.class);
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+            versionsCollections.incrementer(VersionsCollections.DEPARTEMENTS);
+        });
+        return rapport;
+    }
+
+    /**
+     * Importe des villes ({@code nom;nbHabitants;codeDpt[;nomDepartement[;latitude;longitude]]}).
+     * Les coordonnées sont en degrés décimaux, le séparateur décimal étant le point.
+     * Les départements doivent exister : ils sont résolus en mémoire, sans requête par ligne.
+     *
+     * @param fichier fichier CSV à lire
+     * @return rapport d'import
+     * @throws IOException en cas d'erreur de lecture
+     */
+    public RapportImport importerVilles(Path fichier) throws IOException {
+        RapportImport rapport = importer(fichier, "nom", INSERT_VILLES, VALEURS_VILLE, (champs, lot, erreur) -> {
+            if (champs.size() < 3) {
+                erreur.ajouter("3 colonnes attendues (nom;nbHabitants;codeDpt)");
+                return;
+            }
+            Integer nbHabitants;
+            try {
+                nbHabitants = Integer.valueOf(champs.get(1).trim());
+            } catch (NumberFormatException e) {
+                erreur.ajouter("Nombre d'habitants invalide : " + champs.get(1));
+                return;
+            }
+            String codeDpt = champs.get(2).trim();
+            String nomDepartement = champs.size() > 3 ? champs.get(3).trim() : null;
+            Optional<Departement> departement = departementCache.parCode(codeDpt);
+            if (departement.isEmpty()) {
+                departement = departementCache.parNom(nomDepartement);
+            }
+            if (departement.isEmpty()) {
+                erreur.ajouter("Département introuvable : " + codeDpt);
+                return;
+            }
+            if (nomDepartement == null || nomDepartement.isEmpty()) {
+                nomDepartement = departement.get().getNom();
+            }
+            // Une coordonnée sans l'autre est rejetée par le validateur.
+            String champLatitude = champs.size() > 4 ? champs.get(4).trim() : "";
+            String champLongitude = champs.size() > 5 ? champs.get(5).trim() : "";
+            Double latitude;
+            Double longitude;
+            try {
+                latitude = champLatitude.isEmpty() ? null : Double.valueOf(champLatitude);
+                longitude = champLongitude.isEmpty() ? null : Double.valueOf(champLongitude);
+            } catch (NumberFormatException e) {
+                erreur.ajouter("Coordonnées invalides : " + champLatitude + ";" + champLongitude);
+                return;
+            }
+            VilleDto dto = new VilleDto(null, champs.get(0).trim(), nbHabitants, nomDepartement, codeDpt,
+                    latitude, longitude);
+            if (!valider(villeValidator, dto, erreur)) {
+                return;
+            }
+            lot.ajouter(dto.getNom(), NormaliseurNom.normaliser(dto.getNom()), dto.getNbHabitants(),
+                    departement.get().getId(), dto.getLatitude(), dto.getLongitude());
+        }, () -> {
+            versionsCollections.incrementer(VersionsCollections.VILLES);
+            publisher.publishEvent(new VillesRechargeesEvent("import " + fichier.getFileName()));
+        });
+        return rapport;
+    }
+
+    /** Traitement d'une ligne de données. */
+    @FunctionalInterface
+    private interface TraitementLigne {
+        void traiter(List<String> champs, Lot lot, Erreurs erreur);
+    }
+
+    /** Collecte des erreurs d'une ligne, dans la limite de {@link #ERREURS_MAX}. */
+    private static final class Erreurs {
+        private final List<String> details = new ArrayList<>();
+        private long numeroLigne;
+        private long rejets;
+        private boolean ligneRejetee;
+
+        void ajouter(String message) {
+            if (!ligneRejetee) {
+                ligneRejetee = true;
+                rejets++;
+            }
+            if (details.size() < ERREURS_MAX) {
+                details.add("ligne " + numeroLigne + " : " + message);
+            }
+        }
+    }
+
+    /** Lot de lignes en attente d'insertion. */
+    private final class Lot {
+        private final String entete;
+        private final String valeursLigne;
+        private final List<Object> valeurs = new ArrayList<>();
+        private String sqlLotComplet;
+        private int lignes;
+        private int colonnes;
+        private long inserees;
+
+        Lot(String entete, String valeursLigne) {
+            this.entete = entete;
+            this.valeursLigne = valeursLigne;
+        }
+
+        void ajouter(Object... ligne) {
+            colonnes = ligne.length;
+            Collections.addAll(valeurs, ligne);
+            if (++lignes == tailleLot) {
+                vider();
+            }
+        }
+
+        void vider() {
+            if (lignes == 0) {
+                return;
+            }
+            String sql;
+            if (lignes == tailleLot) {
+                if (sqlLotComplet == null) {
+                    sqlLotComplet = sql(lignes);
+                }
+                sql = sqlLotComplet;
+            } else {
+                sql = sql(lignes);
+            }
+            inserees += jdbcTemplate.update(sql, valeurs.toArray());
+            valeurs.clear();
+            lignes = 0;
+        }
+
+        private String sql(int nombre) {
+            return entete + String.join(", ", Collections.nCopies(nombre, valeursLigne));
+        }
+    }
+
+    /**
+     * Lit le fichier et insère ses lignes valides par lots.
+     * <p>
+     * Chaque lot est validé dès son envoi : si la lecture ou une insertion échoue en cours de route,
+     * les lots déjà envoyés restent en base. {@code apresInsertion} (invalidation des caches, version
+     * des collections, rechargement des index) est donc exécuté dès qu'au moins une ligne a été
+     * insérée, y compris quand l'import s'interrompt sur une exception.
+     */
+    private RapportImport importer(Path fichier, String premiereColonne, String entete, String valeursLigne,
+                                   TraitementLigne traitement, Runnable apresInsertion) throws IOException {
+        long debut = System.nanoTime();
+        Lot lot = new Lot(entete, valeursLigne);
+        Erreurs erreurs = new Erreurs();
+        long lignesLues = 0;
+        char separateur = ';';
+
+        try (BufferedReader lecteur = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            String ligne;
+            boolean premiere = true;
+            while ((ligne = lecteur.readLine()) != null) {
+                erreurs.numeroLigne++;
+                if (premiere) {
+                    ligne = ligne.replace("\uFEFF", "");
+                    separateur = ligne.indexOf(';') >= 0 ? ';' : ',';
+                }
+                if (ligne.isBlank()) {
+                    continue;
+                }
+                List<String> champs = decouper(ligne, separateur);
+                if (premiere) {
+                    premiere = false;
+                    if (champs.get(0).trim().equalsIgnoreCase(premiereColonne)) {
+                        continue;
+                    }
+                }
+                lignesLues++;
+                erreurs.ligneRejetee = false;
+                traitement.traiter(champs, lot, erreurs);
+            }
+            lot.vider();
+        } finally {
+            if (lot.inserees > 0) {
+                apresInsertion.run();
+            }
+        }
+
+        long dureeMs = Math.max(1, (System.nanoTime() - debut) / 1_000_000);
+        return new RapportImport(fichier.getFileName().toString(), lignesLues, lot.inserees, erreurs.rejets,
+                dureeMs, lot.inserees * 1000 / dureeMs, List.copyOf(erreurs.details));
+    }
+
+    private static <T> boolean valider(ValidateurRegles<T> validator, T dto, Erreurs erreurs) {
+        if (validator.estValide(dto)) {
+            return true;
+        }
+        Errors resultat = new MapBindingResult(new HashMap<>(), "ligne");
+        validator.validate(dto, resultat);
+        resultat.getAllErrors().forEach(e -> erreurs.ajouter(e.getDefaultMessage()));
+        return !resultat.hasErrors();
+    }
+
+    /**
+     * Découpe une ligne CSV, en tenant compte des champs entre guillemets
+     * (un guillemet doublé représente un guillemet littéral).
+     */
+    static List<String> decouper(String ligne, char separateur) {
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean entreGuillemets = false;
+        for (int i = 0; i < ligne.length(); i++) {
+            char c = ligne.charAt(i);
+            if (entreGuillemets) {
+                if (c == '"' && i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+                    champ.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreGuillemets = false;
+                } else {
+                    champ.append(c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == separateur) {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else {
+                champ.append(c);
+            }
+        }
+        champs.add(champ.toString());
+        return champs;
+    }
+}
@@ -0,0 +1,71 @@
+package fr.digi.hello.generiqueData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Mode ligne de commande de l'import CSV.
+ * <p>
+ * Exécuté après les jeux de données initiaux lorsque l'application est lancée avec
+ * {@code --import.departements=<fichier>} et/ou {@code --import.villes=<fichier>}.
+ * Les départements sont importés en premier pour que les villes puissent s'y rattacher.
+ * Avec {@code --import.arreter}, l'application s'arrête une fois l'import terminé.
+ */
+@Component
+@Order(3)  // Après DepartementDataLoader et VilleDataLoader
+public class ImportDataRunner implements ApplicationRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportDataRunner.class);
+
+    private final ImportCsvService importCsvService;
+    private final ConfigurableApplicationContext contexte;
+
+    /**
+     * Constructeur avec injection du service d'import.
+     *
+     * @param importCsvService service d'import CSV
+     * @param contexte         contexte applicatif, fermé si {@code --import.arreter} est présent
+     */
+    public ImportDataRunner(ImportCsvService importCsvService, ConfigurableApplicationContext contexte) {
+        this.importCsvService = importCsvService;
+        this.contexte = contexte;
+    }
+
+    /**
+     * Lance les imports demandés sur la ligne de commande.
+     *
+     * @param args arguments de la ligne de commande
+     * @throws Exception en cas d'erreur de lecture d'un fichier
+     */
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (args.containsOption("import.departements")) {
+            for (String fichier : args.getOptionValues("import.departements")) {
+                journaliser(importCsvService.importerDepartements(Path.of(fichier)));
+            }
+        }
+        if (args.containsOption("import.villes")) {
+            for (String fichier : args.getOptionValues("import.villes")) {
+                journaliser(importCsvService.importerVilles(Path.of(fichier)));
+            }
+        }
+        if (args.containsOption("import.arreter")) {
+            System.exit(SpringApplication.exit(contexte));
+        }
+    }
+
+    private static void journaliser(RapportImport rapport) {
+        LOG.info("Import {} : {} lignes lues, {} importées, {} rejetées en {} ms ({} lignes/s)",
+                rapport.fichier(), rapport.lignesLues(), rapport.lignesImportees(), rapport.lignesRejetees(),
+                rapport.dureeMs(), rapport.lignesParSeconde());
+        rapport.erreurs().forEach(erreur -> LOG.warn("Import {} : {}", rapport.fichier(), erreur));
+    }
+}
@@ -0,0 +1,23 @@
+package fr.digi.hello.generiqueData;
+
+import java.util.List;
+
+/**
+ * Bilan d'un import CSV.
+ *
+ * @param fichier          fichier importé
+ * @param lignesLues       lignes de données lues (hors en-tête et lignes vides)
+ * @param lignesImportees  lignes insérées en base
+ * @param lignesRejetees   lignes rejetées (format ou validation)
+ * @param dureeMs          durée totale de l'import en millisecondes
+ * @param lignesParSeconde débit d'insertion
+ * @param erreurs          premières erreurs rencontrées, avec leur numéro de ligne
+ */
+public record RapportImport(String fichier,
+                            long lignesLues,
+                            long lignesImportees,
+                            long lignesRejetees,
+                            long dureeMs,
+                            long lignesParSeconde,
+                            List<String> erreurs) {
+}
@@ -4,6 +4,7 @@ import fr.digi.hello.dao.DepartementDao;
 import fr.digi.hello.items.Departement;
 import fr.digi.hello.items.Ville;
 import fr.digi.hello.dao.VilleDao;
+import fr.digi.hello.utils.NormaliseurNom;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -32,7 +33,7 @@ public class VilleDataLoader implements CommandLineRunner {
     }
 
     /**
-     * Recherche un département par son nom (insensible à la casse).
+     * Recherche un département par son nom (insensible à la casse et aux accents).
      * Lance une exception si le département n'est pas trouvé.
      *
      * @param nom nom du département recherché
@@ -40,7 +41,7 @@ public class VilleDataLoader implements CommandLineRunner {
      * @throws RuntimeException si aucun département ne correspond au nom donné
      */
     private Departement getDepartementByName(String nom) {
-        return departementDao.findByNomIgnoreCase(nom)
+        return departementDao.findByNomNormalise(NormaliseurNom.normaliser(nom))
                 .orElseThrow(() -> new RuntimeException("Département '" + nom + "' non trouvé"));
     }
 
@@ -54,11 +55,16 @@ public class VilleDataLoader implements CommandLineRunner {
     @Override
     public void run(String... args) throws Exception {
         if (villeDao.count() == 0) {
-            villeDao.save(new Ville(null, "Nîmes", 150000, getDepartementByName("Gard")));
-            villeDao.save(new Ville(null, "Lyon", 515695, getDepartementByName("Rhône")));
-            villeDao.save(new Ville(null, "Marseille", 861635, getDepartementByName("Bouches-du-Rhône")));
-            villeDao.save(new Ville(null, "Toulouse", 479553, getDepartementByName("La Haute-Garonne")));
-            villeDao.save(new Ville(null, "Nice", 342669, getDepartementByName("Alpes-Maritimes")));
+            villeDao.save(new Ville(null, "Nîmes", 150000, getDepartementByName("Gard"))
+                    .coordonnees(43.8367, 4.3601));
+            villeDao.save(new Ville(null, "Lyon", 515695, getDepartementByName("Rhône"))
+                    .coordonnees(45.7640, 4.8357));
+            villeDao.save(new Ville(null, "Marseille", 861635, getDepartementByName("Bouches-du-Rhône"))
+                    .coordonnees(43.2965, 5.3698));
+            villeDao.save(new Ville(null, "Toulouse", 479553, getDepartementByName("La Haute-Garonne"))
+                    .coordonnees(43.6047, 1.4442));
+            villeDao.save(new Ville(null, "Nice", 342669, getDepartementByName("Alpes-Maritimes"))
+                    .coordonnees(43.7102, 7.2620));
         }
     }
 }
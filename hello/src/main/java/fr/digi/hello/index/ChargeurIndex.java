@@ -0,0 +1,77 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VillesRechargeesEvent;
+import fr.digi.hello.services.VilleService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Construction des index de villes : une seule lecture de la table alimente tous les index.
+ * <p>
+ * Les index sont construits au démarrage, puis reconstruits après chaque {@link VillesRechargeesEvent}.
+ * Leurs verrous sont tous pris avant la lecture : une modification arrivant pendant le chargement
+ * attend la fin de la reconstruction puis s'applique sur le nouvel état.
+ */
+@Component
+public class ChargeurIndex {
+
+    private final VilleService villeService;
+    private final List<IndexVilles> index;
+
+    /**
+     * Constructeur avec injection du service des villes et des index à alimenter.
+     *
+     * @param villeService service des villes
+     * @param index        index de villes de l'application
+     */
+    public ChargeurIndex(VilleService villeService, List<IndexVilles> index) {
+        this.villeService = villeService;
+        this.index = List.copyOf(index);
+    }
+
+    /**
+     * Construit les index au démarrage de l'application.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        recharger();
+    }
+
+    /**
+     * Reconstruit les index depuis la base après une modification en masse, une fois la transaction validée
+     * et en tâche de fond pour ne pas retenir le thread de la requête à l'origine de l'événement.
+     *
+     * @param evenement événement de rechargement
+     */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void surRechargement(VillesRechargeesEvent evenement) {
+        recharger();
+    }
+
+    /**
+     * Reconstruit tous les index à partir d'une seule lecture des villes.
+     */
+    public void recharger() {
+        List<IndexVilles> verrouilles = new ArrayList<>(index.size());
+        try {
+            for (IndexVilles unIndex : index) {
+                unIndex.verrou.lock();
+                verrouilles.add(unIndex);
+            }
+            List<VilleDto> villes = villeService.extractVilles();
+            for (IndexVilles unIndex : index) {
+                unIndex.reconstruire(villes);
+            }
+        } finally {
+            verrouilles.reversed().forEach(unIndex -> unIndex.verrou.unlock());
+        }
+    }
+}
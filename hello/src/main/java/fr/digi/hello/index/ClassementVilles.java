@@ -0,0 +1,133 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import fr.digi.hello.utils.NormaliseurNom;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Classement des villes par population décroissante, par département et au niveau national.
+ * <p>
+ * Chaque classement est un ensemble trié concurrent : les {@code n} plus grandes villes sont
+ * les {@code n} premiers éléments, lus sans verrou en O(n). Le cycle de vie (construction,
+ * modifications incrémentales, état non construit) est celui de tout {@link IndexVilles}.
+ */
+@Component
+public class ClassementVilles extends IndexVilles {
+
+    /** Population décroissante, puis identifiant pour départager les ex æquo. */
+    private static final Comparator<VilleDto> ORDRE = Comparator
+            .comparingInt(ClassementVilles::population).reversed()
+            .thenComparing(VilleDto::getId);
+
+    /** État complet du classement, remplacé d'un bloc lors d'un rechargement. */
+    private record Etat(ConcurrentSkipListSet<VilleDto> national,
+                        Map<String, ConcurrentSkipListSet<VilleDto>> parDepartement,
+                        Map<Integer, VilleDto> parId) {
+
+        static Etat vide() {
+            return new Etat(new ConcurrentSkipListSet<>(ORDRE), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    private volatile Etat etat;
+
+    /**
+     * Les {@code n} villes les plus peuplées d'un département.
+     *
+     * @param nomDepartement nom du département (insensible à la casse et aux accents)
+     * @param n              nombre maximum de villes
+     * @return les villes par population décroissante, ou vide si le classement n'est pas encore construit
+     */
+    public Optional<List<VilleDto>> plusGrandes(String nomDepartement, int n) {
+        Etat courant = etat;
+        if (courant == null) {
+            return Optional.empty();
+        }
+        ConcurrentSkipListSet<VilleDto> classement = courant.parDepartement()
+                .get(nomDepartement == null ? "" : NormaliseurNom.normaliser(nomDepartement));
+        return Optional.of(premieres(classement, n));
+    }
+
+    /**
+     * Les {@code n} villes les plus peuplées de France.
+     *
+     * @param n nombre maximum de villes
+     * @return les villes par population décroissante, ou vide si le classement n'est pas encore construit
+     */
+    public Optional<List<VilleDto>> plusGrandes(int n) {
+        Etat courant = etat;
+        return courant == null ? Optional.empty() : Optional.of(premieres(courant.national(), n));
+    }
+
+    @Override
+    protected void appliquer(VilleModifieeEvent evenement) {
+        Etat courant = etat;
+        if (courant == null) {
+            return;
+        }
+        VilleDto nouvelle = evenement.ville() == null ? null : copie(evenement.ville());
+        VilleDto ancienne = nouvelle == null
+                ? courant.parId().remove(evenement.id())
+                : courant.parId().put(evenement.id(), nouvelle);
+
+        if (ancienne != null) {
+            courant.national().remove(ancienne);
+            ConcurrentSkipListSet<VilleDto> classement = courant.parDepartement().get(cle(ancienne));
+            if (classement != null) {
+                classement.remove(ancienne);
+            }
+        }
+        if (nouvelle != null) {
+            ajouter(courant, nouvelle);
+        }
+    }
+
+    @Override
+    protected void reconstruire(List<VilleDto> villes) {
+        Etat nouveau = Etat.vide();
+        for (VilleDto ville : villes) {
+            nouveau.parId().put(ville.getId(), ville);
+            ajouter(nouveau, ville);
+        }
+        etat = nouveau;
+    }
+
+    private static void ajouter(Etat etat, VilleDto ville) {
+        etat.national().add(ville);
+        etat.parDepartement()
+                .computeIfAbsent(cle(ville), cle -> new ConcurrentSkipListSet<>(ORDRE))
+                .add(ville);
+    }
+
+    private static List<VilleDto> premieres(ConcurrentSkipListSet<VilleDto> classement, int n) {
+        List<VilleDto> villes = new ArrayList<>(Math.max(0, Math.min(n, 64)));
+        if (classement == null) {
+            return villes;
+        }
+        for (VilleDto ville : classement) {
+            if (villes.size() >= n) {
+                break;
+            }
+            villes.add(copie(ville));
+        }
+        return villes;
+    }
+
+    private static String cle(VilleDto ville) {
+        String cle = NormaliseurNom.normaliser(ville.getNomDepartement());
+        return cle == null ? "" : cle;
+    }
+
+    private static int population(VilleDto ville) {
+        return ville.getNbHabitants() == null ? 0 : ville.getNbHabitants();
+    }
+}
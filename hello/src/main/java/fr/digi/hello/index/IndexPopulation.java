@@ -0,0 +1,213 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import fr.digi.hello.utils.NormaliseurNom;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index des villes par tranche de population, par département.
+ * <p>
+ * Pour chaque département, les populations sont rangées par ordre croissant dans un tableau
+ * {@code int[]}, avec en parallèle les identifiants et les villes. Une requête « entre min et max »
+ * se résout par deux recherches dichotomiques puis la lecture d'une tranche contiguë, parcourue
+ * à rebours pour obtenir l'ordre décroissant. Les tableaux d'un département ne sont jamais
+ * modifiés en place : une écriture publie une nouvelle {@link Tranche}, ce qui laisse les lectures
+ * sans verrou. Les villes sans population ne figurent pas dans l'index ({@code BETWEEN} ne les
+ * retient pas non plus).
+ */
+@Component
+public class IndexPopulation extends IndexVilles {
+
+    /**
+     * Villes d'un département, triées par population croissante puis identifiant décroissant.
+     *
+     * @param populations populations, triées
+     * @param ids         identifiants, parallèles à {@code populations}
+     * @param villes      villes, parallèles à {@code populations}
+     */
+    private record Tranche(int[] populations, int[] ids, VilleDto[] villes) {
+
+        static final Tranche VIDE = new Tranche(new int[0], new int[0], new VilleDto[0]);
+
+        int taille() {
+            return populations.length;
+        }
+    }
+
+    /** Ordre de rangement dans une tranche : population croissante, puis identifiant décroissant. */
+    private static final Comparator<VilleDto> ORDRE = Comparator
+            .comparingInt((VilleDto ville) -> ville.getNbHabitants())
+            .thenComparing(VilleDto::getId, Comparator.reverseOrder());
+
+    /** Tranches par nom de département normalisé ; {@code null} tant que l'index n'est pas construit. */
+    private volatile Map<String, Tranche> tranches;
+
+    /** Dernière version indexée de chaque ville, pour retrouver son ancienne position. */
+    private final Map<Integer, VilleDto> parId = new HashMap<>();
+
+    /**
+     * Villes d'un département dont la population est comprise entre deux bornes incluses.
+     *
+     * @param nomDepartement nom du département (insensible à la casse et aux accents)
+     * @param min            population minimale
+     * @param max            population maximale
+     * @return les villes par population décroissante, ou vide si l'index n'est pas encore construit
+     */
+    public Optional<List<VilleDto>> entre(String nomDepartement, int min, int max) {
+        Map<String, Tranche> courantes = tranches;
+        if (courantes == null) {
+            return Optional.empty();
+        }
+        Tranche tranche = courantes.get(nomDepartement == null ? "" : NormaliseurNom.normaliser(nomDepartement));
+        if (tranche == null || min > max) {
+            return Optional.of(List.of());
+        }
+
+        int debut = premierSuperieurOuEgal(tranche.populations(), min);
+        int fin = max == Integer.MAX_VALUE ? tranche.taille() : premierSuperieurOuEgal(tranche.populations(), max + 1);
+        List<VilleDto> villes = new ArrayList<>(fin - debut);
+        for (int i = fin - 1; i >= debut; i--) {
+            villes.add(copie(tranche.villes()[i]));
+        }
+        return Optional.of(villes);
+    }
+
+    @Override
+    protected void appliquer(VilleModifieeEvent evenement) {
+        Map<String, Tranche> courantes = tranches;
+        if (courantes == null) {
+            return;
+        }
+        VilleDto nouvelle = evenement.ville() == null ? null : copie(evenement.ville());
+        VilleDto ancienne = parId.remove(evenement.id());
+
+        if (ancienne != null) {
+            String cle = cle(ancienne);
+            courantes.computeIfPresent(cle, (c, tranche) -> retirer(tranche, ancienne));
+        }
+        if (nouvelle != null && nouvelle.getNbHabitants() != null) {
+            parId.put(evenement.id(), nouvelle);
+            courantes.compute(cle(nouvelle), (c, tranche) -> inserer(tranche == null ? Tranche.VIDE : tranche, nouvelle));
+        }
+    }
+
+    @Override
+    protected void reconstruire(List<VilleDto> villes) {
+        Map<String, List<VilleDto>> parDepartement = new HashMap<>();
+        parId.clear();
+        for (VilleDto ville : villes) {
+            if (ville.getNbHabitants() != null) {
+                parId.put(ville.getId(), ville);
+                parDepartement.computeIfAbsent(cle(ville), cle -> new ArrayList<>()).add(ville);
+            }
+        }
+
+        Map<String, Tranche> nouvelles = new ConcurrentHashMap<>();
+        parDepartement.forEach((cle, villesDepartement) -> {
+            villesDepartement.sort(ORDRE);
+            int taille = villesDepartement.size();
+            Tranche tranche = new Tranche(new int[taille], new int[taille], new VilleDto[taille]);
+            for (int i = 0; i < villesDepartement.size(); i++) {
+                tranche.populations()[i] = villesDepartement.get(i).getNbHabitants();
+                tranche.ids()[i] = villesDepartement.get(i).getId();
+                tranche.villes()[i] = villesDepartement.get(i);
+            }
+            nouvelles.put(cle, tranche);
+        });
+        tranches = nouvelles;
+    }
+
+    /**
+     * @return indice du premier élément {@code >= valeur}, ou la longueur du tableau
+     */
+    private static int premierSuperieurOuEgal(int[] populations, int valeur) {
+        int bas = 0;
+        int haut = populations.length;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (populations[milieu] < valeur) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    /**
+     * @return position de la ville dans la tranche, ou le point d'insertion encodé {@code -(i + 1)}
+     */
+    private static int position(Tranche tranche, int population, int id) {
+        int bas = 0;
+        int haut = tranche.taille() - 1;
+        while (bas <= haut) {
+            int milieu = (bas + haut) >>> 1;
+            int comparaison = Integer.compare(tranche.populations()[milieu], population);
+            if (comparaison == 0) {
+                comparaison = Integer.compare(id, tranche.ids()[milieu]);
+            }
+            if (comparaison < 0) {
+                bas = milieu + 1;
+            } else if (comparaison > 0) {
+                haut = milieu - 1;
+            } else {
+                return milieu;
+            }
+        }
+        return -(bas + 1);
+    }
+
+    private static Tranche inserer(Tranche tranche, VilleDto ville) {
+        int i = -(position(tranche, ville.getNbHabitants(), ville.getId()) + 1);
+        int taille = tranche.taille();
+        int[] populations = new int[taille + 1];
+        int[] ids = new int[taille + 1];
+        VilleDto[] villes = new VilleDto[taille + 1];
+        System.arraycopy(tranche.populations(), 0, populations, 0, i);
+        System.arraycopy(tranche.ids(), 0, ids, 0, i);
+        System.arraycopy(tranche.villes(), 0, villes, 0, i);
+        populations[i] = ville.getNbHabitants();
+        ids[i] = ville.getId();
+        villes[i] = ville;
+        System.arraycopy(tranche.populations(), i, populations, i + 1, taille - i);
+        System.arraycopy(tranche.ids(), i, ids, i + 1, taille - i);
+        System.arraycopy(tranche.villes(), i, villes, i + 1, taille - i);
+        return new Tranche(populations, ids, villes);
+    }
+
+    /** Retire une ville ; renvoie {@code null} (suppression de l'entrée) si la tranche devient vide. */
+    private static Tranche retirer(Tranche tranche, VilleDto ville) {
+        int i = position(tranche, ville.getNbHabitants(), ville.getId());
+        if (i < 0) {
+            return tranche;
+        }
+        if (tranche.taille() == 1) {
+            return null;
+        }
+        int[] populations = new int[tranche.taille() - 1];
+        int[] ids = new int[tranche.taille() - 1];
+        VilleDto[] villes = new VilleDto[tranche.taille() - 1];
+        System.arraycopy(tranche.populations(), 0, populations, 0, i);
+        System.arraycopy(tranche.ids(), 0, ids, 0, i);
+        System.arraycopy(tranche.villes(), 0, villes, 0, i);
+        int reste = tranche.taille() - i - 1;
+        System.arraycopy(tranche.populations(), i + 1, populations, i, reste);
+        System.arraycopy(tranche.ids(), i + 1, ids, i, reste);
+        System.arraycopy(tranche.villes(), i + 1, villes, i, reste);
+        return new Tranche(populations, ids, villes);
+    }
+
+    private static String cle(VilleDto ville) {
+        String cle = NormaliseurNom.normaliser(ville.getNomDepartement());
+        return cle == null ? "" : cle;
+    }
+}
@@ -0,0 +1,348 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import fr.digi.hello.utils.Geodesie;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index spatial des villes : grille régulière en latitude et longitude.
+ * <p>
+ * Chaque ville ayant des coordonnées est rangée dans la cellule de {@code index.spatial.cellule-degres}
+ * degrés qui la contient. Les {@code k} plus proches voisins s'obtiennent en parcourant des
+ * anneaux de cellules de plus en plus larges autour du point, jusqu'à ce que la plus grande
+ * distance retenue soit inférieure à la distance minimale de toute cellule non parcourue ; une
+ * recherche par rayon ne lit que les cellules de la boîte englobant la calotte. Quand la zone à
+ * parcourir compte plus de cellules que l'index ne contient de villes, les villes sont parcourues
+ * directement.
+ * <p>
+ * Comme {@link IndexPopulation}, les cellules ne sont jamais modifiées en place : une écriture
+ * publie une nouvelle cellule, ce qui laisse les lectures sans verrou.
+ */
+@Component
+public class IndexSpatial extends IndexVilles {
+
+    /**
+     * Villes d'une cellule, avec leurs coordonnées en tableaux parallèles.
+     *
+     * @param latitudes  latitudes, en degrés
+     * @param longitudes longitudes, en degrés
+     * @param villes     villes
+     */
+    private record Cellule(double[] latitudes, double[] longitudes, VilleDto[] villes) {
+
+        static final Cellule VIDE = new Cellule(new double[0], new double[0], new VilleDto[0]);
+
+        int taille() {
+            return villes.length;
+        }
+    }
+
+    /** Ville candidate et sa distance au point recherché. */
+    private record Candidat(double distance, VilleDto ville) {
+    }
+
+    /** Distance croissante, puis identifiant pour départager les ex æquo. */
+    private static final Comparator<Candidat> ORDRE = Comparator
+            .comparingDouble(Candidat::distance)
+            .thenComparing(candidat -> candidat.ville().getId());
+
+    private final double tailleCellule;
+    private final int lignes;
+    private final int colonnes;
+
+    /** Cellules non vides par clé {@code ligne * colonnes + colonne} ; {@code null} tant que l'index n'est pas construit. */
+    private volatile Map<Long, Cellule> cellules;
+
+    /** Nombre de villes indexées. */
+    private volatile int taille;
+
+    /** Dernière version indexée de chaque ville, pour retrouver son ancienne cellule. */
+    private final Map<Integer, VilleDto> parId = new HashMap<>();
+
+    /**
+     * Constructeur avec injection de la taille des cellules.
+     *
+     * @param tailleCellule côté d'une cellule de la grille, en degrés
+     */
+    public IndexSpatial(@Value("${index.spatial.cellule-degres:0.1}") double tailleCellule) {
+        if (!(tailleCellule > 0 && tailleCellule <= 90)) {
+            throw new IllegalArgumentException("index.spatial.cellule-degres doit être compris entre 0 et 90");
+        }
+        this.tailleCellule = tailleCellule;
+        this.lignes = (int) Math.ceil(180 / tailleCellule);
+        this.colonnes = (int) Math.ceil(360 / tailleCellule);
+    }
+
+    /**
+     * Les {@code k} villes les plus proches d'un point.
+     *
+     * @param latitude  latitude du point, en degrés
+     * @param longitude longitude du point, en degrés
+     * @param k         nombre maximum de villes
+     * @return les villes par distance croissante, ou vide si l'index n'est pas encore construit
+     */
+    public Optional<List<VilleDto>> plusProches(double latitude, double longitude, int k) {
+        Map<Long, Cellule> courantes = cellules;
+        if (courantes == null) {
+            return Optional.empty();
+        }
+        if (k <= 0) {
+            return Optional.of(List.of());
+        }
+        return Optional.of(plusProches(courantes, latitude, normaliserLongitude(longitude), k));
+    }
+
+    private List<VilleDto> plusProches(Map<Long, Cellule> courantes, double latitude, double longitude, int k) {
+        PriorityQueue<Candidat> meilleurs = new PriorityQueue<>(k + 1, ORDRE.reversed());
+        int ligne = ligne(latitude);
+        int colonne = colonne(longitude);
+        long cellulesLues = 0;
+        for (int r = 0; ; r++) {
+            if (k >= taille || 2 * r + 1 >= colonnes || cellulesLues > taille) {
+                // Zone trop étendue pour la grille : parcours direct de toutes les villes.
+                meilleurs.clear();
+                courantes.values().forEach(cellule -> retenir(cellule, latitude, longitude, k, meilleurs));
+                break;
+            }
+            cellulesLues += parcourirAnneau(courantes, ligne, colonne, r, latitude, longitude, k, meilleurs);
+            if (meilleurs.size() == k && meilleurs.peek().distance() <= distanceHorsZone(latitude, longitude, ligne, colonne, r)) {
+                break;
+            }
+        }
+        return trier(new ArrayList<>(meilleurs), k);
+    }
+
+    /**
+     * Villes situées à moins de {@code rayonKm} d'un point.
+     *
+     * @param latitude  latitude du point, en degrés
+     * @param longitude longitude du point, en degrés
+     * @param rayonKm   rayon, en kilomètres
+     * @param limite    nombre maximum de villes
+     * @return les villes par distance croissante, ou vide si l'index n'est pas encore construit
+     */
+    public Optional<List<VilleDto>> dansRayon(double latitude, double longitude, double rayonKm, int limite) {
+        Map<Long, Cellule> courantes = cellules;
+        if (courantes == null) {
+            return Optional.empty();
+        }
+        return Optional.of(dansRayon(courantes, latitude, normaliserLongitude(longitude), rayonKm, limite));
+    }
+
+    private List<VilleDto> dansRayon(Map<Long, Cellule> courantes, double latitude, double longitude,
+                                     double rayonKm, int limite) {
+        double ecartLatitude = Math.toDegrees(rayonKm / Geodesie.RAYON_TERRE_KM);
+        int ligneMin = ligne(Math.max(-90, latitude - ecartLatitude));
+        int ligneMax = ligne(Math.min(90, latitude + ecartLatitude));
+        double ecartLongitude = Geodesie.ecartLongitude(latitude, rayonKm);
+        int demiLargeur = ecartLongitude >= 180 ? colonnes : (int) Math.ceil(ecartLongitude / tailleCellule) + 1;
+        long cellulesBoite = (long) (ligneMax - ligneMin + 1) * Math.min(colonnes, 2L * demiLargeur + 1);
+
+        List<Candidat> retenus = new ArrayList<>();
+        if (2L * demiLargeur + 1 >= colonnes || cellulesBoite > taille) {
+            courantes.values().forEach(cellule -> retenirDansRayon(cellule, latitude, longitude, rayonKm, retenus));
+        } else {
+            int colonne = colonne(longitude);
+            for (int l = ligneMin; l <= ligneMax; l++) {
+                for (int c = colonne - demiLargeur; c <= colonne + demiLargeur; c++) {
+                    Cellule cellule = courantes.get(cle(l, Math.floorMod(c, colonnes)));
+                    if (cellule != null) {
+                        retenirDansRayon(cellule, latitude, longitude, rayonKm, retenus);
+                    }
+                }
+            }
+        }
+        return trier(retenus, limite);
+    }
+
+    @Override
+    protected void appliquer(VilleModifieeEvent evenement) {
+        Map<Long, Cellule> courantes = cellules;
+        if (courantes == null) {
+            return;
+        }
+        VilleDto nouvelle = evenement.ville() == null ? null : copie(evenement.ville());
+        VilleDto ancienne = parId.remove(evenement.id());
+
+        if (ancienne != null) {
+            courantes.computeIfPresent(cle(ancienne), (cle, cellule) -> retirer(cellule, ancienne.getId()));
+        }
+        if (nouvelle != null && aDesCoordonnees(nouvelle)) {
+            parId.put(evenement.id(), nouvelle);
+            courantes.compute(cle(nouvelle), (cle, cellule) -> ajouter(cellule == null ? Cellule.VIDE : cellule, nouvelle));
+        }
+        taille = parId.size();
+    }
+
+    @Override
+    protected void reconstruire(List<VilleDto> villes) {
+        Map<Long, List<VilleDto>> parCellule = new HashMap<>();
+        parId.clear();
+        for (VilleDto ville : villes) {
+            if (aDesCoordonnees(ville)) {
+                parId.put(ville.getId(), ville);
+                parCellule.computeIfAbsent(cle(ville), cle -> new ArrayList<>()).add(ville);
+            }
+        }
+
+        Map<Long, Cellule> nouvelles = new ConcurrentHashMap<>();
+        parCellule.forEach((cle, villesCellule) -> {
+            int nombre = villesCellule.size();
+            Cellule cellule = new Cellule(new double[nombre], new double[nombre], new VilleDto[nombre]);
+            for (int i = 0; i < villesCellule.size(); i++) {
+                cellule.latitudes()[i] = villesCellule.get(i).getLatitude();
+                cellule.longitudes()[i] = villesCellule.get(i).getLongitude();
+                cellule.villes()[i] = villesCellule.get(i);
+            }
+            nouvelles.put(cle, cellule);
+        });
+        taille = parId.size();
+        cellules = nouvelles;
+    }
+
+    /**
+     * Parcourt les cellules à distance {@code r} (en cellules) de la cellule centrale.
+     *
+     * @return nombre de cellules lues
+     */
+    private int parcourirAnneau(Map<Long, Cellule> courantes, int ligne, int colonne, int r,
+                                double latitude, double longitude, int k, PriorityQueue<Candidat> meilleurs) {
+        int lues = 0;
+        for (int l = ligne - r; l <= ligne + r; l++) {
+            if (l < 0 || l >= lignes) {
+                continue;
+            }
+            boolean bord = l == ligne - r || l == ligne + r;
+            for (int c = colonne - r; c <= colonne + r; c += bord || r == 0 ? 1 : 2 * r) {
+                lues++;
+                Cellule cellule = courantes.get(cle(l, Math.floorMod(c, colonnes)));
+                if (cellule != null) {
+                    retenir(cellule, latitude, longitude, k, meilleurs);
+                }
+            }
+        }
+        return lues;
+    }
+
+    /**
+     * Distance minimale entre le point et toute ville hors des anneaux {@code 0..r} déjà parcourus.
+     */
+    private double distanceHorsZone(double latitude, double longitude, int ligne, int colonne, int r) {
+        double distance = Double.POSITIVE_INFINITY;
+        if (ligne - r > 0) {
+            double bordSud = (ligne - r) * tailleCellule - 90;
+            distance = Math.min(distance, Geodesie.RAYON_TERRE_KM * Math.toRadians(latitude - bordSud));
+        }
+        if (ligne + r + 1 < lignes) {
+            double bordNord = (ligne + r + 1) * tailleCellule - 90;
+            distance = Math.min(distance, Geodesie.RAYON_TERRE_KM * Math.toRadians(bordNord - latitude));
+        }
+        double ecartOuest = longitude - ((colonne - r) * tailleCellule - 180);
+        double ecartEst = (colonne + r + 1) * tailleCellule - 180 - longitude;
+        return Math.min(distance, Geodesie.distanceMeridienKm(latitude, Math.min(ecartOuest, ecartEst)));
+    }
+
+    private static void retenir(Cellule cellule, double latitude, double longitude, int k, PriorityQueue<Candidat> meilleurs) {
+        for (int i = 0; i < cellule.taille(); i++) {
+            Candidat candidat = new Candidat(
+                    Geodesie.distanceKm(latitude, longitude, cellule.latitudes()[i], cellule.longitudes()[i]),
+                    cellule.villes()[i]);
+            if (meilleurs.size() < k) {
+                meilleurs.add(candidat);
+            } else if (ORDRE.compare(candidat, meilleurs.peek()) < 0) {
+                meilleurs.poll();
+                meilleurs.add(candidat);
+            }
+        }
+    }
+
+    private static void retenirDansRayon(Cellule cellule, double latitude, double longitude, double rayonKm,
+                                         List<Candidat> retenus) {
+        for (int i = 0; i < cellule.taille(); i++) {
+            double distance = Geodesie.distanceKm(latitude, longitude, cellule.latitudes()[i], cellule.longitudes()[i]);
+            if (distance <= rayonKm) {
+                retenus.add(new Candidat(distance, cellule.villes()[i]));
+            }
+        }
+    }
+
+    private static List<VilleDto> trier(List<Candidat> candidats, int limite) {
+        candidats.sort(ORDRE);
+        List<VilleDto> villes = new ArrayList<>(Math.min(candidats.size(), Math.max(0, limite)));
+        for (int i = 0; i < candidats.size() && i < limite; i++) {
+            villes.add(copie(candidats.get(i).ville()));
+        }
+        return villes;
+    }
+
+    private static Cellule ajouter(Cellule cellule, VilleDto ville) {
+        int taille = cellule.taille();
+        Cellule nouvelle = new Cellule(Arrays.copyOf(cellule.latitudes(), taille + 1),
+                Arrays.copyOf(cellule.longitudes(), taille + 1), Arrays.copyOf(cellule.villes(), taille + 1));
+        nouvelle.latitudes()[taille] = ville.getLatitude();
+        nouvelle.longitudes()[taille] = ville.getLongitude();
+        nouvelle.villes()[taille] = ville;
+        return nouvelle;
+    }
+
+    /** Retire une ville ; renvoie {@code null} (suppression de l'entrée) si la cellule devient vide. */
+    private static Cellule retirer(Cellule cellule, int id) {
+        int i = 0;
+        while (i < cellule.taille() && cellule.villes()[i].getId() != id) {
+            i++;
+        }
+        if (i == cellule.taille()) {
+            return cellule;
+        }
+        if (cellule.taille() == 1) {
+            return null;
+        }
+        int reste = cellule.taille() - i - 1;
+        Cellule nouvelle = new Cellule(new double[cellule.taille() - 1], new double[cellule.taille() - 1],
+                new VilleDto[cellule.taille() - 1]);
+        System.arraycopy(cellule.latitudes(), 0, nouvelle.latitudes(), 0, i);
+        System.arraycopy(cellule.longitudes(), 0, nouvelle.longitudes(), 0, i);
+        System.arraycopy(cellule.villes(), 0, nouvelle.villes(), 0, i);
+        System.arraycopy(cellule.latitudes(), i + 1, nouvelle.latitudes(), i, reste);
+        System.arraycopy(cellule.longitudes(), i + 1, nouvelle.longitudes(), i, reste);
+        System.arraycopy(cellule.villes(), i + 1, nouvelle.villes(), i, reste);
+        return nouvelle;
+    }
+
+    /** Ramène une longitude dans {@code [-180, 180[}, l'intervalle couvert par les colonnes de la grille. */
+    private static double normaliserLongitude(double longitude) {
+        return longitude >= -180 && longitude < 180 ? longitude : ((longitude + 180) % 360 + 360) % 360 - 180;
+    }
+
+    private int ligne(double latitude) {
+        return Math.min(lignes - 1, Math.max(0, (int) Math.floor((latitude + 90) / tailleCellule)));
+    }
+
+    private int colonne(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / tailleCellule), colonnes);
+    }
+
+    private long cle(int ligne, int colonne) {
+        return (long) ligne * colonnes + colonne;
+    }
+
+    private long cle(VilleDto ville) {
+        return cle(ligne(ville.getLatitude()), colonne(ville.getLongitude()));
+    }
+
+    private static boolean aDesCoordonnees(VilleDto ville) {
+        return ville.getLatitude() != null && ville.getLongitude() != null;
+    }
+}
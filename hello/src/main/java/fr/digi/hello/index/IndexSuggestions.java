@@ -0,0 +1,315 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import fr.digi.hello.utils.NormaliseurNom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index de suggestions de villes par trigrammes, tolérant aux fautes de frappe.
+ * <p>
+ * Chaque nom, normalisé par {@link NormaliseurNom} (sans accents ni casse, ponctuation ramenée à un
+ * espace), est précédé de deux marqueurs de début et suivi d'un marqueur de fin, puis découpé en
+ * trigrammes : {@code "lyon"} donne {@code $$l, $ly, lyo, yon, on$}. Chaque trigramme pointe vers
+ * la liste triée des emplacements des villes qui le contiennent. La saisie est découpée de la même
+ * façon, sans marqueur de fin : un début de nom retrouve donc tous ses trigrammes ({@code "mars"}
+ * → Marseille), et une faute n'en fait perdre que quelques-uns ({@code "toulose"} → Toulouse).
+ * <p>
+ * Une ville est retenue si elle partage au moins {@code index.suggestions.similarite-min} des
+ * trigrammes de la saisie. Les suggestions sont classées par nombre de trigrammes communs, puis
+ * par population décroissante. Les villes occupent des emplacements numérotés de façon contiguë,
+ * ce qui permet de compter les trigrammes communs dans un simple tableau. Seules les listes les plus
+ * courtes produisent des candidats ; les autres (trigrammes fréquents, comme {@code $$s}) ne font que
+ * compléter le score des candidats déjà vus : une ville absente de toutes les listes courtes ne peut
+ * pas atteindre le seuil. Les emplacements libérés par une suppression ne sont réutilisés qu'à la
+ * reconstruction suivante.
+ * <p>
+ * Comme {@link IndexPopulation}, les listes ne sont jamais modifiées en place : une écriture ne
+ * republie que les listes des trigrammes ajoutés ou retirés, ce qui laisse les lectures sans verrou.
+ */
+@Component
+public class IndexSuggestions extends IndexVilles {
+
+    /** Longueur maximale prise en compte d'une saisie, une fois normalisée. */
+    static final int LONGUEUR_MAX = 64;
+
+    /** Marqueur de début et de fin de nom ; jamais présent dans un nom nettoyé. */
+    private static final String MARQUEUR = "$";
+    private static final int[] AUCUNE = new int[0];
+
+    /**
+     * Ville indexée, avec les trigrammes distincts de son nom.
+     *
+     * @param ville      ville
+     * @param trigrammes trigrammes de son nom
+     */
+    private record Entree(VilleDto ville, Set<String> trigrammes) {
+    }
+
+    /** État complet de l'index, remplacé d'un bloc lors d'un rechargement. */
+    private static final class Etat {
+
+        /** Emplacements des villes contenant chaque trigramme, triés. */
+        final Map<String, int[]> listes = new ConcurrentHashMap<>();
+
+        /** Emplacement de chaque ville, lu et écrit sous le verrou. */
+        final Map<Integer, Integer> emplacements = new HashMap<>();
+
+        /**
+         * Villes par emplacement ({@code null} pour un emplacement libéré). Un agrandissement publie
+         * un nouveau tableau avant toute liste qui y renvoie.
+         */
+        volatile Entree[] entrees;
+
+        /** Premier emplacement jamais attribué. */
+        int suivant;
+
+        Etat(int capacite) {
+            entrees = new Entree[Math.max(16, capacite)];
+        }
+
+        int attribuer(Entree entree) {
+            if (suivant == entrees.length) {
+                entrees = Arrays.copyOf(entrees, entrees.length * 2);
+            }
+            entrees[suivant] = entree;
+            return suivant++;
+        }
+    }
+
+    /** Ville candidate et nombre de trigrammes qu'elle partage avec la saisie. */
+    private record Candidat(VilleDto ville, int communs) {
+    }
+
+    /** Trigrammes communs décroissants, population décroissante, puis identifiant. */
+    private static final Comparator<Candidat> ORDRE = Comparator
+            .comparingInt(Candidat::communs).reversed()
+            .thenComparing(Comparator.comparingInt((Candidat candidat) -> population(candidat.ville())).reversed())
+            .thenComparing(candidat -> candidat.ville().getId());
+
+    private final double similariteMin;
+    private volatile Etat etat;
+
+    /**
+     * Constructeur avec injection du seuil de similarité.
+     *
+     * @param similariteMin part minimale des trigrammes de la saisie qu'une ville doit contenir
+     */
+    public IndexSuggestions(@Value("${index.suggestions.similarite-min:0.5}") double similariteMin) {
+        if (!(similariteMin > 0 && similariteMin <= 1)) {
+            throw new IllegalArgumentException("index.suggestions.similarite-min doit être compris entre 0 (exclu) et 1");
+        }
+        this.similariteMin = similariteMin;
+    }
+
+    /**
+     * Suggestions de villes pour une saisie partielle ou approximative.
+     *
+     * @param saisie texte saisi (insensible à la casse, aux accents et à la ponctuation)
+     * @param n      nombre maximum de suggestions
+     * @return les villes les plus ressemblantes, ou vide si l'index n'est pas encore construit
+     */
+    public Optional<List<VilleDto>> suggerer(String saisie, int n) {
+        Etat courant = etat;
+        if (courant == null) {
+            return Optional.empty();
+        }
+        String nettoyee = nettoyer(saisie);
+        if (n <= 0 || nettoyee.isEmpty()) {
+            return Optional.of(List.of());
+        }
+
+        Set<String> trigrammes = trigrammes(nettoyee, false);
+        int[][] listes = new int[trigrammes.size()][];
+        int i = 0;
+        for (String trigramme : trigrammes) {
+            listes[i++] = courant.listes.getOrDefault(trigramme, AUCUNE);
+        }
+        // Lu après les listes : tout emplacement qu'elles contiennent y figure.
+        Entree[] entrees = courant.entrees;
+        Arrays.sort(listes, Comparator.comparingInt(liste -> liste.length));
+        int seuil = Math.max(1, (int) Math.ceil(similariteMin * listes.length));
+        int generatrices = listes.length - seuil + 1;
+
+        // Au plus LONGUEUR_MAX + 2 trigrammes : un octet suffit à les compter.
+        byte[] communs = new byte[entrees.length];
+        int[] candidats = new int[16];
+        int nbCandidats = 0;
+        for (int j = 0; j < listes.length; j++) {
+            for (int emplacement : listes[j]) {
+                if (j < generatrices && communs[emplacement] == 0) {
+                    if (nbCandidats == candidats.length) {
+                        candidats = Arrays.copyOf(candidats, nbCandidats * 2);
+                    }
+                    candidats[nbCandidats++] = emplacement;
+                    communs[emplacement] = 1;
+                } else if (communs[emplacement] != 0) {
+                    communs[emplacement]++;
+                }
+            }
+        }
+
+        PriorityQueue<Candidat> meilleurs = new PriorityQueue<>(n + 1, ORDRE.reversed());
+        for (int c = 0; c < nbCandidats; c++) {
+            int emplacement = candidats[c];
+            Entree entree = entrees[emplacement];
+            if (communs[emplacement] < seuil || entree == null
+                    || meilleurs.size() == n && communs[emplacement] < meilleurs.peek().communs()) {
+                continue;
+            }
+            meilleurs.add(new Candidat(entree.ville(), communs[emplacement]));
+            if (meilleurs.size() > n) {
+                meilleurs.poll();
+            }
+        }
+
+        List<Candidat> tries = new ArrayList<>(meilleurs);
+        tries.sort(ORDRE);
+        return Optional.of(tries.stream().map(candidat -> copie(candidat.ville())).toList());
+    }
+
+    @Override
+    protected void appliquer(VilleModifieeEvent evenement) {
+        Etat courant = etat;
+        if (courant == null) {
+            return;
+        }
+        Entree nouvelle = evenement.ville() == null ? null : entree(copie(evenement.ville()));
+        Integer connu = courant.emplacements.get(evenement.id());
+        Entree ancienne = connu == null ? null : courant.entrees[connu];
+        int emplacement;
+        if (nouvelle == null) {
+            if (connu == null) {
+                return;
+            }
+            courant.emplacements.remove(evenement.id());
+            courant.entrees[connu] = null;
+            emplacement = connu;
+        } else if (connu == null) {
+            emplacement = courant.attribuer(nouvelle);
+            courant.emplacements.put(evenement.id(), emplacement);
+        } else {
+            courant.entrees[connu] = nouvelle;
+            emplacement = connu;
+        }
+
+        // Seules les listes des trigrammes qui changent sont republiées.
+        Set<String> anciens = ancienne == null ? Set.of() : ancienne.trigrammes();
+        Set<String> nouveaux = nouvelle == null ? Set.of() : nouvelle.trigrammes();
+        for (String trigramme : anciens) {
+            if (!nouveaux.contains(trigramme)) {
+                courant.listes.computeIfPresent(trigramme, (t, liste) -> retirer(liste, emplacement));
+            }
+        }
+        for (String trigramme : nouveaux) {
+            if (!anciens.contains(trigramme)) {
+                courant.listes.compute(trigramme, (t, liste) -> inserer(liste == null ? AUCUNE : liste, emplacement));
+            }
+        }
+    }
+
+    @Override
+    protected void reconstruire(List<VilleDto> villes) {
+        Etat nouveau = new Etat(villes.size());
+        Map<String, List<Integer>> listes = new HashMap<>();
+        for (VilleDto ville : villes) {
+            Entree entree = entree(ville);
+            int emplacement = nouveau.attribuer(entree);
+            nouveau.emplacements.put(ville.getId(), emplacement);
+            for (String trigramme : entree.trigrammes()) {
+                listes.computeIfAbsent(trigramme, t -> new ArrayList<>()).add(emplacement);
+            }
+        }
+        // Emplacements attribués dans l'ordre : chaque liste est déjà triée.
+        listes.forEach((trigramme, emplacements) ->
+                nouveau.listes.put(trigramme, emplacements.stream().mapToInt(Integer::intValue).toArray()));
+        etat = nouveau;
+    }
+
+    private static Entree entree(VilleDto ville) {
+        String nom = nettoyer(ville.getNom());
+        return new Entree(ville, nom.isEmpty() ? Set.of() : trigrammes(nom, true));
+    }
+
+    /**
+     * Normalise un nom ou une saisie : minuscules sans accents, toute suite de caractères autres que
+     * lettres et chiffres ramenée à un espace ({@code "Saint-Étienne"} et {@code "saint etienne"} se
+     * confondent), tronqué à {@link #LONGUEUR_MAX} caractères.
+     */
+    static String nettoyer(String texte) {
+        String normalise = NormaliseurNom.normaliser(texte);
+        if (normalise == null) {
+            return "";
+        }
+        StringBuilder nettoye = new StringBuilder(Math.min(normalise.length(), LONGUEUR_MAX));
+        for (int i = 0; i < normalise.length() && nettoye.length() < LONGUEUR_MAX; i++) {
+            char c = normalise.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                nettoye.append(c);
+            } else if (!nettoye.isEmpty() && nettoye.charAt(nettoye.length() - 1) != ' ') {
+                nettoye.append(' ');
+            }
+        }
+        int fin = nettoye.length();
+        return fin > 0 && nettoye.charAt(fin - 1) == ' ' ? nettoye.substring(0, fin - 1) : nettoye.toString();
+    }
+
+    /**
+     * @param nom nom nettoyé, non vide
+     * @param fin {@code true} pour ajouter le marqueur de fin (noms indexés), {@code false} pour une saisie
+     * @return trigrammes distincts, dans l'ordre du nom
+     */
+    static Set<String> trigrammes(String nom, boolean fin) {
+        String borne = MARQUEUR + MARQUEUR + nom + (fin ? MARQUEUR : "");
+        Set<String> trigrammes = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= borne.length(); i++) {
+            trigrammes.add(borne.substring(i, i + 3));
+        }
+        return trigrammes;
+    }
+
+    private static int[] inserer(int[] liste, int id) {
+        int i = Arrays.binarySearch(liste, id);
+        if (i >= 0) {
+            return liste;
+        }
+        i = -(i + 1);
+        int[] nouvelle = new int[liste.length + 1];
+        System.arraycopy(liste, 0, nouvelle, 0, i);
+        nouvelle[i] = id;
+        System.arraycopy(liste, i, nouvelle, i + 1, liste.length - i);
+        return nouvelle;
+    }
+
+    /** Retire un identifiant ; renvoie {@code null} (suppression de l'entrée) si la liste devient vide. */
+    private static int[] retirer(int[] liste, int id) {
+        int i = Arrays.binarySearch(liste, id);
+        if (i < 0) {
+            return liste;
+        }
+        if (liste.length == 1) {
+            return null;
+        }
+        int[] nouvelle = new int[liste.length - 1];
+        System.arraycopy(liste, 0, nouvelle, 0, i);
+        System.arraycopy(liste, i + 1, nouvelle, i, liste.length - i - 1);
+        return nouvelle;
+    }
+
+    private static int population(VilleDto ville) {
+        return ville.getNbHabitants() == null ? 0 : ville.getNbHabitants();
+    }
+}
@@ -0,0 +1,95 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Socle commun des index de villes en mémoire.
+ * <p>
+ * Un index est construit à partir de la liste complète des villes, chargée une seule fois pour tous
+ * les index par {@link ChargeurIndex}, puis tenu à jour incrémentalement par {@link VilleModifieeEvent}.
+ * Les écritures (reconstruction et modifications) sont sérialisées par un verrou propre à l'index ;
+ * les lectures n'en prennent aucun. Tant que l'index n'est pas construit, ses lectures renvoient
+ * {@link java.util.Optional#empty()} et l'appelant interroge la base.
+ * <p>
+ * Les écouteurs après validation de deux transactions sur la même ville peuvent s'exécuter dans le
+ * désordre : la dernière version appliquée de chaque ville est retenue, et un événement qui ne la
+ * dépasse pas est ignoré. Une suppression laisse une marque qui écarte tout événement ultérieur.
+ */
+public abstract class IndexVilles {
+
+    /** Version retenue pour une ville supprimée : aucun événement ne la dépasse. */
+    private static final int SUPPRIMEE = Integer.MAX_VALUE;
+
+    /** Sérialise les écritures de l'index. */
+    final ReentrantLock verrou = new ReentrantLock();
+
+    /** Dernière version appliquée par ville ; protégée par {@link #verrou}. */
+    private final Map<Integer, Integer> versions = new HashMap<>();
+
+    /**
+     * Applique la création, la modification ou la suppression d'une ville, sauf si une version
+     * au moins aussi récente de cette ville a déjà été appliquée.
+     *
+     * @param evenement événement de modification
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void surModification(VilleModifieeEvent evenement) {
+        int version = evenement.ville() == null ? SUPPRIMEE : evenement.version();
+        verrou.lock();
+        try {
+            Integer appliquee = versions.get(evenement.id());
+            if (appliquee != null && appliquee >= version) {
+                return;
+            }
+            versions.put(evenement.id(), version);
+            appliquer(evenement);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Reconstruit entièrement l'index à partir de toutes les villes.
+     * Les versions déjà appliquées sont conservées : une ville ne revient jamais à un état antérieur.
+     *
+     * @param villes villes à indexer, que l'index ne modifie pas
+     */
+    void recharger(List<VilleDto> villes) {
+        verrou.lock();
+        try {
+            reconstruire(villes);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Reconstruit l'index ; appelé sous le verrou.
+     *
+     * @param villes villes à indexer
+     */
+    protected abstract void reconstruire(List<VilleDto> villes);
+
+    /**
+     * Applique une modification à l'index construit (sans effet tant qu'il ne l'est pas) ; appelé sous le verrou.
+     *
+     * @param evenement événement de modification
+     */
+    protected abstract void appliquer(VilleModifieeEvent evenement);
+
+    /**
+     * Les villes indexées ne sont jamais exposées : elles sont partagées entre les lectures et leur
+     * rangement dépend de leurs champs.
+     */
+    protected static VilleDto copie(VilleDto ville) {
+        return new VilleDto(ville.getId(), ville.getNom(), ville.getNbHabitants(),
+                ville.getNomDepartement(), ville.getCodeDpt(), ville.getLatitude(), ville.getLongitude());
+    }
+}
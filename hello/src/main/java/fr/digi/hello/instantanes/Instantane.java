@@ -0,0 +1,16 @@
+package fr.digi.hello.instantanes;
+
+/**
+ * Page d'une collection déjà sérialisée en JSON, telle qu'envoyée aux clients.
+ * <p>
+ * Les tableaux sont partagés entre toutes les réponses et écrits tels quels : ils ne doivent
+ * jamais être modifiés.
+ *
+ * @param version        version de la collection lue avant le contenu
+ * @param json           corps JSON de la page
+ * @param gzip           même corps, compressé en gzip
+ * @param curseurSuivant curseur de la page suivante, {@code null} sur la dernière page
+ * @param construitA     instant de construction, en nanosecondes ({@link System#nanoTime()})
+ */
+public record Instantane(long version, byte[] json, byte[] gzip, String curseurSuivant, long construitA) {
+}
@@ -0,0 +1,294 @@
+package fr.digi.hello.instantanes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.digi.hello.dto.DepartementDto;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.CollectionsModifieesEvent;
+import fr.digi.hello.mappers.MapperUtil;
+import fr.digi.hello.pagination.Pagination;
+import fr.digi.hello.services.DepartementService;
+import fr.digi.hello.services.VersionsCollections;
+import fr.digi.hello.services.VilleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Instantanés des pages de {@code GET /villes} et {@code GET /departements} : le corps JSON déjà
+ * sérialisé, et sa version gzip, partagés par tous les lecteurs entre deux écritures.
+ * <p>
+ * Chaque instantané porte la version de sa collection ({@link VersionsCollections}), lue avant
+ * son contenu. Un lecteur qui vient de lire une version plus récente sait l'instantané obsolète :
+ * il déclenche sa reconstruction en tâche de fond et continue à le servir tant que l'obsolescence
+ * ne dépasse pas {@code instantanes.obsolescence-max} ; au-delà, il construit lui-même la page.
+ * Une écriture validée ({@link CollectionsModifieesEvent}) ne fait que dater l'obsolescence des pages
+ * de la collection : seules les pages lues ensuite sont reconstruites, une seule fois quel que soit le
+ * nombre d'écritures intervenues entre-temps.
+ * <p>
+ * Au plus {@code instantanes.pages-max} pages sont conservées ; une nouvelle page remplace celle
+ * dont le dernier accès est le plus ancien.
+ * <p>
+ * Rien n'est lu ni enregistré dans une transaction en cours : ses écritures ne sont pas validées
+ * et ne doivent pas se retrouver dans une page servie à d'autres clients.
+ */
+@Component
+public class InstantanesCollections {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstantanesCollections.class);
+
+    /**
+     * Page d'une collection.
+     *
+     * @param collection nom de la collection ({@link VersionsCollections#VILLES} ou {@link VersionsCollections#DEPARTEMENTS})
+     * @param apresId    dernier identifiant de la page précédente
+     * @param taille     taille de page effective
+     */
+    private record Cle(String collection, int apresId, int taille) {
+    }
+
+    /**
+     * Instantané courant d'une page et état de sa reconstruction.
+     */
+    private static final class Emplacement {
+
+        final AtomicReference<Instantane> instantane = new AtomicReference<>();
+
+        /** Instant ({@link System#nanoTime()}) où l'instantané est devenu obsolète, {@code 0} s'il est à jour. */
+        final AtomicLong obsoleteDepuis = new AtomicLong();
+
+        final AtomicBoolean enReconstruction = new AtomicBoolean();
+
+        /** Nouvelle demande reçue pendant une reconstruction, qui a pu lire la base trop tôt. */
+        final AtomicBoolean relancer = new AtomicBoolean();
+
+        /** Instant ({@link System#nanoTime()}) du dernier accès, pour l'éviction. */
+        volatile long dernierAcces = System.nanoTime();
+
+        /**
+         * Marque l'instantané obsolète s'il ne l'est pas déjà.
+         *
+         * @return instant où il est devenu obsolète
+         */
+        long marquer(long maintenant) {
+            return obsoleteDepuis.compareAndExchange(0, maintenant) == 0 ? maintenant : obsoleteDepuis.get();
+        }
+    }
+
+    private final VilleService villeService;
+    private final DepartementService departementService;
+    private final VersionsCollections versionsCollections;
+    private final Pagination pagination;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate lecture;
+    private final Executor executor;
+    private final long obsolescenceMax;
+    private final int pagesMax;
+
+    private final Map<Cle, Emplacement> emplacements = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur.
+     *
+     * @param villeService        lecture des pages de villes
+     * @param departementService  lecture des pages de départements
+     * @param versionsCollections versions des collections
+     * @param pagination          encodage du curseur de la page suivante
+     * @param objectMapper        sérialiseur JSON de l'application
+     * @param transactionManager  transactions des reconstructions en tâche de fond
+     * @param executor            exécuteur des reconstructions
+     * @param obsolescenceMax     durée pendant laquelle un instantané obsolète peut encore être servi
+     * @param pagesMax            nombre maximal de pages conservées (au moins une)
+     */
+    public InstantanesCollections(VilleService villeService, DepartementService departementService,
+                                  VersionsCollections versionsCollections, Pagination pagination,
+                                  ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                  @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor,
+                                  @Value("${instantanes.obsolescence-max:1s}") Duration obsolescenceMax,
+                                  @Value("${instantanes.pages-max:64}") int pagesMax) {
+        this.villeService = villeService;
+        this.departementService = departementService;
+        this.versionsCollections = versionsCollections;
+        this.pagination = pagination;
+        this.objectMapper = objectMapper;
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+        this.executor = executor;
+        this.obsolescenceMax = obsolescenceMax.toNanos();
+        this.pagesMax = Math.max(1, pagesMax);
+    }
+
+    /**
+     * Instantané servable d'une page : à jour pour la version donnée, ou obsolète depuis moins de
+     * {@code instantanes.obsolescence-max}. Un instantané obsolète est reconstruit en tâche de fond.
+     *
+     * @param collection nom de la collection
+     * @param apresId    dernier identifiant de la page précédente
+     * @param taille     taille de page effective
+     * @param version    version courante de la collection, lue par l'appelant
+     * @return l'instantané, ou vide s'il faut construire la page
+     */
+    public Optional<Instantane> disponible(String collection, int apresId, int taille, long version) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Optional.empty();
+        }
+        Cle cle = new Cle(collection, apresId, taille);
+        Emplacement emplacement = emplacements.get(cle);
+        Instantane instantane = emplacement == null ? null : emplacement.instantane.get();
+        if (instantane == null) {
+            return Optional.empty();
+        }
+        emplacement.dernierAcces = System.nanoTime();
+        if (instantane.version() >= version) {
+            return Optional.of(instantane);
+        }
+        long maintenant = System.nanoTime();
+        long depuis = emplacement.marquer(maintenant);
+        reconstruireEnTacheDeFond(cle, emplacement);
+        return maintenant - depuis < obsolescenceMax ? Optional.of(instantane) : Optional.empty();
+    }
+
+    /**
+     * Construit une page maintenant et la conserve, hors transaction, si elle est plus récente
+     * que l'instantané en place.
+     *
+     * @param collection nom de la collection
+     * @param apresId    dernier identifiant de la page précédente
+     * @param taille     taille de page effective
+     * @param version    version de la collection, lue avant l'appel
+     * @return la page construite
+     */
+    public Instantane construire(String collection, int apresId, int taille, long version) {
+        long debut = System.nanoTime();
+        Instantane instantane = lire(collection, apresId, taille, version);
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            Cle cle = new Cle(collection, apresId, taille);
+            Emplacement emplacement = emplacements.computeIfAbsent(cle, c -> new Emplacement());
+            emplacement.dernierAcces = System.nanoTime();
+            enregistrer(emplacement, instantane, debut);
+            evincer();
+        }
+        return instantane;
+    }
+
+    /**
+     * Retire les pages les moins récemment lues au-delà de {@code instantanes.pages-max}. Le parcours
+     * est linéaire, mais n'a lieu qu'après la construction d'une page, bien plus coûteuse.
+     */
+    private void evincer() {
+        while (emplacements.size() > pagesMax) {
+            emplacements.entrySet().stream()
+                    .min(Comparator.comparingLong(entree -> entree.getValue().dernierAcces))
+                    .ifPresent(entree -> emplacements.remove(entree.getKey(), entree.getValue()));
+        }
+    }
+
+    /**
+     * Marque obsolètes les pages des collections modifiées, une fois la transaction validée ; elles
+     * seront reconstruites à leur prochaine lecture.
+     *
+     * @param event collections modifiées
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void surModification(CollectionsModifieesEvent event) {
+        long maintenant = System.nanoTime();
+        emplacements.forEach((cle, emplacement) -> {
+            if (event.noms().contains(cle.collection())) {
+                emplacement.marquer(maintenant);
+            }
+        });
+    }
+
+    private void reconstruireEnTacheDeFond(Cle cle, Emplacement emplacement) {
+        emplacement.relancer.set(true);
+        if (!emplacement.enReconstruction.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                while (emplacement.relancer.getAndSet(false)) {
+                    long debut = System.nanoTime();
+                    // Version et contenu lus dans la même transaction.
+                    Instantane instantane = lecture.execute(statut -> lire(cle.collection(), cle.apresId(), cle.taille(),
+                            versionsCollections.version(cle.collection())));
+                    enregistrer(emplacement, instantane, debut);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Reconstruction de l'instantané {} impossible", cle, e);
+            } finally {
+                emplacement.enReconstruction.set(false);
+                if (emplacement.relancer.get()) {
+                    reconstruireEnTacheDeFond(cle, emplacement);
+                }
+            }
+        });
+    }
+
+    /**
+     * Remplace l'instantané d'une page s'il n'est pas plus ancien que celui en place. La page
+     * n'est plus obsolète si sa lecture a commencé après l'écriture qui l'avait rendue obsolète.
+     */
+    private static void enregistrer(Emplacement emplacement, Instantane instantane, long debut) {
+        emplacement.instantane.accumulateAndGet(instantane,
+                (ancien, nouveau) -> ancien == null || nouveau.version() >= ancien.version() ? nouveau : ancien);
+        long depuis = emplacement.obsoleteDepuis.get();
+        if (depuis != 0 && depuis - debut <= 0) {
+            emplacement.obsoleteDepuis.compareAndSet(depuis, 0);
+        }
+    }
+
+    private Instantane lire(String collection, int apresId, int taille, long version) {
+        return switch (collection) {
+            case VersionsCollections.VILLES -> serialiser(version,
+                    villeService.extractVilles(apresId, taille), taille, VilleDto::getId);
+            case VersionsCollections.DEPARTEMENTS -> serialiser(version,
+                    departementService.extractDepartements(apresId, taille).stream()
+                            .map(MapperUtil::toDepartementDto)
+                            .toList(), taille, DepartementDto::getId);
+            default -> throw new IllegalArgumentException("Collection inconnue : " + collection);
+        };
+    }
+
+    private <T> Instantane serialiser(long version, List<T> lignes, int taille, Function<T, Integer> idDe) {
+        String suivant = pagination.curseurSuivant(lignes, taille, idDe);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(suivant == null ? lignes : lignes.subList(0, taille));
+            return new Instantane(version, json, gzip(json), suivant, System.nanoTime());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream tampon = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(tampon)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tampon.toByteArray();
+    }
+}
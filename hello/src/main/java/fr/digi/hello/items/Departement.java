@@ -1,7 +1,10 @@
 package fr.digi.hello.items;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import fr.digi.hello.utils.NormaliseurNom;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -9,18 +12,38 @@ import java.util.List;
  * Entité JPA représentant un département.
  * Un département possède un identifiant unique (id), un code officiel et un nom.
  * Il est relié à une liste de villes ({@link Ville}).
+ * <p>
+ * Données de référence, rarement modifiées : les départements sont conservés dans le cache de
+ * second niveau Hibernate ({@link fr.digi.hello.cache.CacheSecondNiveauConfiguration}), mis à jour
+ * par Hibernate à chaque écriture.
  */
 @Entity
-@Table(name = "departement")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "departement", indexes = @Index(name = "idx_departement_nom_normalise", columnList = "nom_normalise"))
 public class Departement {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
+    /**
+     * Version de la ligne, incrémentée par Hibernate à chaque modification.
+     * Sert à construire les ETags des lectures conditionnelles.
+     */
+    @Version
+    private Integer version;
+
     /** Nom du département. */
     private String nom;
 
+    /**
+     * Nom normalisé (minuscules, sans accents), indexé pour les recherches par nom.
+     * Maintenu automatiquement à partir de {@link #nom}, voir {@link NormaliseurNom}.
+     */
+    @Column(name = "nom_normalise")
+    private String nomNormalise;
+
     /** Code officiel du département (ex: "33"). */
     private String code;
 
@@ -54,13 +77,31 @@ public class Departement {
     public Departement(Integer id, String nom, String code){
         this.id = id;
         this.nom = nom;
+        this.nomNormalise = NormaliseurNom.normaliser(nom);
         this.code = code;
     }
 
+    /**
+     * Recalcule le nom normalisé avant chaque écriture en base.
+     */
+    @PrePersist
+    @PreUpdate
+    void normaliserNom() {
+        this.nomNormalise = NormaliseurNom.normaliser(nom);
+    }
+
     public Integer getId() {
         return id;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public void setId(Integer id) {
         this.id = id;
     }
@@ -71,6 +112,11 @@ public class Departement {
 
     public void setNom(String nom) {
         this.nom = nom;
+        this.nomNormalise = NormaliseurNom.normaliser(nom);
+    }
+
+    public String getNomNormalise() {
+        return nomNormalise;
     }
 
     public String getCode() {
@@ -0,0 +1,44 @@
+package fr.digi.hello.items;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Version d'une collection (villes, départements), incrémentée à chaque écriture sur celle-ci.
+ * <p>
+ * Une seule ligne par collection : les listes peuvent ainsi calculer leur ETag par une lecture
+ * sur clé primaire, sans relire les lignes de la collection.
+ */
+@Entity
+@Table(name = "versions_collection")
+public class VersionCollection {
+
+    /** Nom de la collection. */
+    @Id
+    private String nom;
+
+    /** Version courante de la collection. */
+    private long version;
+
+    /** Constructeur par défaut requis par JPA. */
+    public VersionCollection() {
+    }
+
+    /**
+     * @param nom     nom de la collection
+     * @param version version initiale
+     */
+    public VersionCollection(String nom, long version) {
+        this.nom = nom;
+        this.version = version;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -1,6 +1,7 @@
 package fr.digi.hello.items;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import fr.digi.hello.utils.NormaliseurNom;
 import jakarta.persistence.*;
 
 /**
@@ -9,7 +10,7 @@ import jakarta.persistence.*;
  * Elle est reliée à un {@link Departement} via une relation {@code ManyToOne}.
  */
 @Entity
-@Table(name = "villes")
+@Table(name = "villes", indexes = @Index(name = "idx_villes_nom_normalise", columnList = "nom_normalise"))
 public class Ville {
 
     /** Identifiant unique de la ville (auto-généré). */
@@ -17,19 +18,41 @@ public class Ville {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
+    /**
+     * Version de la ligne, incrémentée par Hibernate à chaque modification.
+     * Sert à construire les ETags des lectures conditionnelles.
+     */
+    @Version
+    private Integer version;
+
     /** Nom de la ville. */
     private String nom;
 
+    /**
+     * Nom normalisé (minuscules, sans accents), indexé pour les recherches par nom.
+     * Maintenu automatiquement à partir de {@link #nom}, voir {@link NormaliseurNom}.
+     */
+    @Column(name = "nom_normalise")
+    private String nomNormalise;
+
     /** Nombre d’habitants de la ville. */
     private Integer nbHabitants;
 
+    /** Latitude en degrés décimaux (WGS 84), {@code null} si inconnue. */
+    private Double latitude;
+
+    /** Longitude en degrés décimaux (WGS 84), {@code null} si inconnue. */
+    private Double longitude;
+
     /**
      * Département auquel appartient la ville.
      * Relation {@code ManyToOne} : plusieurs villes peuvent être liées à un département.
      * L’annotation {@code @JsonIgnoreProperties("villes")} évite une boucle infinie
      * lors de la sérialisation JSON.
+     * Chargement paresseux : les lectures passent par des projections DTO jointes
+     * ({@link fr.digi.hello.dao.VilleDao#PROJECTION_DTO}) plutôt que par un select par département.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "departement_id")
     @JsonIgnoreProperties("villes")
     private Departement departement;
@@ -53,6 +76,15 @@ public class Ville {
         this.departement = departement;
     }
 
+    /**
+     * Recalcule le nom normalisé avant chaque écriture en base.
+     */
+    @PrePersist
+    @PreUpdate
+    void normaliserNom() {
+        this.nomNormalise = NormaliseurNom.normaliser(nom);
+    }
+
     /**
      * Met à jour le nombre d’habitants de la ville.
      *
@@ -68,6 +100,14 @@ public class Ville {
         return id;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public void setId(Integer id) {
         this.id = id;
     }
@@ -78,12 +118,46 @@ public class Ville {
 
     public void setNom(String nom) {
         this.nom = nom;
+        this.nomNormalise = NormaliseurNom.normaliser(nom);
+    }
+
+    public String getNomNormalise() {
+        return nomNormalise;
     }
 
     public Integer getNbHabitants() {
         return nbHabitants;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    /**
+     * Renseigne les coordonnées géographiques de la ville.
+     *
+     * @param latitude  latitude en degrés décimaux
+     * @param longitude longitude en degrés décimaux
+     * @return cette ville
+     */
+    public Ville coordonnees(Double latitude, Double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        return this;
+    }
+
     public Departement getDepartement() {
         return departement;
     }
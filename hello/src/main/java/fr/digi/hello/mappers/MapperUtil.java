@@ -37,7 +37,9 @@ public class MapperUtil {
                 ville.getNom(),
                 ville.getNbHabitants(),
                 nomDepartement,
-                codeDepartement
+                codeDepartement,
+                ville.getLatitude(),
+                ville.getLongitude()
         );
     }
 
@@ -56,7 +58,7 @@ public class MapperUtil {
                 villeDto.getNom(),
                 villeDto.getNbHabitants(),
                 departement
-        );
+        ).coordonnees(villeDto.getLatitude(), villeDto.getLongitude());
     }
 
     /**
@@ -0,0 +1,81 @@
+package fr.digi.hello.metriques;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.Entity;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nombre de lignes renvoyées par appel de service ({@code hello.services.lignes}, par classe et
+ * méthode) : taille d'une collection ou d'une table associative, 0 ou 1 pour un {@link Optional},
+ * un booléen ou une entité, et la valeur d'un nombre (lignes parcourues ou supprimées). Les autres
+ * types de retour ne sont pas comptés.
+ * Porte sur les mêmes méthodes que le chronomètre {@link MetriquesConfiguration#SERVICES} :
+ * celles des classes annotées {@link io.micrometer.core.annotation.Timed}.
+ */
+@Aspect
+@Component
+public class LignesRetourneesAspect {
+
+    private final MeterRegistry registry;
+    private final Map<Method, DistributionSummary> parMethode = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur avec injection du registre des métriques.
+     *
+     * @param registry registre des métriques
+     */
+    public LignesRetourneesAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Enregistre le nombre de lignes renvoyées par une méthode publique de service.
+     *
+     * @param point    appel intercepté
+     * @param resultat valeur renvoyée
+     */
+    @AfterReturning(pointcut = "@within(io.micrometer.core.annotation.Timed) && execution(public * *(..))",
+            returning = "resultat")
+    public void compter(JoinPoint point, Object resultat) {
+        Method methode = ((MethodSignature) point.getSignature()).getMethod();
+        OptionalLong lignes = methode.getReturnType() == void.class ? OptionalLong.empty() : lignes(resultat);
+        if (lignes.isEmpty()) {
+            return;
+        }
+        parMethode.computeIfAbsent(methode, m -> DistributionSummary.builder(MetriquesConfiguration.SERVICES + ".lignes")
+                        .description("Lignes renvoyées par appel de service")
+                        .baseUnit("lignes")
+                        .tag("class", point.getSignature().getDeclaringTypeName())
+                        .tag("method", m.getName())
+                        .register(registry))
+                .record(lignes.getAsLong());
+    }
+
+    /**
+     * @return nombre de lignes représentées par le résultat, vide si son type ne décrit pas des lignes
+     */
+    private static OptionalLong lignes(Object resultat) {
+        return switch (resultat) {
+            case null -> OptionalLong.of(0);
+            case Collection<?> collection -> OptionalLong.of(collection.size());
+            case Map<?, ?> table -> OptionalLong.of(table.size());
+            case Optional<?> optional -> OptionalLong.of(optional.isPresent() ? 1 : 0);
+            case Boolean trouve -> OptionalLong.of(trouve ? 1 : 0);
+            case Long nombre -> OptionalLong.of(nombre);
+            case Integer nombre -> OptionalLong.of(nombre);
+            default -> resultat.getClass().isAnnotationPresent(Entity.class) ? OptionalLong.of(1) : OptionalLong.empty();
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package fr.digi.hello.metriques;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration des métriques applicatives.
+ * <p>
+ * Les méthodes des contrôleurs sont chronométrées par Spring MVC ({@code http.server.requests},
+ * par URI et statut) ; les services annotés {@link io.micrometer.core.annotation.Timed} le sont
+ * par {@link TimedAspect} ({@code hello.services}, par classe et méthode). Le pool de connexions
+ * est exposé par les jauges {@code hikaricp.connections.*}. Le tout est publié au format
+ * Prometheus sur {@code /actuator/prometheus}.
+ */
+@Configuration
+public class MetriquesConfiguration {
+
+    /** Nom du chronomètre des services, repris par {@link LignesRetourneesAspect}. */
+    public static final String SERVICES = "hello.services";
+
+    /**
+     * Aspect chronométrant les méthodes annotées (ou dont la classe est annotée) {@code @Timed}.
+     *
+     * @param registry registre des métriques
+     * @return aspect {@code @Timed}
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
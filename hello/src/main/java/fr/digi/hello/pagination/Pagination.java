@@ -0,0 +1,163 @@
+package fr.digi.hello.pagination;
+
+import fr.digi.hello.instantanes.Instantane;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pagination par curseur (keyset) des listes de villes et de départements.
+ * <p>
+ * Le curseur est un jeton opaque encodant le dernier identifiant renvoyé :
+ * la page suivante est lue par {@code WHERE id > :dernierId ORDER BY id},
+ * ce qui coûte autant pour la première page que pour une page lointaine.
+ * La taille de page est bornée par la propriété {@code pagination.taille-max}.
+ */
+@Component
+public class Pagination {
+
+    /** En-tête portant le curseur de la page suivante (absent sur la dernière page). */
+    public static final String ENTETE_CURSEUR_SUIVANT = "X-Curseur-Suivant";
+
+    private static final String PREFIXE = "id:";
+
+    private final int tailleDefaut;
+    private final int tailleMax;
+
+    /**
+     * Constructeur avec injection des bornes de pagination.
+     *
+     * @param tailleDefaut taille de page utilisée si le client n'en précise pas
+     * @param tailleMax    taille de page maximale acceptée
+     */
+    public Pagination(@Value("${pagination.taille-defaut:100}") int tailleDefaut,
+                      @Value("${pagination.taille-max:1000}") int tailleMax) {
+        this.tailleMax = Math.max(1, tailleMax);
+        this.tailleDefaut = Math.min(Math.max(1, tailleDefaut), this.tailleMax);
+    }
+
+    /**
+     * Calcule la taille de page effective à partir de la taille demandée.
+     *
+     * @param demandee taille demandée par le client (peut être {@code null})
+     * @return taille par défaut si absente, sinon la taille plafonnée à {@code pagination.taille-max}
+     * @throws IllegalArgumentException si la taille demandée est inférieure à 1
+     */
+    public int taille(Integer demandee) {
+        if (demandee == null) {
+            return tailleDefaut;
+        }
+        if (demandee < 1) {
+            throw new IllegalArgumentException("La taille de page doit être supérieure ou égale à 1");
+        }
+        return Math.min(demandee, tailleMax);
+    }
+
+    /**
+     * Décode un curseur reçu du client.
+     *
+     * @param curseur jeton opaque (peut être {@code null} pour la première page)
+     * @return dernier identifiant déjà renvoyé, {@code 0} pour la première page
+     * @throws IllegalArgumentException si le jeton n'a pas été produit par {@link #encoder(int)}
+     */
+    public int decoder(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return 0;
+        }
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            if (!brut.startsWith(PREFIXE)) {
+                throw new IllegalArgumentException("Curseur invalide");
+            }
+            return Integer.parseInt(brut.substring(PREFIXE.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide", e);
+        }
+    }
+
+    /**
+     * Encode le dernier identifiant d'une page en curseur opaque.
+     *
+     * @param dernierId identifiant du dernier élément de la page
+     * @return jeton à renvoyer tel quel pour obtenir la page suivante
+     */
+    public String encoder(int dernierId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIXE + dernierId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Construit la réponse HTTP d'une page.
+     * <p>
+     * Le service lit {@code taille + 1} lignes : la ligne excédentaire indique
+     * qu'une page suivante existe sans requête supplémentaire. Le curseur suivant
+     * est alors exposé dans l'en-tête {@link #ENTETE_CURSEUR_SUIVANT} et dans un
+     * en-tête {@code Link rel="next"}.
+     *
+     * @param lignes  lignes lues (au plus {@code taille + 1}), déjà converties
+     * @param taille  taille de page effective
+     * @param idDe    fonction extrayant l'identifiant d'un élément
+     * @param <T>     type des éléments
+     * @return réponse 200 contenant au plus {@code taille} éléments
+     */
+    public <T> ResponseEntity<List<T>> reponse(List<T> lignes, int taille, Function<T, Integer> idDe) {
+        String suivant = curseurSuivant(lignes, taille, idDe);
+        if (suivant == null) {
+            return ResponseEntity.ok(lignes);
+        }
+        return pageSuivante(ResponseEntity.ok(), suivant, taille).body(lignes.subList(0, taille));
+    }
+
+    /**
+     * Curseur de la page suivante d'une page lue avec {@code taille + 1} lignes.
+     *
+     * @param lignes lignes lues (au plus {@code taille + 1})
+     * @param taille taille de page effective
+     * @param idDe   fonction extrayant l'identifiant d'un élément
+     * @param <T>    type des éléments
+     * @return curseur à exposer, ou {@code null} s'il n'y a pas de page suivante
+     */
+    public <T> String curseurSuivant(List<T> lignes, int taille, Function<T, Integer> idDe) {
+        return lignes.size() <= taille ? null : encoder(idDe.apply(lignes.get(taille - 1)));
+    }
+
+    /**
+     * Construit la réponse HTTP d'une page déjà sérialisée, avec les mêmes en-têtes de pagination
+     * que {@link #reponse(List, int, Function)}. Les octets de l'instantané sont écrits tels quels.
+     *
+     * @param instantane page sérialisée
+     * @param taille     taille de page effective
+     * @param gzip       {@code true} pour envoyer le corps compressé ({@code Content-Encoding: gzip})
+     * @return réponse 200 JSON
+     */
+    public ResponseEntity<byte[]> reponse(Instantane instantane, int taille, boolean gzip) {
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            reponse.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if (instantane.curseurSuivant() != null) {
+            pageSuivante(reponse, instantane.curseurSuivant(), taille);
+        }
+        return reponse.body(gzip ? instantane.gzip() : instantane.json());
+    }
+
+    private static ResponseEntity.BodyBuilder pageSuivante(ResponseEntity.BodyBuilder reponse, String suivant, int taille) {
+        String lien = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("curseur", suivant)
+                .replaceQueryParam("taille", taille)
+                .toUriString();
+        return reponse
+                .header(ENTETE_CURSEUR_SUIVANT, suivant)
+                .header(HttpHeaders.LINK, "<" + lien + ">; rel=\"next\"");
+    }
+}
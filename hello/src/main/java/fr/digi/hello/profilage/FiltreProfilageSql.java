@@ -0,0 +1,42 @@
+package fr.digi.hello.profilage;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Délimite chaque requête HTTP pour le {@link ProfileurSql}, qui y détecte les motifs N+1.
+ * La requête est identifiée par sa méthode et le motif d'URI de son endpoint.
+ */
+@Component
+public class FiltreProfilageSql extends OncePerRequestFilter {
+
+    private final ProfileurSql profileurSql;
+
+    /**
+     * Constructeur.
+     *
+     * @param profileurSql profileur SQL
+     */
+    public FiltreProfilageSql(ProfileurSql profileurSql) {
+        this.profileurSql = profileurSql;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        profileurSql.ouvrirRequete();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            profileurSql.fermerRequete(request.getMethod() + " " + (motif != null ? motif : request.getRequestURI()));
+        }
+    }
+}
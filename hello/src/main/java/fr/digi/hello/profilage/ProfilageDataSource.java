@@ -0,0 +1,123 @@
+package fr.digi.hello.profilage;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+
+/**
+ * Enveloppe la {@link DataSource} de l'application pour transmettre chaque requête préparée
+ * au {@link ProfileurSql}.
+ * <p>
+ * Les enveloppes sont des proxys JDK : une connexion enregistre chaque {@code prepareStatement} ;
+ * seules les requêtes retenues par l'échantillonnage sont elles-mêmes enveloppées pour
+ * chronométrer leur exécution et compter les lignes de leurs résultats. Les requêtes non
+ * préparées ({@link java.sql.Statement}, utilisées pour le schéma) ne sont pas suivies.
+ * {@code unwrap} traverse l'enveloppe, ce qui laisse visibles les métriques du pool.
+ */
+@Component
+public class ProfilageDataSource implements BeanPostProcessor {
+
+    private final ObjectProvider<ProfileurSql> profileurSql;
+
+    /**
+     * Constructeur.
+     *
+     * @param profileurSql profileur, résolu à la première utilisation
+     */
+    public ProfilageDataSource(ObjectProvider<ProfileurSql> profileurSql) {
+        this.profileurSql = profileurSql;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String nom) {
+        if (bean instanceof DataSource source && !Proxy.isProxyClass(bean.getClass())) {
+            return envelopper(DataSource.class, source, (cible, methode, arguments) -> {
+                Object resultat = invoquer(cible, methode, arguments);
+                return resultat instanceof Connection connexion ? connexion(connexion) : resultat;
+            });
+        }
+        return bean;
+    }
+
+    private Connection connexion(Connection connexion) {
+        return envelopper(Connection.class, connexion, (cible, methode, arguments) -> {
+            Object resultat = invoquer(cible, methode, arguments);
+            if (resultat instanceof PreparedStatement requete && methode.getName().equals("prepareStatement")) {
+                String empreinte = profileurSql.getObject().executer((String) arguments[0]);
+                if (empreinte != null) {
+                    return requeteMesuree(requete, empreinte);
+                }
+            }
+            return resultat;
+        });
+    }
+
+    private PreparedStatement requeteMesuree(PreparedStatement requete, String empreinte) {
+        ProfileurSql profileur = profileurSql.getObject();
+        return envelopper(PreparedStatement.class, requete, (cible, methode, arguments) -> {
+            if (!methode.getName().startsWith("execute")) {
+                return invoquer(cible, methode, arguments);
+            }
+            long debut = System.nanoTime();
+            Object resultat = invoquer(cible, methode, arguments);
+            profileur.mesurer(empreinte, System.nanoTime() - debut);
+            if (resultat instanceof ResultSet lignes) {
+                return resultats(lignes, empreinte);
+            }
+            if (resultat instanceof Integer modifiees) {
+                profileur.compterLignes(empreinte, modifiees);
+            } else if (resultat instanceof Long modifiees) {
+                profileur.compterLignes(empreinte, modifiees);
+            } else if (resultat instanceof int[] lot) {
+                profileur.compterLignes(empreinte, Arrays.stream(lot).filter(n -> n > 0).sum());
+            }
+            return resultat;
+        });
+    }
+
+    private ResultSet resultats(ResultSet resultats, String empreinte) {
+        ProfileurSql profileur = profileurSql.getObject();
+        long[] lues = new long[1];
+        boolean[] comptees = new boolean[1];
+        return envelopper(ResultSet.class, resultats, (cible, methode, arguments) -> {
+            Object resultat = invoquer(cible, methode, arguments);
+            if (methode.getName().equals("next") && Boolean.TRUE.equals(resultat)) {
+                lues[0]++;
+            } else if ((methode.getName().equals("next") || methode.getName().equals("close")) && !comptees[0]) {
+                comptees[0] = true;
+                profileur.compterLignes(empreinte, lues[0]);
+            }
+            return resultat;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T envelopper(Class<T> type, T cible, Gestionnaire<T> gestionnaire) {
+        InvocationHandler handler = (proxy, methode, arguments) -> gestionnaire.invoquer(cible, methode, arguments);
+        return (T) Proxy.newProxyInstance(ProfilageDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoquer(Object cible, Method methode, Object[] arguments) throws Throwable {
+        try {
+            return methode.invoke(cible, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Traitement d'un appel sur l'objet JDBC enveloppé. */
+    @FunctionalInterface
+    private interface Gestionnaire<T> {
+        Object invoquer(T cible, Method methode, Object[] arguments) throws Throwable;
+    }
+}
@@ -0,0 +1,313 @@
+package fr.digi.hello.profilage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Profilage des requêtes SQL exécutées par l'application, en remplacement de {@code show-sql}.
+ * <p>
+ * Chaque requête est réduite à une empreinte (littéraux remplacés par {@code ?}, listes
+ * {@code IN} repliées, espaces normalisés) sous laquelle sont agrégés le nombre d'exécutions,
+ * les durées (totale, moyenne, p99, max) et les lignes renvoyées. Les exécutions sont toutes
+ * comptées, mais seule une fraction {@code profilage.sql.echantillonnage} est chronométrée, ce qui
+ * borne le surcoût. Au sein d'une requête HTTP, une même empreinte exécutée au moins
+ * {@code profilage.sql.seuil-n-plus-un} fois est signalée comme un motif N+1.
+ * <p>
+ * Les requêtes sont interceptées au niveau JDBC par {@link ProfilageDataSource}.
+ */
+@Component
+public class ProfileurSql {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProfileurSql.class);
+
+    /** Taille du réservoir de durées conservé par empreinte pour le calcul du p99. */
+    private static final int RESERVOIR = 512;
+    private static final String AUTRES = "(autres requêtes)";
+    private static final Pattern LISTE = Pattern.compile("\\(\\?(?: ?, ?\\?)+\\)");
+
+    /**
+     * Statistiques d'une empreinte.
+     *
+     * @param empreinte          requête normalisée
+     * @param executions         nombre d'exécutions
+     * @param mesurees           exécutions chronométrées (échantillon)
+     * @param dureeTotaleMs      durée totale estimée (moyenne × exécutions)
+     * @param dureeMoyenneMs     durée moyenne d'une exécution chronométrée
+     * @param dureeP99Ms         99e centile des dernières exécutions chronométrées
+     * @param dureeMaxMs         durée maximale observée
+     * @param lignesParExecution lignes renvoyées (ou modifiées) en moyenne
+     */
+    public record StatistiqueSql(String empreinte, long executions, long mesurees, double dureeTotaleMs,
+                                 double dureeMoyenneMs, double dureeP99Ms, double dureeMaxMs,
+                                 double lignesParExecution) {
+    }
+
+    /**
+     * Motif N+1 détecté.
+     *
+     * @param requete       endpoint HTTP concerné
+     * @param empreinte     requête répétée
+     * @param occurrences   nombre de requêtes HTTP où le motif a été observé
+     * @param repetitionsMax plus grand nombre de répétitions dans une même requête HTTP
+     */
+    public record NPlusUn(String requete, String empreinte, long occurrences, int repetitionsMax) {
+    }
+
+    /**
+     * Rapport du profileur.
+     *
+     * @param echantillonnage fraction des exécutions chronométrées
+     * @param seuilNPlusUn    répétitions à partir desquelles un motif N+1 est signalé
+     * @param requetes        statistiques par empreinte, par durée totale décroissante
+     * @param nPlusUn         motifs N+1, les plus fréquents d'abord
+     */
+    public record Rapport(double echantillonnage, int seuilNPlusUn, List<StatistiqueSql> requetes,
+                          List<NPlusUn> nPlusUn) {
+    }
+
+    /** Compteurs d'une empreinte. */
+    private static final class Compteurs {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder mesurees = new LongAdder();
+        private final LongAdder dureeNanos = new LongAdder();
+        private final LongAdder lignes = new LongAdder();
+        private final AtomicLong dureeMaxNanos = new AtomicLong();
+        private final long[] reservoir = new long[RESERVOIR];
+        private final AtomicInteger position = new AtomicInteger();
+
+        void mesurer(long nanos) {
+            mesurees.increment();
+            dureeNanos.add(nanos);
+            dureeMaxNanos.accumulateAndGet(nanos, Math::max);
+            reservoir[Math.floorMod(position.getAndIncrement(), RESERVOIR)] = nanos;
+        }
+
+        long p99Nanos() {
+            long[] copie = Arrays.copyOf(reservoir, Math.min(position.get(), RESERVOIR));
+            if (copie.length == 0) {
+                return 0;
+            }
+            Arrays.sort(copie);
+            return copie[(int) Math.ceil(copie.length * 0.99) - 1];
+        }
+    }
+
+    /** Compteurs d'un motif N+1. */
+    private static final class CompteursNPlusUn {
+        private final LongAdder occurrences = new LongAdder();
+        private final AtomicInteger repetitionsMax = new AtomicInteger();
+    }
+
+    private record CleNPlusUn(String requete, String empreinte) {
+    }
+
+    private final double echantillonnage;
+    private final int seuilNPlusUn;
+    private final int empreintesMax;
+
+    private final Map<String, String> empreintes = new ConcurrentHashMap<>();
+    private final Map<String, Compteurs> parEmpreinte = new ConcurrentHashMap<>();
+    private final Map<CleNPlusUn, CompteursNPlusUn> nPlusUn = new ConcurrentHashMap<>();
+    private final ThreadLocal<Map<String, Integer>> requeteCourante = new ThreadLocal<>();
+
+    /**
+     * Constructeur.
+     *
+     * @param echantillonnage fraction des exécutions chronométrées, entre 0 et 1
+     * @param seuilNPlusUn    répétitions à partir desquelles un motif N+1 est signalé
+     * @param empreintesMax   nombre maximal d'empreintes suivies ; au-delà, regroupées sous « autres »
+     */
+    public ProfileurSql(@Value("${profilage.sql.echantillonnage:0.1}") double echantillonnage,
+                        @Value("${profilage.sql.seuil-n-plus-un:5}") int seuilNPlusUn,
+                        @Value("${profilage.sql.empreintes-max:2000}") int empreintesMax) {
+        this.echantillonnage = echantillonnage;
+        this.seuilNPlusUn = seuilNPlusUn;
+        this.empreintesMax = empreintesMax;
+    }
+
+    /**
+     * Enregistre une exécution et indique si elle doit être chronométrée.
+     *
+     * @param sql requête préparée
+     * @return l'empreinte de la requête si l'exécution fait partie de l'échantillon, sinon {@code null}
+     */
+    String executer(String sql) {
+        String empreinte = empreinte(sql);
+        compteurs(empreinte).executions.increment();
+        Map<String, Integer> requete = requeteCourante.get();
+        if (requete != null) {
+            requete.merge(empreinte, 1, Integer::sum);
+        }
+        return ThreadLocalRandom.current().nextDouble() < echantillonnage ? empreinte : null;
+    }
+
+    /**
+     * Enregistre la durée d'une exécution chronométrée.
+     *
+     * @param empreinte empreinte renvoyée par {@link #executer(String)}
+     * @param nanos     durée d'exécution
+     */
+    void mesurer(String empreinte, long nanos) {
+        compteurs(empreinte).mesurer(nanos);
+    }
+
+    /**
+     * Enregistre les lignes lues ou modifiées par une exécution chronométrée.
+     *
+     * @param empreinte empreinte renvoyée par {@link #executer(String)}
+     * @param lignes    nombre de lignes
+     */
+    void compterLignes(String empreinte, long lignes) {
+        compteurs(empreinte).lignes.add(lignes);
+    }
+
+    /**
+     * Commence le suivi des requêtes SQL d'une requête HTTP sur le thread courant.
+     */
+    void ouvrirRequete() {
+        requeteCourante.set(new HashMap<>());
+    }
+
+    /**
+     * Termine le suivi et signale les empreintes répétées au moins {@code seuil-n-plus-un} fois.
+     *
+     * @param requete endpoint HTTP ({@code méthode motif})
+     */
+    void fermerRequete(String requete) {
+        Map<String, Integer> executions = requeteCourante.get();
+        requeteCourante.remove();
+        if (executions == null) {
+            return;
+        }
+        executions.forEach((empreinte, repetitions) -> {
+            if (repetitions >= seuilNPlusUn) {
+                CompteursNPlusUn compteurs = nPlusUn.computeIfAbsent(new CleNPlusUn(requete, empreinte), cle -> {
+                    LOG.warn("Motif N+1 sur {} : {} exécutions de {}", requete, repetitions, empreinte);
+                    return new CompteursNPlusUn();
+                });
+                compteurs.occurrences.increment();
+                compteurs.repetitionsMax.accumulateAndGet(repetitions, Math::max);
+            }
+        });
+    }
+
+    /**
+     * @param limite nombre maximal d'empreintes renvoyées
+     * @return statistiques courantes
+     */
+    public Rapport rapport(int limite) {
+        List<StatistiqueSql> requetes = parEmpreinte.entrySet().stream()
+                .map(e -> statistique(e.getKey(), e.getValue()))
+                .sorted(Comparator.comparingDouble(StatistiqueSql::dureeTotaleMs).reversed()
+                        .thenComparing(Comparator.comparingLong(StatistiqueSql::executions).reversed()))
+                .limit(limite)
+                .toList();
+        List<NPlusUn> motifs = nPlusUn.entrySet().stream()
+                .map(e -> new NPlusUn(e.getKey().requete(), e.getKey().empreinte(), e.getValue().occurrences.sum(),
+                        e.getValue().repetitionsMax.get()))
+                .sorted(Comparator.comparingLong(NPlusUn::occurrences).reversed())
+                .toList();
+        return new Rapport(echantillonnage, seuilNPlusUn, requetes, motifs);
+    }
+
+    /**
+     * Remet les statistiques à zéro.
+     */
+    public void reinitialiser() {
+        parEmpreinte.clear();
+        nPlusUn.clear();
+    }
+
+    /**
+     * Empreinte d'une requête : littéraux numériques et chaînes remplacés par {@code ?}, listes de
+     * paramètres repliées en {@code (?...)}, espaces normalisés, mots en minuscules.
+     *
+     * @param sql requête
+     * @return empreinte
+     */
+    static String normaliser(String sql) {
+        StringBuilder empreinte = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i++;
+                while (i < sql.length()) {
+                    if (sql.charAt(i) == '\'' && (i + 1 >= sql.length() || sql.charAt(i + 1) != '\'')) {
+                        break;
+                    }
+                    i += sql.charAt(i) == '\'' ? 2 : 1;
+                }
+                empreinte.append('?');
+                i++;
+            } else if (Character.isDigit(c) && !precedeParIdentifiant(empreinte)) {
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                empreinte.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (!empreinte.isEmpty()) {
+                    empreinte.append(' ');
+                }
+            } else {
+                empreinte.append(Character.toLowerCase(c));
+                i++;
+            }
+        }
+        return LISTE.matcher(empreinte.toString().strip()).replaceAll("(?...)");
+    }
+
+    private String empreinte(String sql) {
+        String empreinte = empreintes.get(sql);
+        if (empreinte == null) {
+            empreinte = normaliser(sql);
+            if (empreintes.size() < empreintesMax * 4) {
+                empreintes.put(sql, empreinte);
+            }
+        }
+        return empreinte;
+    }
+
+    private Compteurs compteurs(String empreinte) {
+        Compteurs compteurs = parEmpreinte.get(empreinte);
+        if (compteurs == null) {
+            String cle = parEmpreinte.size() < empreintesMax ? empreinte : AUTRES;
+            compteurs = parEmpreinte.computeIfAbsent(cle, c -> new Compteurs());
+        }
+        return compteurs;
+    }
+
+    private static StatistiqueSql statistique(String empreinte, Compteurs compteurs) {
+        long executions = compteurs.executions.sum();
+        long mesurees = compteurs.mesurees.sum();
+        double moyenneMs = mesurees == 0 ? 0 : compteurs.dureeNanos.sum() / 1e6 / mesurees;
+        double lignes = mesurees == 0 ? 0 : (double) compteurs.lignes.sum() / mesurees;
+        return new StatistiqueSql(empreinte, executions, mesurees, moyenneMs * executions, moyenneMs,
+                compteurs.p99Nanos() / 1e6, compteurs.dureeMaxNanos.get() / 1e6, lignes);
+    }
+
+    private static boolean precedeParIdentifiant(StringBuilder empreinte) {
+        if (empreinte.isEmpty()) {
+            return false;
+        }
+        char precedent = empreinte.charAt(empreinte.length() - 1);
+        return Character.isLetterOrDigit(precedent) || precedent == '_' || precedent == '$';
+    }
+}
@@ -0,0 +1,48 @@
+package fr.digi.hello.serialisation;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Encodages binaires des DTO, choisis par l'en-tête {@code Accept} (et {@code Content-Type} en écriture).
+ * <p>
+ * CBOR ({@value #CBOR}) et Smile ({@value #SMILE}) reprennent le modèle de données JSON : mêmes
+ * DTO, mêmes noms de champs, sans schéma à maintenir, mais sans texte à analyser et avec des
+ * nombres en binaire. Les convertisseurs sont construits à partir du {@link Jackson2ObjectMapperBuilder}
+ * de Spring Boot, pour appliquer les mêmes réglages ({@code spring.jackson.*}, modules) qu'en JSON.
+ * Ils remplacent ceux que Spring MVC ajoute de lui-même et gardent leur place après le
+ * convertisseur JSON : sans {@code Accept}, ou avec {@code *}{@code /*}, la réponse reste en JSON.
+ */
+@Configuration
+public class FormatsBinairesConfiguration {
+
+    /** Type de média CBOR (RFC 8949). */
+    public static final String CBOR = MediaType.APPLICATION_CBOR_VALUE;
+
+    /** Type de média Smile. */
+    public static final String SMILE = "application/x-jackson-smile";
+
+    /**
+     * @param builder constructeur d'{@code ObjectMapper} configuré par Spring Boot
+     * @return convertisseur CBOR
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter convertisseurCbor(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * @param builder constructeur d'{@code ObjectMapper} configuré par Spring Boot
+     * @return convertisseur Smile
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter convertisseurSmile(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,258 @@
+package fr.digi.hello.services;
+
+import fr.digi.hello.dao.DepartementDao;
+import fr.digi.hello.items.Departement;
+import fr.digi.hello.utils.NormaliseurNom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache mémoire des départements, indexé par code et par nom normalisé.
+ * <p>
+ * La table des départements (une centaine de lignes) est chargée en une requête au premier accès,
+ * puis publiée comme un instantané immuable : les lectures concurrentes ne prennent aucun verrou
+ * et un code ou un nom inconnu est résolu sans aller en base. Si la table dépasse
+ * {@code cache.departements.taille-max}, rien n'est conservé et chaque résolution interroge la base ;
+ * ce constat est mémorisé jusqu'à la prochaine invalidation, sans recompter la table à chaque accès.
+ * <p>
+ * Les écritures de {@link DepartementService} appellent {@link #invalider()} ; le prochain accès
+ * recharge la table.
+ */
+@Component
+public class DepartementCache {
+
+    /**
+     * Statistiques d'utilisation du cache.
+     *
+     * @param succes         résolutions servies depuis la mémoire
+     * @param echecs         résolutions ayant nécessité une requête
+     * @param chargements    chargements complets de la table
+     * @param invalidations  invalidations reçues
+     * @param taille         nombre de départements en mémoire
+     */
+    public record Statistiques(long succes, long echecs, long chargements, long invalidations, int taille) {
+    }
+
+    /** Instantané immuable de la table. */
+    private record Instantane(Map<String, Departement> parCode, Map<String, Departement> parNom) {
+    }
+
+    private final DepartementDao departementDao;
+    private final int tailleMax;
+    private final int tailleLot;
+
+    private final Object verrou = new Object();
+    private volatile Instantane instantane;
+    private long generation;
+    /** Génération pour laquelle la table a été jugée trop grande, {@code -1} sinon. */
+    private long generationTropGrande = -1;
+
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder chargements = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Constructeur avec injection du DAO.
+     *
+     * @param departementDao DAO utilisé pour charger la table
+     * @param tailleMax      nombre maximal de départements conservés en mémoire
+     * @param tailleLot      nombre de codes par requête lorsque la table n'est pas en mémoire
+     */
+    public DepartementCache(DepartementDao departementDao,
+                            @Value("${cache.departements.taille-max:1000}") int tailleMax,
+                            @Value("${lecture-groupee.taille-lot:500}") int tailleLot) {
+        this.departementDao = departementDao;
+        this.tailleMax = tailleMax;
+        this.tailleLot = tailleLot;
+    }
+
+    /**
+     * Résout un département par son code (insensible à la casse).
+     *
+     * @param code code du département (peut être {@code null})
+     * @return un {@link Optional} contenant le département s'il existe
+     */
+    public Optional<Departement> parCode(String code) {
+        if (code == null || code.isBlank()) {
+            return Optional.empty();
+        }
+        Instantane courant = instantane();
+        if (courant == null) {
+            echecs.increment();
+            return departementDao.findByCodeIgnoreCase(code.trim()).map(DepartementCache::copie);
+        }
+        succes.increment();
+        return Optional.ofNullable(courant.parCode().get(cleCode(code)));
+    }
+
+    /**
+     * Résout des départements par leurs codes (insensibles à la casse). Sans instantané, la base est
+     * interrogée par requêtes {@code IN} de {@code lecture-groupee.taille-lot} codes, jamais code par code.
+     *
+     * @param codes codes des départements
+     * @return départements trouvés, indexés par le code tel que demandé
+     */
+    public Map<String, Departement> parCodes(Collection<String> codes) {
+        List<String> cles = codes.stream()
+                .filter(code -> code != null && !code.isBlank())
+                .map(DepartementCache::cleCode)
+                .distinct()
+                .toList();
+        Instantane courant = instantane();
+        Map<String, Departement> parCle;
+        if (courant != null) {
+            succes.increment();
+            parCle = courant.parCode();
+        } else {
+            echecs.increment();
+            parCle = new HashMap<>();
+            for (int debut = 0; debut < cles.size(); debut += tailleLot) {
+                for (Departement departement : departementDao.findByCodesMajuscules(
+                        cles.subList(debut, Math.min(cles.size(), debut + tailleLot)))) {
+                    parCle.put(cleCode(departement.getCode()), copie(departement));
+                }
+            }
+        }
+
+        Map<String, Departement> trouves = new HashMap<>();
+        for (String code : codes) {
+            if (code != null && !code.isBlank() && parCle.get(cleCode(code)) instanceof Departement departement) {
+                trouves.put(code, departement);
+            }
+        }
+        return trouves;
+    }
+
+    /**
+     * Résout un département par son nom (insensible à la casse et aux accents).
+     *
+     * @param nom nom du département (peut être {@code null})
+     * @return un {@link Optional} contenant le département s'il existe
+     */
+    public Optional<Departement> parNom(String nom) {
+        if (nom == null || nom.isBlank()) {
+            return Optional.empty();
+        }
+        String nomNormalise = NormaliseurNom.normaliser(nom);
+        Instantane courant = instantane();
+        if (courant == null) {
+            echecs.increment();
+            return departementDao.findByNomNormalise(nomNormalise).map(DepartementCache::copie);
+        }
+        succes.increment();
+        return Optional.ofNullable(courant.parNom().get(nomNormalise));
+    }
+
+    /**
+     * Vide le cache. Dans une transaction, le cache est vidé immédiatement puis à nouveau
+     * après validation, pour qu'un chargement concurrent ne conserve pas l'état d'avant l'écriture.
+     */
+    public void invalider() {
+        vider();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    vider();
+                }
+            });
+        }
+    }
+
+    /**
+     * @return statistiques courantes du cache
+     */
+    public Statistiques statistiques() {
+        Instantane courant = instantane;
+        return new Statistiques(succes.sum(), echecs.sum(), chargements.sum(), invalidations.sum(),
+                courant == null ? 0 : courant.parCode().size());
+    }
+
+    private void vider() {
+        synchronized (verrou) {
+            generation++;
+            instantane = null;
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * Renvoie l'instantané courant, en chargeant la table si nécessaire.
+     *
+     * @return instantané, ou {@code null} si la table est trop grande pour être conservée
+     */
+    private Instantane instantane() {
+        Instantane courant = instantane;
+        if (courant != null) {
+            return courant;
+        }
+
+        long generationLue;
+        synchronized (verrou) {
+            generationLue = generation;
+            if (generationTropGrande == generationLue) {
+                return null;
+            }
+        }
+        if (departementDao.count() > tailleMax) {
+            synchronized (verrou) {
+                if (generation == generationLue) {
+                    generationTropGrande = generationLue;
+                }
+            }
+            return null;
+        }
+        List<Departement> departements = departementDao.findAll();
+        chargements.increment();
+        if (departements.size() > tailleMax) {
+            return null;
+        }
+
+        Map<String, Departement> parCode = new HashMap<>();
+        Map<String, Departement> parNom = new HashMap<>();
+        for (Departement departement : departements) {
+            Departement copie = copie(departement);
+            if (copie.getCode() != null) {
+                parCode.put(cleCode(copie.getCode()), copie);
+            }
+            if (copie.getNomNormalise() != null) {
+                parNom.put(copie.getNomNormalise(), copie);
+            }
+        }
+        Instantane nouveau = new Instantane(Map.copyOf(parCode), Map.copyOf(parNom));
+
+        synchronized (verrou) {
+            // Une invalidation pendant le chargement rend ce résultat potentiellement obsolète.
+            if (generation == generationLue) {
+                instantane = nouveau;
+            }
+        }
+        return nouveau;
+    }
+
+    private static String cleCode(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Copie détachée d'un département, partagée entre les requêtes sans être liée
+     * au contexte de persistance de celle qui l'a chargée.
+     */
+    private static Departement copie(Departement departement) {
+        Departement copie = new Departement(departement.getId(), departement.getNom(), departement.getCode());
+        // Sans version, Hibernate prendrait la copie pour une entité transiente lorsqu'une ville la référence.
+        copie.setVersion(departement.getVersion());
+        return copie;
+    }
+}
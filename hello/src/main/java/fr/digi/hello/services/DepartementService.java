@@ -1,22 +1,45 @@
 package fr.digi.hello.services;
 
 import fr.digi.hello.dao.DepartementDao;
+import fr.digi.hello.evenements.VillesRechargeesEvent;
 import fr.digi.hello.items.Departement;
+import fr.digi.hello.items.Ville;
+import fr.digi.hello.metriques.MetriquesConfiguration;
+import fr.digi.hello.utils.LectureGroupee;
+import fr.digi.hello.utils.NormaliseurNom;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.BiFunction;
 
 /**
  * Service métier pour la gestion des départements.
  * <p>
  * Fournit des méthodes pour rechercher, insérer, modifier et supprimer
  * des départements via {@link DepartementDao} et l’API {@link EntityManager}.
+ * Les lectures par identifiant, code et nom sont servies par le cache de second niveau
+ * Hibernate, que les écritures tiennent à jour.
  */
 @Service
+@Timed(value = MetriquesConfiguration.SERVICES, histogram = true)
 @Transactional
 public class DepartementService {
 
@@ -24,14 +47,28 @@ public class DepartementService {
     private EntityManager entityManager;
 
     private final DepartementDao departementDao;
+    private final DepartementCache departementCache;
+    private final ApplicationEventPublisher publisher;
+    private final VersionsCollections versionsCollections;
+    private final int tailleMaxLecture;
 
     /**
      * Constructeur avec injection du DAO.
      *
      * @param departementDao DAO pour accéder aux données des départements
+     * @param departementCache cache des départements, invalidé à chaque écriture
+     * @param publisher publication des événements de rechargement des index de villes
+     * @param versionsCollections versions des collections, incrémentées à chaque écriture
+     * @param tailleMaxLecture nombre maximal de codes d'une lecture groupée
      */
-    public DepartementService(DepartementDao departementDao) {
+    public DepartementService(DepartementDao departementDao, DepartementCache departementCache,
+                              ApplicationEventPublisher publisher, VersionsCollections versionsCollections,
+                              @Value("${lecture-groupee.taille-max:1000}") int tailleMaxLecture) {
         this.departementDao = departementDao;
+        this.departementCache = departementCache;
+        this.publisher = publisher;
+        this.versionsCollections = versionsCollections;
+        this.tailleMaxLecture = tailleMaxLecture;
     }
 
     /**
@@ -51,6 +88,24 @@ public class DepartementService {
      */
     public List<Departement> extractDepartements() {
         return entityManager.createQuery("SELECT d FROM Departement d", Departement.class)
+                .setHint(AvailableHints.HINT_CACHEABLE, true)
+                .getResultList();
+    }
+
+    /**
+     * Récupère une page de départements triés par identifiant (pagination par curseur).
+     * <p>
+     * Lit {@code taille + 1} lignes pour que l'appelant sache s'il existe une page suivante.
+     *
+     * @param apresId dernier identifiant de la page précédente ({@code 0} pour la première page)
+     * @param taille  taille de la page
+     * @return au plus {@code taille + 1} départements d'identifiant strictement supérieur à {@code apresId}
+     */
+    public List<Departement> extractDepartements(int apresId, int taille) {
+        return entityManager.createQuery(
+                        "SELECT d FROM Departement d WHERE d.id > :apresId ORDER BY d.id", Departement.class)
+                .setParameter("apresId", apresId)
+                .setMaxResults(taille + 1)
                 .getResultList();
     }
 
@@ -65,29 +120,91 @@ public class DepartementService {
     }
 
     /**
-     * Recherche un département par son nom (insensible à la casse).
+     * Recherche des départements par leurs codes (insensibles à la casse), depuis
+     * {@link DepartementCache}, ou par requêtes {@code IN} si la table n'y est pas conservée.
+     *
+     * @param codes codes des départements, éventuellement répétés
+     * @return départements trouvés, indexés par le code tel que demandé
+     * @throws IllegalArgumentException si la liste est vide, contient {@code null} ou dépasse
+     *                                  {@code lecture-groupee.taille-max}
+     */
+    public Map<String, Departement> extractDepartements(Collection<String> codes) {
+        LectureGroupee.verifier(codes, "codes", tailleMaxLecture);
+        return departementCache.parCodes(codes);
+    }
+
+    /**
+     * Recherche un département par son nom (insensible à la casse et aux accents).
      *
      * @param nom nom du département
      * @return un {@link Optional} contenant le département s’il existe
      */
     public Optional<Departement> extractDepartement(String nom) {
         List<Departement> departements = entityManager.createQuery(
-                        "SELECT d FROM Departement d WHERE LOWER(d.nom) = LOWER(:nom)", Departement.class)
-                .setParameter("nom", nom)
+                        "SELECT d FROM Departement d WHERE d.nomNormalise = :nom ORDER BY d.id", Departement.class)
+                .setParameter("nom", NormaliseurNom.normaliser(nom))
+                .setHint(AvailableHints.HINT_CACHEABLE, true)
                 .getResultList();
 
         return departements.stream().findFirst();
     }
 
+    /**
+     * Identifiant et version d'un département, sans charger le département.
+     *
+     * @param id identifiant du département
+     * @return {@code "id.version"}, vide si le département n'existe pas
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> versionDepartement(int id) {
+        return entityManager.createQuery("SELECT d.id, d.version FROM Departement d WHERE d.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList()
+                .stream()
+                .findFirst()
+                .map(ligne -> ligne[0] + "." + ligne[1]);
+    }
+
+    /**
+     * Identifiant et version d'un département déjà lu, au même format que {@link #versionDepartement(int)}.
+     *
+     * @param departement département lu
+     * @return {@code "id.version"}
+     */
+    public String versionDepartement(Departement departement) {
+        return departement.getId() + "." + departement.getVersion();
+    }
+
+    /**
+     * Identifiant et version du département renvoyé par {@link #extractDepartement(String)}.
+     *
+     * @param nom nom du département
+     * @return {@code "id.version"}, vide si le département n'existe pas
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> versionDepartement(String nom) {
+        return entityManager.createQuery(
+                        "SELECT d.id, d.version FROM Departement d WHERE d.nomNormalise = :nom ORDER BY d.id", Object[].class)
+                .setParameter("nom", NormaliseurNom.normaliser(nom))
+                .setMaxResults(1)
+                .getResultList()
+                .stream()
+                .findFirst()
+                .map(ligne -> ligne[0] + "." + ligne[1]);
+    }
+
     /**
      * Insère un nouveau département.
      *
      * @param departement département à persister
-     * @return liste mise à jour des départements
+     * @return département enregistré, avec son identifiant
      */
-    public List<Departement> insertDepartement(Departement departement) {
-        departementDao.save(departement);
-        return departementDao.findAll();
+    public Departement insertDepartement(Departement departement) {
+        departementCache.invalider();
+        versionsCollections.incrementer(VersionsCollections.DEPARTEMENTS);
+        // Une création ne remplace jamais un département existant : l'identifiant éventuel est ignoré.
+        departement.setId(null);
+        return departementDao.save(departement);
     }
 
     /**
@@ -95,16 +212,17 @@ public class DepartementService {
      *
      * @param idDepartement identifiant du département à modifier
      * @param departementModifie nouvelles données
-     * @return liste mise à jour des départements
+     * @return un {@link Optional} contenant le département modifié, vide s'il n'existe pas
      */
-    public List<Departement> modifierDepartement(int idDepartement, Departement departementModifie) {
+    public Optional<Departement> modifierDepartement(int idDepartement, Departement departementModifie) {
+        invaliderCaches("modifierDepartement");
         Optional<Departement> opt = departementDao.findById(idDepartement);
         if (opt.isPresent()) {
             Departement departement = opt.get();
             departement.setNom(departementModifie.getNom());
             departementDao.save(departement);
         }
-        return departementDao.findAll();
+        return opt;
     }
 
     /**
@@ -112,54 +230,130 @@ public class DepartementService {
      *
      * @param nom nom du département actuel
      * @param departementModifie nouvelles données
-     * @return liste mise à jour des départements
+     * @return un {@link Optional} contenant le département modifié, vide s'il n'existe pas
      */
-    public List<Departement> modifierDepartementParNom(String nom, Departement departementModifie) {
+    public Optional<Departement> modifierDepartementParNom(String nom, Departement departementModifie) {
+        invaliderCaches("modifierDepartementParNom");
         List<Departement> departements = entityManager.createQuery(
-                        "SELECT d FROM Departement d WHERE LOWER(d.nom) = LOWER(:nom)", Departement.class)
-                .setParameter("nom", nom)
+                        "SELECT d FROM Departement d WHERE d.nomNormalise = :nom", Departement.class)
+                .setParameter("nom", NormaliseurNom.normaliser(nom))
                 .getResultList();
 
         if (!departements.isEmpty()) {
             Departement departement = departements.get(0);
             departement.setNom(departementModifie.getNom());
             departement.setCode(departementModifie.getCode());
-            entityManager.merge(departement);
+            return Optional.of(entityManager.merge(departement));
         }
 
-        return entityManager.createQuery("SELECT d FROM Departement d", Departement.class)
-                .getResultList();
+        return Optional.empty();
+    }
+
+    /**
+     * Modifie le nom et/ou le code d'un département s'il est encore à la version attendue, en une
+     * seule requête {@code UPDATE ... WHERE id = :id AND version = :version}, sans charger le département.
+     * Hibernate évince la région du cache de second niveau touchée par la mise à jour.
+     * <p>
+     * Le département modifié est relu dans la même transaction, la ligne encore verrouillée par la
+     * mise à jour : son contenu et sa version décrivent le même état.
+     *
+     * @param idDepartement identifiant du département
+     * @param version       version de la ligne lue par le client
+     * @param modifications nom et/ou code à modifier, {@code null} pour ceux qui ne changent pas
+     * @return le département modifié, vide s'il n'existe pas ou n'est plus à cette version
+     * @throws IllegalArgumentException si ni le nom ni le code ne sont à modifier
+     */
+    public Optional<Departement> modifierDepartementSiVersion(int idDepartement, int version, Departement modifications) {
+        StringJoiner affectations = new StringJoiner(", ", "UPDATE Departement d SET ",
+                ", d.version = d.version + 1 WHERE d.id = :id AND d.version = :version");
+        if (modifications.getNom() == null && modifications.getCode() == null) {
+            throw new IllegalArgumentException("Aucun champ à modifier");
+        }
+        if (modifications.getNom() != null) {
+            affectations.add("d.nom = :nom").add("d.nomNormalise = :nomNormalise");
+        }
+        if (modifications.getCode() != null) {
+            affectations.add("d.code = :code");
+        }
+        Query requete = entityManager.createQuery(affectations.toString())
+                .setParameter("id", idDepartement)
+                .setParameter("version", version);
+        if (modifications.getNom() != null) {
+            requete.setParameter("nom", modifications.getNom())
+                    .setParameter("nomNormalise", modifications.getNomNormalise());
+        }
+        if (modifications.getCode() != null) {
+            requete.setParameter("code", modifications.getCode());
+        }
+        if (requete.executeUpdate() == 0) {
+            return Optional.empty();
+        }
+        invaliderCaches("modifierDepartementSiVersion");
+        // La mise à jour ensembliste ne touche pas un département déjà chargé dans le contexte de persistance.
+        Departement modifie = entityManager.find(Departement.class, idDepartement);
+        entityManager.refresh(modifie);
+        return Optional.of(modifie);
     }
 
     /**
-     * Supprime un département par identifiant.
+     * Supprime un département par identifiant, avec ses villes.
      *
      * @param idDepartement identifiant du département à supprimer
-     * @return liste mise à jour des départements
+     * @return {@code true} si le département existait et a été supprimé
      */
-    public List<Departement> supprimerDepartement(int idDepartement) {
-        departementDao.deleteById(idDepartement);
-        return departementDao.findAll();
+    public boolean supprimerDepartement(int idDepartement) {
+        invaliderCaches("supprimerDepartement");
+        return supprimer((critere, departement) -> critere.equal(departement.get("id"), idDepartement)) > 0;
     }
 
     /**
-     * Supprime un département par son nom.
+     * Supprime un département par son nom, avec ses villes.
      *
      * @param nom nom du département à supprimer
-     * @return liste mise à jour des départements
+     * @return {@code true} si le département existait et a été supprimé
      */
-    public List<Departement> supprimerDepartementParNom(String nom) {
-        Optional<Departement> opt = departementDao.findByNomIgnoreCase(nom);
-        if (opt.isPresent()) {
-            Departement departement = opt.get();
+    public boolean supprimerDepartementParNom(String nom) {
+        invaliderCaches("supprimerDepartementParNom");
+        String nomNormalise = NormaliseurNom.normaliser(nom);
+        return supprimer((critere, departement) -> critere.equal(departement.get("nomNormalise"), nomNormalise)) > 0;
+    }
 
-            if (entityManager.contains(departement)) {
-                entityManager.remove(departement);
-            } else {
-                entityManager.remove(entityManager.merge(departement));
-            }
-        }
-        return entityManager.createQuery("SELECT d FROM Departement d", Departement.class)
-                .getResultList();
+    /**
+     * Supprime les départements retenus par un critère et toutes leurs villes, en deux requêtes
+     * {@code DELETE} ensemblistes : ni les départements ni les villes ne sont chargés, quel que
+     * soit leur nombre, alors que la cascade JPA de {@link Departement#getVilles()} les chargerait
+     * et les supprimerait un par un.
+     * <p>
+     * Hibernate évince du cache de second niveau la région des entités supprimées ; les index de
+     * villes sont rechargés par l'appelant ({@link #invaliderCaches(String)}).
+     *
+     * @param critere condition sur la racine {@code Departement}
+     * @return nombre de départements supprimés
+     */
+    private int supprimer(BiFunction<CriteriaBuilder, Path<Departement>, Predicate> critere) {
+        CriteriaBuilder constructeur = entityManager.getCriteriaBuilder();
+
+        CriteriaDelete<Ville> villes = constructeur.createCriteriaDelete(Ville.class);
+        Root<Ville> ville = villes.from(Ville.class);
+        Subquery<Integer> ids = villes.subquery(Integer.class);
+        Root<Departement> departementVille = ids.from(Departement.class);
+        ids.select(departementVille.get("id")).where(critere.apply(constructeur, departementVille));
+        entityManager.createQuery(villes.where(ville.get("departement").get("id").in(ids))).executeUpdate();
+
+        CriteriaDelete<Departement> departements = constructeur.createCriteriaDelete(Departement.class);
+        Root<Departement> departement = departements.from(Departement.class);
+        return entityManager.createQuery(departements.where(critere.apply(constructeur, departement))).executeUpdate();
+    }
+
+    /**
+     * Invalide le cache des départements, fait recharger les index de villes, dont les
+     * entrées portent le nom et le code du département, et incrémente la version des deux collections.
+     *
+     * @param origine opération à l'origine de l'invalidation
+     */
+    private void invaliderCaches(String origine) {
+        departementCache.invalider();
+        versionsCollections.incrementer(VersionsCollections.DEPARTEMENTS, VersionsCollections.VILLES);
+        publisher.publishEvent(new VillesRechargeesEvent("DepartementService." + origine));
     }
 }
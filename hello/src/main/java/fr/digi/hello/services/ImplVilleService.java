@@ -1,12 +1,21 @@
 package fr.digi.hello.services;
 
 import fr.digi.hello.dao.VilleDao;
-import fr.digi.hello.items.Ville;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.index.ClassementVilles;
+import fr.digi.hello.index.IndexPopulation;
+import fr.digi.hello.index.IndexSpatial;
+import fr.digi.hello.index.IndexSuggestions;
+import fr.digi.hello.metriques.MetriquesConfiguration;
+import fr.digi.hello.utils.Geodesie;
+import fr.digi.hello.utils.NormaliseurNom;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import org.springframework.stereotype.Service;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,11 +23,18 @@ import java.util.Optional;
  * Service métier pour la gestion des villes.
  * Fournit des méthodes pour rechercher des villes par identifiant, nom
  * ou selon des critères liés à leur population et à leur département.
+ * Les lectures sont projetées directement en {@link VilleDto} (jointure avec le département
+ * dans la même requête, sans entité gérée).
  */
 @Service
+@Timed(value = MetriquesConfiguration.SERVICES, histogram = true)
 public class ImplVilleService {
 
     private final VilleDao villeDao;
+    private final ClassementVilles classementVilles;
+    private final IndexPopulation indexPopulation;
+    private final IndexSpatial indexSpatial;
+    private final IndexSuggestions indexSuggestions;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -27,9 +43,18 @@ public class ImplVilleService {
      * Constructeur avec injection du DAO.
      *
      * @param villeDao DAO pour accéder aux données des villes
+     * @param classementVilles classement en mémoire des villes par population
+     * @param indexPopulation  index en mémoire des villes par tranche de population
+     * @param indexSpatial     index en mémoire des villes par coordonnées
+     * @param indexSuggestions index en mémoire des noms de villes par trigrammes
      */
-    public ImplVilleService(VilleDao villeDao) {
+    public ImplVilleService(VilleDao villeDao, ClassementVilles classementVilles, IndexPopulation indexPopulation,
+                            IndexSpatial indexSpatial, IndexSuggestions indexSuggestions) {
         this.villeDao = villeDao;
+        this.classementVilles = classementVilles;
+        this.indexPopulation = indexPopulation;
+        this.indexSpatial = indexSpatial;
+        this.indexSuggestions = indexSuggestions;
     }
 
     /**
@@ -40,10 +65,38 @@ public class ImplVilleService {
      * @param n              nombre maximum de villes à retourner
      * @return liste des villes triées par population décroissante
      */
-    public List<Ville> nVillesByDepartementOrderByPopulationDesc(String nomDepartement, int n) {
-        String jpql = "SELECT v FROM Ville v WHERE LOWER(v.departement.nom) = LOWER(:nomDepartement) ORDER BY v.nbHabitants DESC";
-        TypedQuery<Ville> query = entityManager.createQuery(jpql, Ville.class);
-        query.setParameter("nomDepartement", nomDepartement);
+    public List<VilleDto> nVillesByDepartementOrderByPopulationDesc(String nomDepartement, int n) {
+        if (n <= 0) {
+            return List.of();
+        }
+        return classementVilles.plusGrandes(nomDepartement, n)
+                .orElseGet(() -> requeteNVillesByDepartement(nomDepartement, n));
+    }
+
+    /**
+     * Récupère les {@code n} villes ayant la plus forte population en France.
+     *
+     * @param n nombre maximum de villes à retourner
+     * @return liste des villes triées par population décroissante
+     */
+    public List<VilleDto> nVillesOrderByPopulationDesc(int n) {
+        if (n <= 0) {
+            return List.of();
+        }
+        return classementVilles.plusGrandes(n)
+                .orElseGet(() -> entityManager.createQuery(
+                                VilleDao.PROJECTION_DTO + "ORDER BY v.nbHabitants DESC, v.id", VilleDto.class)
+                        .setMaxResults(n)
+                        .getResultList());
+    }
+
+    /**
+     * Requête de repli utilisée tant que le classement en mémoire n'est pas construit.
+     */
+    private List<VilleDto> requeteNVillesByDepartement(String nomDepartement, int n) {
+        String jpql = VilleDao.PROJECTION_DTO + "WHERE d.nomNormalise = :nomDepartement ORDER BY v.nbHabitants DESC, v.id";
+        TypedQuery<VilleDto> query = entityManager.createQuery(jpql, VilleDto.class);
+        query.setParameter("nomDepartement", NormaliseurNom.normaliser(nomDepartement));
         query.setMaxResults(n);
         return query.getResultList();
     }
@@ -55,26 +108,120 @@ public class ImplVilleService {
      * @param nomDepartement nom du département
      * @param min            population minimale
      * @param max            population maximale
-     * @return liste des villes correspondant aux critères
+     * @return liste des villes correspondant aux critères, par population décroissante
      */
-    public List<Ville> findVillesByDepartementAndPopulationBetween(String nomDepartement, int min, int max) {
-        String jpql = "SELECT v FROM Ville v WHERE LOWER(v.departement.nom) = LOWER(:nomDepartement) " +
-                "AND v.nbHabitants BETWEEN :min AND :max ORDER BY v.nbHabitants DESC";
-        TypedQuery<Ville> query = entityManager.createQuery(jpql, Ville.class);
-        query.setParameter("nomDepartement", nomDepartement);
+    public List<VilleDto> findVillesByDepartementAndPopulationBetween(String nomDepartement, int min, int max) {
+        return indexPopulation.entre(nomDepartement, min, max)
+                .orElseGet(() -> requeteVillesByDepartementAndPopulationBetween(nomDepartement, min, max));
+    }
+
+    /**
+     * Requête de repli utilisée tant que l'index des populations n'est pas construit.
+     */
+    private List<VilleDto> requeteVillesByDepartementAndPopulationBetween(String nomDepartement, int min, int max) {
+        String jpql = VilleDao.PROJECTION_DTO + "WHERE d.nomNormalise = :nomDepartement " +
+                "AND v.nbHabitants BETWEEN :min AND :max ORDER BY v.nbHabitants DESC, v.id";
+        TypedQuery<VilleDto> query = entityManager.createQuery(jpql, VilleDto.class);
+        query.setParameter("nomDepartement", NormaliseurNom.normaliser(nomDepartement));
         query.setParameter("min", min);
         query.setParameter("max", max);
         return query.getResultList();
     }
 
+    /**
+     * Récupère les {@code k} villes les plus proches d'un point.
+     *
+     * @param latitude  latitude du point, en degrés
+     * @param longitude longitude du point, en degrés
+     * @param k         nombre maximum de villes à retourner
+     * @return liste des villes par distance croissante (les villes sans coordonnées sont ignorées)
+     */
+    public List<VilleDto> villesProches(double latitude, double longitude, int k) {
+        return indexSpatial.plusProches(latitude, longitude, k)
+                .orElseGet(() -> parDistance(requeteVillesAvecCoordonnees(), latitude, longitude, Double.MAX_VALUE, k));
+    }
+
+    /**
+     * Récupère les villes situées à moins d'une distance donnée d'un point.
+     *
+     * @param latitude  latitude du point, en degrés
+     * @param longitude longitude du point, en degrés
+     * @param rayonKm   rayon, en kilomètres
+     * @param limite    nombre maximum de villes à retourner
+     * @return liste des villes par distance croissante
+     */
+    public List<VilleDto> villesDansRayon(double latitude, double longitude, double rayonKm, int limite) {
+        return indexSpatial.dansRayon(latitude, longitude, rayonKm, limite)
+                .orElseGet(() -> parDistance(requeteVillesAvecCoordonnees(), latitude, longitude, rayonKm, limite));
+    }
+
+    /**
+     * Requête de repli utilisée tant que l'index spatial n'est pas construit : les distances sont
+     * calculées ici plutôt qu'en SQL, la requête ne fait que lire les villes géolocalisées.
+     */
+    private List<VilleDto> requeteVillesAvecCoordonnees() {
+        return entityManager.createQuery(VilleDao.PROJECTION_DTO
+                        + "WHERE v.latitude IS NOT NULL AND v.longitude IS NOT NULL", VilleDto.class)
+                .getResultList();
+    }
+
+    private static List<VilleDto> parDistance(List<VilleDto> villes, double latitude, double longitude,
+                                              double rayonKm, int limite) {
+        Comparator<VilleDto> ordre = Comparator
+                .comparingDouble((VilleDto ville) -> distanceKm(ville, latitude, longitude))
+                .thenComparing(VilleDto::getId);
+        return villes.stream()
+                .filter(ville -> distanceKm(ville, latitude, longitude) <= rayonKm)
+                .sorted(ordre)
+                .limit(Math.max(0, limite))
+                .toList();
+    }
+
+    private static double distanceKm(VilleDto ville, double latitude, double longitude) {
+        return Geodesie.distanceKm(latitude, longitude, ville.getLatitude(), ville.getLongitude());
+    }
+
+    /**
+     * Suggère des villes pour une saisie partielle ou approximative (« mars » → Marseille,
+     * « toulose » → Toulouse).
+     *
+     * @param saisie texte saisi
+     * @param n      nombre maximum de suggestions
+     * @return villes les plus ressemblantes, les plus peuplées d'abord à ressemblance égale
+     */
+    public List<VilleDto> suggererVilles(String saisie, int n) {
+        if (n <= 0) {
+            return List.of();
+        }
+        return indexSuggestions.suggerer(saisie, n)
+                .orElseGet(() -> requeteVillesParPrefixe(saisie, n));
+    }
+
+    /**
+     * Requête de repli utilisée tant que l'index des suggestions n'est pas construit :
+     * recherche par début de nom seulement, sans tolérance aux fautes.
+     */
+    private List<VilleDto> requeteVillesParPrefixe(String saisie, int n) {
+        String prefixe = NormaliseurNom.normaliser(saisie);
+        if (prefixe == null || prefixe.isEmpty()) {
+            return List.of();
+        }
+        String motif = prefixe.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return entityManager.createQuery(VilleDao.PROJECTION_DTO
+                        + "WHERE v.nomNormalise LIKE :motif ESCAPE '\\' ORDER BY v.nbHabitants DESC, v.id", VilleDto.class)
+                .setParameter("motif", motif)
+                .setMaxResults(n)
+                .getResultList();
+    }
+
     /**
      * Recherche une ville par son identifiant.
      *
      * @param id identifiant de la ville
      * @return un {@link Optional} contenant la ville si trouvée
      */
-    public Optional<Ville> extractVille(Integer id) {
-        return villeDao.findById(id);
+    public Optional<VilleDto> extractVille(Integer id) {
+        return villeDao.findDtoById(id);
     }
 
     /**
@@ -83,7 +230,12 @@ public class ImplVilleService {
      * @param nom nom de la ville
      * @return un {@link Optional} contenant la ville si trouvée
      */
-    public Optional<Ville> extractVille(String nom) {
-        return villeDao.findByNomIgnoreCase(nom);
+    public Optional<VilleDto> extractVille(String nom) {
+        return entityManager.createQuery(VilleDao.PROJECTION_DTO + "WHERE v.nomNormalise = :nom", VilleDto.class)
+                .setParameter("nom", NormaliseurNom.normaliser(nom))
+                .setMaxResults(1)
+                .getResultList()
+                .stream()
+                .findFirst();
     }
 }
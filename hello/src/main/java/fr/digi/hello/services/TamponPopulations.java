@@ -0,0 +1,443 @@
+package fr.digi.hello.services;
+
+import fr.digi.hello.dao.VilleDao;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Écriture différée des populations : les corrections fréquentes d'une même ville sont
+ * regroupées en mémoire puis écrites par lots, au lieu d'une transaction JPA chacune.
+ * <p>
+ * Chaque correction (valeur absolue ou incrément) est fusionnée avec celles déjà en attente pour
+ * la même ville, sous le verrou de la seule case de la table de hachage concernée : les villes
+ * différentes ne se gênent pas. Toutes les {@code populations.delai-max}, les villes en attente
+ * sont écrites par des {@code UPDATE} JDBC envoyés en lots de {@code populations.taille-lot}, dans
+ * une seule transaction qui incrémente aussi la version de chaque ligne et celle de la collection,
+ * et publie un {@link VilleModifieeEvent} par ville pour les index en mémoire.
+ * <p>
+ * Durabilité : une correction acceptée n'est qu'en mémoire jusqu'à l'écriture suivante, soit au
+ * plus {@code populations.delai-max} plus la durée d'une écriture. L'arrêt normal de l'application
+ * écrit tout ce qui reste, une fois le serveur HTTP arrêté ; un arrêt brutal perd les corrections
+ * en attente. Si la base est indisponible, les corrections restent en attente pour le cycle suivant ;
+ * si un lot échoue pour une autre raison, ses villes sont réécrites une à une et celles qui échouent
+ * encore sont abandonnées, pour qu'une ligne fautive ne bloque pas les autres. Une ville inconnue,
+ * ou supprimée entre-temps, est ignorée.
+ * <p>
+ * Écritures complètes concurrentes (PUT, PATCH, suppression) : elles oublient les corrections en
+ * attente qui les précèdent ({@link #oublier(Integer)}), rétablies si leur transaction est annulée.
+ * Une écriture du tampon verrouille d'abord les lignes ({@code SELECT ... FOR UPDATE}) puis relève
+ * les corrections : une écriture complète validée avant a déjà oublié les siennes, une écriture
+ * complète postérieure attend la validation du tampon et passe après lui. La mise à jour est en plus
+ * conditionnée par la version verrouillée.
+ * <p>
+ * Lectures : la lecture d'une ville par identifiant ou par nom ajoute les corrections en attente à
+ * la valeur lue en base ({@link #appliquer(VilleDto)}), et son ETag change avec elles
+ * ({@link #suffixeVersion(Integer)}). Les listes, classements et index ne les voient qu'une fois
+ * écrites. Les corrections écrites sont retirées juste avant la validation : pendant la validation,
+ * une lecture peut encore voir l'ancienne valeur, jamais une correction comptée deux fois.
+ */
+@Service
+public class TamponPopulations implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TamponPopulations.class);
+
+    /** Population minimale d'une ville, comme pour {@code VilleValidator}. */
+    static final int POPULATION_MIN = 1;
+
+    private static final String UPDATE_VALEUR =
+            "UPDATE villes SET nb_habitants = GREATEST(?, " + POPULATION_MIN + "), version = version + 1 "
+                    + "WHERE id = ? AND version = ?";
+    /**
+     * Borné comme {@link Correction#appliquer(Integer)} ; la somme est calculée en {@code DECIMAL}
+     * pour ne pas déborder avant d'être bornée.
+     */
+    private static final String UPDATE_INCREMENT =
+            "UPDATE villes SET nb_habitants = LEAST(GREATEST(COALESCE(nb_habitants, 0) + CAST(? AS DECIMAL(20)), " + POPULATION_MIN + "), "
+                    + Integer.MAX_VALUE + "), version = version + 1 WHERE id = ? AND version = ?";
+
+    /**
+     * Corrections en attente pour une ville.
+     *
+     * @param valeur    dernière valeur absolue demandée, {@code null} si seuls des incréments ont été reçus
+     * @param increment somme des incréments reçus depuis cette valeur (ou depuis la dernière écriture)
+     * @param sequence  numéro de la dernière correction fusionnée
+     */
+    record Correction(Integer valeur, long increment, long sequence) {
+
+        /**
+         * @param suivante correction reçue après celle-ci
+         * @return les deux corrections fusionnées ; une valeur absolue efface ce qui la précède
+         */
+        Correction puis(Correction suivante) {
+            return suivante.valeur() != null
+                    ? suivante
+                    : new Correction(valeur, increment + suivante.increment(), suivante.sequence());
+        }
+
+        /**
+         * @param base population lue en base ({@code null} si inconnue)
+         * @return population après application de la correction
+         */
+        int appliquer(Integer base) {
+            long resultat = (valeur != null ? valeur : base == null ? 0 : base) + increment;
+            return (int) Math.max(POPULATION_MIN, Math.min(Integer.MAX_VALUE, resultat));
+        }
+    }
+
+    /** Correction relevée pour l'écriture d'une ville, avec la version de la ligne verrouillée. */
+    private record Ecriture(Integer id, Correction correction, int version) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VersionsCollections versionsCollections;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transaction;
+    private final int tailleLot;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Integer, Correction> enAttente = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Une seule écriture à la fois. */
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    private volatile boolean demarre;
+
+    /**
+     * Constructeur.
+     *
+     * @param jdbcTemplate        accès JDBC pour les mises à jour par lots
+     * @param versionsCollections versions des collections, incrémentées à chaque écriture
+     * @param publisher           publication des villes modifiées
+     * @param transactionManager  transaction de chaque écriture
+     * @param tailleLot           nombre de mises à jour envoyées par aller-retour
+     */
+    public TamponPopulations(JdbcTemplate jdbcTemplate, VersionsCollections versionsCollections,
+                             ApplicationEventPublisher publisher, PlatformTransactionManager transactionManager,
+                             @Value("${populations.taille-lot:500}") int tailleLot) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.versionsCollections = versionsCollections;
+        this.publisher = publisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.tailleLot = Math.max(1, tailleLot);
+    }
+
+    /**
+     * Met en attente une population absolue.
+     *
+     * @param id     identifiant de la ville
+     * @param valeur nouvelle population
+     */
+    public void fixer(Integer id, int valeur) {
+        ajouter(id, new Correction(valeur, 0, sequence.incrementAndGet()));
+    }
+
+    /**
+     * Met en attente un incrément (positif ou négatif) de population.
+     *
+     * @param id        identifiant de la ville
+     * @param increment variation de population
+     */
+    public void incrementer(Integer id, int increment) {
+        ajouter(id, new Correction(null, increment, sequence.incrementAndGet()));
+    }
+
+    private void ajouter(Integer id, Correction correction) {
+        enAttente.merge(id, correction, Correction::puis);
+    }
+
+    /**
+     * Applique à une ville lue en base les corrections en attente pour elle.
+     *
+     * @param ville ville lue en base
+     * @return la même ville, population corrigée le cas échéant
+     */
+    public VilleDto appliquer(VilleDto ville) {
+        Correction correction = enAttente.get(ville.getId());
+        if (correction != null) {
+            ville.setNbHabitants(correction.appliquer(ville.getNbHabitants()));
+        }
+        return ville;
+    }
+
+    /**
+     * Complément de version d'une ville ayant des corrections en attente, pour son ETag.
+     *
+     * @param id identifiant de la ville
+     * @return {@code ".p<n>"} ({@code n} : dernière correction reçue), ou une chaîne vide
+     */
+    public String suffixeVersion(Integer id) {
+        Correction correction = enAttente.get(id);
+        return correction == null ? "" : ".p" + correction.sequence();
+    }
+
+    /**
+     * Oublie les corrections en attente d'une ville, remplacées par une écriture complète
+     * (modification ou suppression) qui leur est postérieure. Dans une transaction, elles sont
+     * rétablies si celle-ci n'est pas validée.
+     *
+     * @param id identifiant de la ville
+     */
+    public void oublier(Integer id) {
+        Correction oubliee = enAttente.remove(id);
+        if (oubliee != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int statut) {
+                    if (statut != STATUS_COMMITTED) {
+                        enAttente.merge(id, oubliee, (courante, retablie) -> retablie.puis(courante));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return nombre de villes ayant des corrections en attente
+     */
+    public int nombreEnAttente() {
+        return enAttente.size();
+    }
+
+    /**
+     * Écrit en base toutes les corrections en attente.
+     *
+     * @return nombre de villes écrites
+     */
+    @Scheduled(fixedDelayString = "${populations.delai-max:200ms}")
+    public int ecrire() {
+        if (enAttente.isEmpty()) {
+            return 0;
+        }
+        verrou.lock();
+        try {
+            List<Integer> ids = List.copyOf(enAttente.keySet());
+            try {
+                return transaction.execute(statut -> ecrire(ids));
+            } catch (RuntimeException e) {
+                if (indisponible(e) || ids.size() == 1) {
+                    return echec(ids, e);
+                }
+                LOGGER.warn("Écriture groupée de {} populations impossible, écriture ville par ville", ids.size(), e);
+            }
+            int ecrites = 0;
+            for (Integer id : ids) {
+                try {
+                    ecrites += transaction.execute(statut -> ecrire(List.of(id)));
+                } catch (RuntimeException e) {
+                    if (indisponible(e)) {
+                        echec(ids, e);
+                        return ecrites;
+                    }
+                    echec(List.of(id), e);
+                }
+            }
+            return ecrites;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Traite l'échec de l'écriture de villes : conservées si la base est indisponible, abandonnées sinon.
+     *
+     * @return {@code 0}, aucune ville écrite
+     */
+    private int echec(List<Integer> ids, RuntimeException e) {
+        if (indisponible(e)) {
+            LOGGER.warn("Écriture de {} populations impossible, nouvel essai au prochain cycle", ids.size(), e);
+        } else {
+            // Les corrections ont été rétablies à l'annulation ; celles reçues depuis restent en attente.
+            LOGGER.error("Corrections de population de la ville {} abandonnées", ids.get(0), e);
+            Correction abandonnee = enAttente.get(ids.get(0));
+            if (abandonnee != null) {
+                enAttente.computeIfPresent(ids.get(0), (id, courante) -> reste(courante, abandonnee));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return {@code true} si l'échec tient à la base (connexion, verrou, interblocage) et non aux données
+     */
+    private static boolean indisponible(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private int ecrire(List<Integer> ids) {
+        // Lignes verrouillées avant de relever les corrections : voir la documentation de la classe.
+        Map<Integer, Integer> versions = verrouiller(ids);
+        List<Ecriture> ecrites = new ArrayList<>();
+        List<Object[]> valeurs = new ArrayList<>();
+        List<Object[]> increments = new ArrayList<>();
+        for (Integer id : ids) {
+            Correction correction = enAttente.get(id);
+            Integer version = versions.get(id);
+            if (correction == null) {
+                continue;
+            }
+            if (version == null) {
+                // Ville inconnue ou supprimée.
+                enAttente.computeIfPresent(id, (cle, courante) -> reste(courante, correction));
+                continue;
+            }
+            ecrites.add(new Ecriture(id, correction, version));
+            if (correction.valeur() != null) {
+                valeurs.add(new Object[]{correction.appliquer(null), id, version});
+            } else {
+                increments.add(new Object[]{correction.increment(), id, version});
+            }
+        }
+        if (ecrites.isEmpty()) {
+            return 0;
+        }
+        mettreAJour(UPDATE_VALEUR, valeurs);
+        mettreAJour(UPDATE_INCREMENT, increments);
+
+        versionsCollections.incrementer(VersionsCollections.VILLES);
+        List<Integer> ecritesIds = ecrites.stream().map(Ecriture::id).toList();
+        for (int debut = 0; debut < ecritesIds.size(); debut += tailleLot) {
+            entityManager.createQuery(VilleDao.PROJECTION_DTO + "WHERE v.id IN :ids", VilleDto.class)
+                    .setParameter("ids", ecritesIds.subList(debut, Math.min(ecritesIds.size(), debut + tailleLot)))
+                    .getResultList()
+                    .forEach(ville -> publisher.publishEvent(
+                            new VilleModifieeEvent(ville.getId(), ville, versions.get(ville.getId()) + 1)));
+        }
+
+        // Dernière étape avant la validation : les lectures cessent d'ajouter ces corrections à la base.
+        for (Ecriture ecrite : ecrites) {
+            enAttente.computeIfPresent(ecrite.id(), (id, courante) -> reste(courante, ecrite.correction()));
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int statut) {
+                if (statut != STATUS_COMMITTED) {
+                    // Remises en attente avant les corrections reçues depuis.
+                    ecrites.forEach(ecrite -> enAttente.merge(ecrite.id(), ecrite.correction(),
+                            (courante, perdue) -> perdue.puis(courante)));
+                }
+            }
+        });
+        return ecrites.size();
+    }
+
+    /**
+     * Verrouille les lignes des villes, par identifiant croissant pour que deux écritures ne
+     * s'interbloquent pas.
+     *
+     * @return version de chaque ville existante
+     */
+    private Map<Integer, Integer> verrouiller(List<Integer> ids) {
+        List<Integer> tries = ids.stream().sorted().toList();
+        Map<Integer, Integer> versions = new HashMap<>();
+        for (int debut = 0; debut < tries.size(); debut += tailleLot) {
+            List<Integer> lot = tries.subList(debut, Math.min(tries.size(), debut + tailleLot));
+            jdbcTemplate.query("SELECT id, version FROM villes WHERE id IN ("
+                            + String.join(", ", Collections.nCopies(lot.size(), "?")) + ") ORDER BY id FOR UPDATE",
+                    (RowCallbackHandler) ligne -> versions.put(ligne.getInt(1), ligne.getInt(2)),
+                    lot.toArray());
+        }
+        return versions;
+    }
+
+    private void mettreAJour(String sql, List<Object[]> lignes) {
+        if (!lignes.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, lignes, tailleLot, (ps, ligne) -> {
+                ps.setObject(1, ligne[0]);
+                ps.setObject(2, ligne[1]);
+                ps.setObject(3, ligne[2]);
+            });
+        }
+    }
+
+    /**
+     * Ce qui reste à écrire d'une correction courante une fois {@code ecrite} en base.
+     *
+     * @return {@code null} si rien n'a été reçu depuis
+     */
+    private static Correction reste(Correction courante, Correction ecrite) {
+        if (courante.sequence() == ecrite.sequence()) {
+            return null;
+        }
+        // Une valeur absolue se réécrit sans dommage ; des incréments seuls ne doivent pas être comptés deux fois.
+        return courante.valeur() != null
+                ? courante
+                : new Correction(null, courante.increment() - ecrite.increment(), courante.sequence());
+    }
+
+    /** Rien à démarrer : les écritures sont planifiées par {@link #ecrire()}. */
+    @Override
+    public void start() {
+        demarre = true;
+    }
+
+    /**
+     * Écrit les corrections restantes à l'arrêt de l'application : après le serveur HTTP, qui
+     * n'accepte alors plus de nouvelles corrections (voir {@link #getPhase()}), et avant la
+     * fermeture de la source de données.
+     */
+    @Override
+    public void stop() {
+        int ecrites = ecrire();
+        if (ecrites > 0) {
+            LOGGER.info("{} populations en attente écrites à l'arrêt", ecrites);
+        }
+        demarre = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return demarre;
+    }
+
+    /**
+     * Les composants de phase plus basse s'arrêtent plus tard : celle-ci est inférieure à celle du
+     * serveur web ({@code DEFAULT_PHASE - 2048}).
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * @param id identifiant de la ville
+     * @return correction en attente, pour les tests
+     */
+    Optional<Correction> enAttente(Integer id) {
+        return Optional.ofNullable(enAttente.get(id));
+    }
+}
@@ -0,0 +1,135 @@
+package fr.digi.hello.services;
+
+import fr.digi.hello.evenements.CollectionsModifieesEvent;
+import fr.digi.hello.items.VersionCollection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Versions des collections exposées par l'API, utilisées comme ETag des listes.
+ * <p>
+ * Une écriture sur une collection fait incrémenter sa version une fois sa transaction validée, dans
+ * une courte transaction distincte : la ligne de version n'est jamais verrouillée jusqu'à la fin
+ * d'une transaction d'écriture, ce qui sérialiserait tous les écrivains de la collection. Les
+ * collections modifiées par une même transaction sont incrémentées ensemble, une seule fois. Entre
+ * la validation et l'incrémentation, un lecteur peut lire les nouvelles lignes sous l'ancienne
+ * version ; l'incrémentation qui suit rend sa réponse obsolète, jamais l'inverse. La version d'une
+ * collection se lit sur clé primaire, sans charger les lignes. Chaque incrémentation publie un
+ * {@link CollectionsModifieesEvent}.
+ */
+@Service
+@Transactional
+public class VersionsCollections {
+
+    /** Collection des villes (y compris le nom et le code de leur département). */
+    public static final String VILLES = "villes";
+
+    /** Collection des départements. */
+    public static final String DEPARTEMENTS = "departements";
+
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate incrementation;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Constructeur.
+     *
+     * @param publisher          publication des événements de modification des collections
+     * @param transactionManager transactions des incrémentations
+     */
+    public VersionsCollections(ApplicationEventPublisher publisher, PlatformTransactionManager transactionManager) {
+        this.publisher = publisher;
+        this.incrementation = new TransactionTemplate(transactionManager);
+        this.incrementation.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Crée les versions absentes au démarrage de l'application.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        for (String nom : List.of(VILLES, DEPARTEMENTS)) {
+            if (entityManager.find(VersionCollection.class, nom) == null) {
+                entityManager.persist(new VersionCollection(nom, 0));
+            }
+        }
+    }
+
+    /**
+     * Version courante d'une collection.
+     *
+     * @param nom nom de la collection
+     * @return la version, {@code 0} si la collection n'a pas encore de version
+     */
+    @Transactional(readOnly = true)
+    public long version(String nom) {
+        return entityManager.createQuery(
+                        "SELECT c.version FROM VersionCollection c WHERE c.nom = :nom", Long.class)
+                .setParameter("nom", nom)
+                .getResultList()
+                .stream()
+                .findFirst()
+                .orElse(0L);
+    }
+
+    /**
+     * Incrémente la version des collections données une fois la transaction courante validée
+     * (aucune incrémentation si elle est annulée), ou aussitôt hors transaction.
+     *
+     * @param noms noms des collections modifiées
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void incrementer(String... noms) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            incrementation.executeWithoutResult(statut -> appliquer(List.of(noms)));
+            return;
+        }
+        Incrementation incrementationEnAttente = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(Incrementation.class::isInstance)
+                .map(Incrementation.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    Incrementation nouvelle = new Incrementation();
+                    TransactionSynchronizationManager.registerSynchronization(nouvelle);
+                    return nouvelle;
+                });
+        incrementationEnAttente.noms.addAll(List.of(noms));
+    }
+
+    /** Collections modifiées par une transaction, incrémentées après sa validation. */
+    private final class Incrementation implements TransactionSynchronization {
+
+        final Set<String> noms = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            incrementation.executeWithoutResult(statut -> appliquer(List.copyOf(noms)));
+        }
+    }
+
+    private void appliquer(List<String> noms) {
+        entityManager.createQuery(
+                        "UPDATE VersionCollection c SET c.version = c.version + 1 WHERE c.nom IN :noms")
+                .setParameter("noms", noms)
+                .executeUpdate();
+        // Publié dans la transaction d'incrémentation : ses écouteurs la voient validée.
+        publisher.publishEvent(new CollectionsModifieesEvent(noms));
+    }
+}
@@ -1,26 +1,62 @@
 package fr.digi.hello.services;
 
 import fr.digi.hello.dao.VilleDao;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import fr.digi.hello.evenements.VillesRechargeesEvent;
 import fr.digi.hello.items.Ville;
+import fr.digi.hello.mappers.MapperUtil;
+import fr.digi.hello.metriques.MetriquesConfiguration;
+import fr.digi.hello.utils.LectureGroupee;
+import fr.digi.hello.utils.NormaliseurNom;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service métier pour la gestion des villes.
  * <p>
  * Fournit des opérations CRUD et des méthodes de recherche
- * par identifiant ou par nom.
+ * par identifiant ou par nom. Chaque écriture publie un {@link VilleModifieeEvent}
+ * pour tenir à jour les index en mémoire et incrémente la version de la collection
+ * ({@link VersionsCollections#VILLES}).
+ * <p>
+ * Les lectures d'une ville tiennent compte des corrections de population encore en attente
+ * d'écriture ({@link TamponPopulations}).
  */
 @Service
+@Timed(value = MetriquesConfiguration.SERVICES, histogram = true)
 @Transactional
 public class VilleService {
 
     private final VilleDao villeDao;
+    private final ApplicationEventPublisher publisher;
+    private final VersionsCollections versionsCollections;
+    private final TamponPopulations tamponPopulations;
+    private final int tailleLotExport;
+    private final int tailleLotLecture;
+    private final int tailleMaxLecture;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -29,92 +65,238 @@ public class VilleService {
      * Constructeur avec injection du DAO.
      *
      * @param villeDao DAO permettant l'accès aux données des villes
+     * @param publisher publication des événements de modification
+     * @param versionsCollections versions des collections, incrémentées à chaque écriture
+     * @param tamponPopulations corrections de population en attente d'écriture
+     * @param tailleLotExport nombre de lignes lues à chaque aller-retour lors d'un parcours complet
+     * @param tailleLotLecture nombre d'identifiants par requête {@code IN} d'une lecture groupée
+     * @param tailleMaxLecture nombre maximal d'identifiants d'une lecture groupée
      */
-    public VilleService(VilleDao villeDao) {
+    public VilleService(VilleDao villeDao, ApplicationEventPublisher publisher,
+                        VersionsCollections versionsCollections, TamponPopulations tamponPopulations,
+                        @Value("${export.taille-lot:500}") int tailleLotExport,
+                        @Value("${lecture-groupee.taille-lot:500}") int tailleLotLecture,
+                        @Value("${lecture-groupee.taille-max:1000}") int tailleMaxLecture) {
         this.villeDao = villeDao;
+        this.publisher = publisher;
+        this.versionsCollections = versionsCollections;
+        this.tamponPopulations = tamponPopulations;
+        this.tailleLotExport = tailleLotExport;
+        this.tailleLotLecture = tailleLotLecture;
+        this.tailleMaxLecture = tailleMaxLecture;
     }
 
     /**
-     * Récupère toutes les villes.
+     * Récupère toutes les villes, projetées en DTO avec leur département en une seule requête.
      *
      * @return liste des villes
      */
-    public List<Ville> extractVilles() {
-        return entityManager.createQuery("SELECT v FROM Ville v", Ville.class)
+    @Transactional(readOnly = true)
+    public List<VilleDto> extractVilles() {
+        return entityManager.createQuery(VilleDao.PROJECTION_DTO, VilleDto.class)
+                .getResultList();
+    }
+
+    /**
+     * Récupère une page de villes triées par identifiant (pagination par curseur).
+     * <p>
+     * Lit {@code taille + 1} lignes pour que l'appelant sache s'il existe une page suivante.
+     *
+     * @param apresId dernier identifiant de la page précédente ({@code 0} pour la première page)
+     * @param taille  taille de la page
+     * @return au plus {@code taille + 1} villes d'identifiant strictement supérieur à {@code apresId}
+     */
+    @Transactional(readOnly = true)
+    public List<VilleDto> extractVilles(int apresId, int taille) {
+        return entityManager.createQuery(
+                        VilleDao.PROJECTION_DTO + "WHERE v.id > :apresId ORDER BY v.id", VilleDto.class)
+                .setParameter("apresId", apresId)
+                .setMaxResults(taille + 1)
                 .getResultList();
     }
 
+    /**
+     * Parcourt toutes les villes par identifiant croissant, sans jamais les tenir toutes en mémoire.
+     * <p>
+     * Les lignes sont lues au fil d'un curseur, par lots de {@code export.taille-lot} ; la projection
+     * en DTO ne place aucune entité dans le contexte de persistance, qui reste vide quel que soit le
+     * nombre de villes. La transaction reste ouverte jusqu'à la fin du parcours.
+     *
+     * @param consommateur traitement appliqué à chaque ville, dans l'ordre de lecture
+     * @return nombre de villes parcourues
+     */
+    @Transactional(readOnly = true)
+    public long parcourirVilles(Consumer<VilleDto> consommateur) {
+        long nombre = 0;
+        try (Stream<VilleDto> villes = entityManager.createQuery(VilleDao.PROJECTION_DTO + "ORDER BY v.id", VilleDto.class)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, tailleLotExport)
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            Iterator<VilleDto> curseur = villes.iterator();
+            while (curseur.hasNext()) {
+                consommateur.accept(curseur.next());
+                nombre++;
+            }
+        }
+        return nombre;
+    }
+
     /**
      * Recherche une ville par identifiant.
      *
      * @param id identifiant de la ville
      * @return un {@link Optional} contenant la ville si trouvée
      */
-    public Optional<Ville> extractVille(Integer id) {
-        return villeDao.findById(id);
+    @Transactional(readOnly = true)
+    public Optional<VilleDto> extractVille(Integer id) {
+        return villeDao.findDtoById(id).map(tamponPopulations::appliquer);
+    }
+
+    /**
+     * Recherche des villes par identifiants, en requêtes {@code IN} de {@code lecture-groupee.taille-lot}
+     * identifiants : une seule requête pour une liste courte, quel que soit le nombre de villes demandées.
+     *
+     * @param ids identifiants des villes, éventuellement répétés
+     * @return villes trouvées, indexées par identifiant
+     * @throws IllegalArgumentException si la liste est vide, contient {@code null} ou dépasse
+     *                                  {@code lecture-groupee.taille-max}
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, VilleDto> extractVilles(Collection<Integer> ids) {
+        LectureGroupee.verifier(ids, "identifiants", tailleMaxLecture);
+        List<Integer> distincts = ids.stream().distinct().toList();
+        Map<Integer, VilleDto> villes = new HashMap<>();
+        for (int debut = 0; debut < distincts.size(); debut += tailleLotLecture) {
+            entityManager.createQuery(VilleDao.PROJECTION_DTO + "WHERE v.id IN :ids", VilleDto.class)
+                    .setParameter("ids", distincts.subList(debut, Math.min(distincts.size(), debut + tailleLotLecture)))
+                    .getResultList()
+                    .forEach(ville -> villes.put(ville.getId(), tamponPopulations.appliquer(ville)));
+        }
+        return villes;
     }
 
     /**
-     * Recherche une ville par nom (insensible à la casse).
+     * Recherche une ville par nom (insensible à la casse et aux accents).
      *
      * @param nom nom de la ville
      * @return un {@link Optional} contenant la ville si trouvée
      */
-    public Optional<Ville> extractVille(String nom) {
-        List<Ville> villes = entityManager.createQuery(
-                        "SELECT v FROM Ville v WHERE LOWER(v.nom) = LOWER(:nom)", Ville.class)
-                .setParameter("nom", nom)
+    @Transactional(readOnly = true)
+    public Optional<VilleDto> extractVille(String nom) {
+        List<VilleDto> villes = entityManager.createQuery(
+                        VilleDao.PROJECTION_DTO + "WHERE v.nomNormalise = :nom ORDER BY v.id", VilleDto.class)
+                .setParameter("nom", NormaliseurNom.normaliser(nom))
+                .setMaxResults(1)
                 .getResultList();
 
-        return villes.stream().findFirst();
+        return villes.stream().findFirst().map(tamponPopulations::appliquer);
+    }
+
+    /**
+     * Identifiant et version d'une ville et de son département, sans charger la ville.
+     *
+     * @param id identifiant de la ville
+     * @return {@code "id.versionVille.versionDepartement"}, suivi de la dernière correction de
+     *         population en attente s'il y en a une, vide si la ville n'existe pas
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> versionVille(Integer id) {
+        return versions(entityManager.createQuery(
+                        "SELECT v.id, v.version, d.version FROM Ville v LEFT JOIN v.departement d WHERE v.id = :id",
+                        Object[].class)
+                .setParameter("id", id)
+                .getResultList());
+    }
+
+    /**
+     * Identifiant et version de la ville renvoyée par {@link #extractVille(String)} et de son département.
+     *
+     * @param nom nom de la ville
+     * @return {@code "id.versionVille.versionDepartement"}, suivi de la dernière correction de
+     *         population en attente s'il y en a une, vide si la ville n'existe pas
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> versionVille(String nom) {
+        return versions(entityManager.createQuery(
+                        "SELECT v.id, v.version, d.version FROM Ville v LEFT JOIN v.departement d "
+                                + "WHERE v.nomNormalise = :nom ORDER BY v.id", Object[].class)
+                .setParameter("nom", NormaliseurNom.normaliser(nom))
+                .setMaxResults(1)
+                .getResultList());
+    }
+
+    /**
+     * Indique si une ville existe, sans la charger.
+     *
+     * @param id identifiant de la ville
+     * @return {@code true} si la ville existe
+     */
+    @Transactional(readOnly = true)
+    public boolean existe(Integer id) {
+        return !entityManager.createQuery("SELECT 1 FROM Ville v WHERE v.id = :id", Integer.class)
+                .setParameter("id", id)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
     }
 
     /**
      * Insère une nouvelle ville.
      *
      * @param ville ville à sauvegarder
-     * @return liste mise à jour des villes
+     * @return ville enregistrée, avec son identifiant
      */
-    public List<Ville> insertVille(Ville ville) {
-        villeDao.save(ville);
-        return villeDao.findAll();
+    public Ville insertVille(Ville ville) {
+        // Une création ne remplace jamais une ville existante : l'identifiant éventuel est ignoré.
+        ville.setId(null);
+        Ville enregistree = villeDao.save(ville);
+        publier(enregistree);
+        return enregistree;
     }
 
     /**
      * Met à jour une ville existante en fonction de son identifiant.
+     * Les coordonnées ne sont remplacées que si la latitude et la longitude sont toutes deux fournies.
      *
      * @param idVille identifiant de la ville à modifier
      * @param villeModifie données modifiées
-     * @return liste mise à jour des villes
+     * @return un {@link Optional} contenant la ville modifiée, vide si elle n'existe pas
      */
-    public List<Ville> modifierVille(Integer idVille, Ville villeModifie) {
+    public Optional<Ville> modifierVille(Integer idVille, Ville villeModifie) {
         Optional<Ville> opt = villeDao.findById(idVille);
         if (opt.isPresent()) {
             Ville ville = opt.get();
             ville.setNom(villeModifie.getNom().toLowerCase());
             ville.setNbHabitants(villeModifie.getNbHabitants());
+            // La population écrite remplace les corrections encore en attente, qui la précèdent.
+            tamponPopulations.oublier(idVille);
+            // Comme pour une modification par nom : des coordonnées absentes sont conservées.
+            if (villeModifie.getLatitude() != null && villeModifie.getLongitude() != null) {
+                ville.coordonnees(villeModifie.getLatitude(), villeModifie.getLongitude());
+            }
 
             // Mise à jour du département si différent et non nul
             if (villeModifie.getDepartement() != null) {
                 ville.setDepartement(villeModifie.getDepartement());
             }
 
-            villeDao.save(ville);
+            publier(villeDao.save(ville));
         }
-        return villeDao.findAll();
+        return opt;
     }
 
     /**
      * Met à jour une ville existante en fonction de son nom.
+     * Les coordonnées ne sont remplacées que si la latitude et la longitude sont toutes deux fournies.
      *
      * @param nom nom actuel de la ville
      * @param villeModifiee données modifiées
-     * @return liste mise à jour des villes
+     * @return un {@link Optional} contenant la ville modifiée, vide si elle n'existe pas
      */
-    public List<Ville> modifierVilleParNom(String nom, Ville villeModifiee) {
+    public Optional<Ville> modifierVilleParNom(String nom, Ville villeModifiee) {
         List<Ville> villes = entityManager.createQuery(
-                        "SELECT v FROM Ville v WHERE LOWER(v.nom) = LOWER(:nom)", Ville.class)
-                .setParameter("nom", nom)
+                        "SELECT v FROM Ville v WHERE v.nomNormalise = :nom", Ville.class)
+                .setParameter("nom", NormaliseurNom.normaliser(nom))
                 .getResultList();
 
         if (!villes.isEmpty()) {
@@ -125,48 +307,174 @@ public class VilleService {
             }
             if (villeModifiee.getNbHabitants() != null && villeModifiee.getNbHabitants() > 0) {
                 ville.setNbHabitants(villeModifiee.getNbHabitants());
+                tamponPopulations.oublier(ville.getId());
+            }
+            if (villeModifiee.getLatitude() != null && villeModifiee.getLongitude() != null) {
+                ville.coordonnees(villeModifiee.getLatitude(), villeModifiee.getLongitude());
             }
             if (villeModifiee.getDepartement() != null) {
                 ville.setDepartement(villeModifiee.getDepartement());
             }
 
-            entityManager.merge(ville);
+            Ville fusionnee = entityManager.merge(ville);
+            publier(fusionnee);
+            return Optional.of(fusionnee);
         }
 
-        return entityManager.createQuery("SELECT v FROM Ville v", Ville.class)
-                .getResultList();
+        return Optional.empty();
     }
 
+    /**
+     * Modifie les champs renseignés d'une ville si elle est encore à la version attendue, en une
+     * seule requête {@code UPDATE ... WHERE id = :id AND version = :version} : la ville n'est pas
+     * chargée, et deux modifications concurrentes partant de la même version ne peuvent pas
+     * réussir toutes les deux.
+     * <p>
+     * La ville modifiée est ensuite relue en DTO pour les index et la réponse.
+     *
+     * @param idVille       identifiant de la ville
+     * @param version       version de la ligne lue par le client
+     * @param modifications champs à modifier, {@code null} pour ceux qui ne changent pas
+     *                      (latitude et longitude ensemble)
+     * @return la ville modifiée, vide si elle n'existe pas ou n'est plus à cette version
+     * @throws IllegalArgumentException si aucun champ n'est à modifier
+     */
+    public Optional<VilleDto> modifierVilleSiVersion(Integer idVille, int version, Ville modifications) {
+        StringJoiner affectations = new StringJoiner(", ", "UPDATE Ville v SET ",
+                ", v.version = v.version + 1 WHERE v.id = :id AND v.version = :version");
+        Map<String, Object> parametres = new HashMap<>();
+        if (modifications.getNom() != null) {
+            affectations.add("v.nom = :nom").add("v.nomNormalise = :nomNormalise");
+            parametres.put("nom", modifications.getNom());
+            parametres.put("nomNormalise", modifications.getNomNormalise());
+        }
+        if (modifications.getNbHabitants() != null) {
+            affectations.add("v.nbHabitants = :nbHabitants");
+            parametres.put("nbHabitants", modifications.getNbHabitants());
+        }
+        if (modifications.getLatitude() != null && modifications.getLongitude() != null) {
+            affectations.add("v.latitude = :latitude").add("v.longitude = :longitude");
+            parametres.put("latitude", modifications.getLatitude());
+            parametres.put("longitude", modifications.getLongitude());
+        }
+        if (modifications.getDepartement() != null) {
+            affectations.add("v.departement = :departement");
+            parametres.put("departement", modifications.getDepartement());
+        }
+        if (parametres.isEmpty()) {
+            throw new IllegalArgumentException("Aucun champ à modifier");
+        }
+
+        Query requete = entityManager.createQuery(affectations.toString())
+                .setParameter("id", idVille)
+                .setParameter("version", version);
+        parametres.forEach(requete::setParameter);
+        if (requete.executeUpdate() == 0) {
+            return Optional.empty();
+        }
+
+        if (modifications.getNbHabitants() != null) {
+            tamponPopulations.oublier(idVille);
+        }
+        versionsCollections.incrementer(VersionsCollections.VILLES);
+        Optional<VilleDto> modifiee = villeDao.findDtoById(idVille);
+        modifiee.ifPresent(ville -> publisher.publishEvent(new VilleModifieeEvent(idVille, ville, version + 1)));
+        return modifiee.map(tamponPopulations::appliquer);
+    }
 
     /**
-     * Supprime une ville par identifiant.
+     * Supprime une ville par identifiant, sans la charger.
      *
      * @param idVille identifiant de la ville
-     * @return liste mise à jour des villes
+     * @return {@code true} si la ville existait et a été supprimée
      */
-    public List<Ville> supprimerVille(Integer idVille) {
-        villeDao.deleteById(idVille);
-        return villeDao.findAll();
+    public boolean supprimerVille(Integer idVille) {
+        return supprimerVilles(null, null, null, List.of(idVille)) > 0;
     }
 
     /**
-     * Supprime une ville par nom.
+     * Supprime par nom la ville renvoyée par {@link #extractVille(String)}, sans la charger.
      *
      * @param nom nom de la ville à supprimer
-     * @return liste mise à jour des villes
+     * @return {@code true} si la ville existait et a été supprimée
      */
-    public List<Ville> supprimerVilleParNom(String nom) {
-        Optional<Ville> opt = villeDao.findByNomIgnoreCase(nom);
-        if (opt.isPresent()) {
-            List<Ville> villes = entityManager.createQuery(
-                            "SELECT v FROM Ville v WHERE LOWER(v.nom) = LOWER(:nom)", Ville.class)
-                    .setParameter("nom", nom)
-                    .getResultList();
-            Ville ville = villes.get(0);
-            entityManager.remove(ville);
+    public boolean supprimerVilleParNom(String nom) {
+        List<Integer> ids = entityManager.createQuery(
+                        "SELECT v.id FROM Ville v WHERE v.nomNormalise = :nom ORDER BY v.id", Integer.class)
+                .setParameter("nom", NormaliseurNom.normaliser(nom))
+                .setMaxResults(1)
+                .getResultList();
+        return !ids.isEmpty() && supprimerVilles(null, null, null, ids) > 0;
+    }
+
+    /**
+     * Supprime en une requête {@code DELETE} ensembliste les villes qui remplissent tous les critères
+     * renseignés, sans les charger.
+     * <p>
+     * Une suppression par liste d'identifiants seule retire ces villes des index une à une ; avec
+     * un autre critère, les villes supprimées ne sont pas connues et les index sont rechargés.
+     *
+     * @param idDepartement villes de ce département, ou {@code null}
+     * @param min           population minimale incluse, ou {@code null}
+     * @param max           population maximale incluse, ou {@code null}
+     * @param ids           identifiants des villes, ou {@code null}
+     * @return nombre de villes supprimées
+     * @throws IllegalArgumentException si aucun critère n'est renseigné
+     */
+    public int supprimerVilles(Integer idDepartement, Integer min, Integer max, List<Integer> ids) {
+        CriteriaBuilder constructeur = entityManager.getCriteriaBuilder();
+        CriteriaDelete<Ville> suppression = constructeur.createCriteriaDelete(Ville.class);
+        Root<Ville> ville = suppression.from(Ville.class);
+        List<Predicate> criteres = new ArrayList<>();
+        if (idDepartement != null) {
+            criteres.add(constructeur.equal(ville.get("departement").get("id"), idDepartement));
+        }
+        if (min != null) {
+            criteres.add(constructeur.ge(ville.get("nbHabitants"), min));
+        }
+        if (max != null) {
+            criteres.add(constructeur.le(ville.get("nbHabitants"), max));
+        }
+        if (ids != null) {
+            criteres.add(ville.get("id").in(ids));
+        }
+        if (criteres.isEmpty()) {
+            throw new IllegalArgumentException("Aucun critère de suppression");
         }
 
-        return entityManager.createQuery("SELECT v FROM Ville v", Ville.class)
-                .getResultList();
+        int supprimees = entityManager.createQuery(suppression.where(criteres.toArray(Predicate[]::new)))
+                .executeUpdate();
+        if (supprimees > 0) {
+            versionsCollections.incrementer(VersionsCollections.VILLES);
+            if (criteres.size() == 1 && ids != null) {
+                ids.forEach(id -> {
+                    tamponPopulations.oublier(id);
+                    publisher.publishEvent(VilleModifieeEvent.suppression(id));
+                });
+            } else {
+                // Les corrections en attente des villes supprimées sont ignorées à leur écriture.
+                publisher.publishEvent(new VillesRechargeesEvent("VilleService.supprimerVilles"));
+            }
+        }
+        return supprimees;
+    }
+
+    /**
+     * Publie le nouvel état d'une ville enregistrée.
+     * La modification est écrite d'abord, pour que l'événement porte la version de la ligne.
+     *
+     * @param ville ville créée ou modifiée
+     */
+    private void publier(Ville ville) {
+        entityManager.flush();
+        versionsCollections.incrementer(VersionsCollections.VILLES);
+        publisher.publishEvent(new VilleModifieeEvent(ville.getId(), MapperUtil.toVilleDto(ville), ville.getVersion()));
+    }
+
+    private Optional<String> versions(List<Object[]> lignes) {
+        return lignes.stream()
+                .findFirst()
+                .map(ligne -> ligne[0] + "." + ligne[1] + "." + (ligne[2] == null ? 0 : ligne[2])
+                        + tamponPopulations.suffixeVersion((Integer) ligne[0]));
     }
 }
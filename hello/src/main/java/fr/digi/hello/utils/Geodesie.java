@@ -0,0 +1,62 @@
+package fr.digi.hello.utils;
+
+/**
+ * Calculs de distance sur la sphère terrestre (rayon moyen), en kilomètres.
+ */
+public final class Geodesie {
+
+    /** Rayon terrestre moyen, en kilomètres. */
+    public static final double RAYON_TERRE_KM = 6371.0088;
+
+    private Geodesie() {
+    }
+
+    /**
+     * Distance orthodromique entre deux points (formule de haversine).
+     *
+     * @param lat1 latitude du premier point, en degrés
+     * @param lon1 longitude du premier point, en degrés
+     * @param lat2 latitude du second point, en degrés
+     * @param lon2 longitude du second point, en degrés
+     * @return distance en kilomètres
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RAYON_TERRE_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Distance minimale entre un point et tout point situé à un écart de longitude d'au moins
+     * {@code ecartLongitude} degrés : distance au demi-méridien correspondant.
+     *
+     * @param latitude       latitude du point, en degrés
+     * @param ecartLongitude écart de longitude, en degrés (positif)
+     * @return distance en kilomètres
+     */
+    public static double distanceMeridienKm(double latitude, double ecartLongitude) {
+        if (ecartLongitude >= 90) {
+            // Le point le plus proche du demi-méridien est alors un pôle.
+            return RAYON_TERRE_KM * Math.toRadians(90 - Math.abs(latitude));
+        }
+        double sinus = Math.cos(Math.toRadians(latitude)) * Math.sin(Math.toRadians(ecartLongitude));
+        return RAYON_TERRE_KM * Math.asin(Math.min(1, sinus));
+    }
+
+    /**
+     * Demi-largeur en longitude de la calotte de rayon {@code rayonKm} centrée sur une latitude.
+     *
+     * @param latitude latitude du centre, en degrés
+     * @param rayonKm  rayon, en kilomètres
+     * @return écart de longitude en degrés, ou {@code 180} si la calotte fait le tour du globe
+     */
+    public static double ecartLongitude(double latitude, double rayonKm) {
+        double angle = rayonKm / RAYON_TERRE_KM;
+        if (angle >= Math.PI / 2 - Math.toRadians(Math.abs(latitude))) {
+            return 180;
+        }
+        return Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(latitude))));
+    }
+}
@@ -0,0 +1,34 @@
+package fr.digi.hello.utils;
+
+import java.util.Collection;
+
+/**
+ * Contrôle des clés d'une lecture groupée (plusieurs villes ou départements en une requête).
+ */
+public final class LectureGroupee {
+
+    private LectureGroupee() {
+    }
+
+    /**
+     * Vérifie les clés demandées.
+     *
+     * @param cles      clés demandées
+     * @param nature    nature des clés, pour le message d'erreur
+     * @param tailleMax nombre maximal de clés
+     * @throws IllegalArgumentException si la liste est vide, contient {@code null} ou dépasse {@code tailleMax}
+     */
+    public static void verifier(Collection<?> cles, String nature, int tailleMax) {
+        if (cles == null || cles.isEmpty()) {
+            throw new IllegalArgumentException("La liste des " + nature + " ne peut pas être vide");
+        }
+        if (cles.size() > tailleMax) {
+            throw new IllegalArgumentException("Au plus " + tailleMax + " " + nature + " par requête");
+        }
+        for (Object cle : cles) {
+            if (cle == null) {
+                throw new IllegalArgumentException("La liste des " + nature + " ne peut pas contenir de valeur nulle");
+            }
+        }
+    }
+}
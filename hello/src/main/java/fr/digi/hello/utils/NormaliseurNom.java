@@ -0,0 +1,49 @@
+package fr.digi.hello.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalisation des noms de villes et de départements pour les recherches.
+ * <p>
+ * Le nom normalisé est en minuscules, sans accents ni espaces en bordure :
+ * « Nîmes », « NIMES » et « nimes » donnent tous {@code "nimes"}.
+ * Il est stocké dans une colonne indexée, ce qui permet des recherches par égalité
+ * au lieu de {@code LOWER(nom) = LOWER(:nom)} (non indexable sous MariaDB).
+ */
+public final class NormaliseurNom {
+
+    /** Marques diacritiques isolées par la décomposition NFD. */
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+
+    private NormaliseurNom() {
+    }
+
+    /**
+     * Normalise un nom.
+     *
+     * @param nom nom à normaliser (peut être {@code null})
+     * @return nom en minuscules et sans accents, ou {@code null} si l'entrée est {@code null}
+     */
+    public static String normaliser(String nom) {
+        if (nom == null) {
+            return null;
+        }
+        String nomNettoye = nom.trim();
+        if (estAscii(nomNettoye)) {
+            return nomNettoye.toLowerCase(Locale.ROOT);
+        }
+        String decompose = Normalizer.normalize(nomNettoye, Normalizer.Form.NFD);
+        return DIACRITIQUES.matcher(decompose).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean estAscii(String texte) {
+        for (int i = 0; i < texte.length(); i++) {
+            if (texte.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -3,7 +3,6 @@ package fr.digi.hello.validators;
 import fr.digi.hello.dto.DepartementDto;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
-import org.springframework.validation.Validator;
 
 /**
  * Validateur personnalisé pour les {@link DepartementDto}.
@@ -11,47 +10,81 @@ import org.springframework.validation.Validator;
  * Vérifie que le code et le nom d’un département sont valides.
  */
 @Component
-public class DepartementValidator implements Validator {
+public class DepartementValidator extends ValidateurRegles<DepartementDto> {
+
+    public DepartementValidator() {
+        super(DepartementDto.class);
+    }
 
     /**
-     * Indique si ce validateur peut s’appliquer à la classe donnée.
+     * Vérifie un {@link DepartementDto} sans enregistrer d'erreur.
      *
-     * @param clazz type de l’objet à valider
-     * @return {@code true} si la classe est un {@link DepartementDto}, {@code false} sinon
+     * @param departementDto département à vérifier
+     * @return {@code true} si le département est valide
      */
     @Override
-    public boolean supports(Class<?> clazz) {
-        return DepartementDto.class.isAssignableFrom(clazz);
+    public boolean estValide(DepartementDto departementDto) {
+        return estValide(departementDto.getCode(), departementDto.getNom());
     }
 
     /**
      * Valide un {@link DepartementDto}.
      *
-     * @param target objet à valider (doit être de type {@link DepartementDto})
-     * @param errors objet collectant les erreurs de validation
+     * @param departementDto département à valider
+     * @param errors         objet collectant les erreurs de validation
      */
     @Override
-    public void validate(Object target, Errors errors) {
-        DepartementDto departementDto = (DepartementDto) target;
+    protected void valider(DepartementDto departementDto, Errors errors) {
+        valider(departementDto.getCode(), departementDto.getNom(), "code", "nom", errors);
+    }
 
-        // Validation du code département
-        if (departementDto.getCode() == null || departementDto.getCode().trim().isEmpty()) {
+    /**
+     * Valide une modification partielle : au moins un champ doit être renseigné, et seuls les
+     * champs renseignés sont vérifiés.
+     *
+     * @param departementDto champs à modifier, {@code null} pour ceux qui ne changent pas
+     * @param errors         objet collectant les erreurs de validation
+     */
+    public void validerModification(DepartementDto departementDto, Errors errors) {
+        if (departementDto.getCode() == null && departementDto.getNom() == null) {
+            errors.reject("ModificationVide", "La modification ne porte sur aucun champ");
+            return;
+        }
+        if (departementDto.getCode() != null && RegleNom.estVide(departementDto.getCode())) {
             errors.rejectValue("code", "CodeDptVide", "Le code du département ne peut pas être vide");
         }
+        if (departementDto.getNom() != null) {
+            RegleNom.DEPARTEMENT.appliquer(departementDto.getNom(), "nom", errors);
+        }
+    }
 
-        // Validation du nom de département
-        if (departementDto.getNom() == null || departementDto.getNom().trim().isEmpty()) {
-            errors.rejectValue("nom", "NomVide", "Le nom du département ne peut pas être vide");
-        } else {
-            String nomDept = departementDto.getNom().trim();
-
-            if (nomDept.matches(".*\\d.*")) {
-                errors.rejectValue("nom", "FormatNomDepartement", "Le nom du département ne doit pas contenir de chiffres");
-            } else if (nomDept.startsWith("-")) {
-                errors.rejectValue("nom", "FormatNomDepartement", "Le nom du département ne doit pas commencer par un tiret");
-            } else if (nomDept.length() < 2) {
-                errors.rejectValue("nom", "NomDepartementCourt", "Le nom du département doit contenir au moins 2 caractères");
-            }
+    /**
+     * Vérifie un code et un nom de département sans enregistrer d'erreur.
+     *
+     * @param code code du département
+     * @param nom  nom du département
+     * @return {@code true} si les deux sont valides
+     */
+    boolean estValide(String code, String nom) {
+        return !RegleNom.estVide(code) && RegleNom.analyser(nom) == null;
+    }
+
+    /**
+     * Valide un code et un nom de département portés par des champs quelconques de l'objet validé.
+     *
+     * @param code      code du département
+     * @param nom       nom du département
+     * @param champCode champ portant le code
+     * @param champNom  champ portant le nom
+     * @param errors    objet collectant les erreurs de validation
+     */
+    void valider(String code, String nom, String champCode, String champNom, Errors errors) {
+        // Validation du code département
+        if (RegleNom.estVide(code)) {
+            errors.rejectValue(champCode, "CodeDptVide", "Le code du département ne peut pas être vide");
         }
+
+        // Validation du nom de département
+        RegleNom.DEPARTEMENT.appliquer(nom, champNom, errors);
     }
 }
@@ -0,0 +1,131 @@
+package fr.digi.hello.validators;
+
+import org.springframework.validation.Errors;
+
+/**
+ * Règle de validation d'un nom (ville ou département), partagée par les validateurs.
+ * <p>
+ * Le nom est analysé en un seul parcours, sans allocation : pas de {@code trim()}, pas
+ * d'expression régulière. Les vérifications et leur ordre sont ceux des validateurs d'origine :
+ * nom vide, chiffres ({@code matches(".*\\d.*")} sur le nom sans ses espaces de bord), tiret
+ * initial, puis longueur minimale de 2 caractères.
+ */
+public final class RegleNom {
+
+    /** Défaut détecté sur un nom. */
+    public enum Defaut {
+        VIDE, CHIFFRES, TIRET, COURT
+    }
+
+    /** Règle appliquée au nom d'une ville. */
+    public static final RegleNom VILLE = new RegleNom(
+            "NomVide", "Le nom ne peut pas être vide",
+            "FormatNom", "Le nom ne doit pas contenir de chiffres",
+            "FormatNom", "Le nom ne doit pas commencer par un tiret",
+            "NomCourt", "Le nom doit contenir au moins 2 caractères");
+
+    /** Règle appliquée au nom d'un département. */
+    public static final RegleNom DEPARTEMENT = new RegleNom(
+            "NomVide", "Le nom du département ne peut pas être vide",
+            "FormatNomDepartement", "Le nom du département ne doit pas contenir de chiffres",
+            "FormatNomDepartement", "Le nom du département ne doit pas commencer par un tiret",
+            "NomDepartementCourt", "Le nom du département doit contenir au moins 2 caractères");
+
+    private final String[] codes;
+    private final String[] messages;
+
+    private RegleNom(String codeVide, String messageVide,
+                     String codeChiffres, String messageChiffres,
+                     String codeTiret, String messageTiret,
+                     String codeCourt, String messageCourt) {
+        this.codes = new String[]{codeVide, codeChiffres, codeTiret, codeCourt};
+        this.messages = new String[]{messageVide, messageChiffres, messageTiret, messageCourt};
+    }
+
+    /**
+     * Vérifie un nom et enregistre l'éventuelle erreur sur le champ donné.
+     *
+     * @param nom    nom à vérifier (peut être {@code null})
+     * @param champ  champ sur lequel rejeter la valeur
+     * @param errors collecteur des erreurs
+     * @return {@code true} si le nom est valide
+     */
+    public boolean appliquer(String nom, String champ, Errors errors) {
+        Defaut defaut = analyser(nom);
+        if (defaut == null) {
+            return true;
+        }
+        errors.rejectValue(champ, codes[defaut.ordinal()], messages[defaut.ordinal()]);
+        return false;
+    }
+
+    /**
+     * Analyse un nom.
+     *
+     * @param nom nom à analyser (peut être {@code null})
+     * @return le premier défaut détecté, ou {@code null} si le nom est valide
+     */
+    public static Defaut analyser(String nom) {
+        if (nom == null) {
+            return Defaut.VIDE;
+        }
+        int debut = debut(nom);
+        int fin = fin(nom, debut);
+        if (debut == fin) {
+            return Defaut.VIDE;
+        }
+
+        boolean chiffre = false;
+        boolean finDeLigne = false;
+        for (int i = debut; i < fin; i++) {
+            char c = nom.charAt(i);
+            if (c >= '0' && c <= '9') {
+                chiffre = true;
+            } else if (estFinDeLigne(c)) {
+                finDeLigne = true;
+            }
+        }
+        // « . » ne reconnaît pas les fins de ligne : avec l'une d'elles, l'expression d'origine échoue.
+        if (chiffre && !finDeLigne) {
+            return Defaut.CHIFFRES;
+        }
+        if (nom.charAt(debut) == '-') {
+            return Defaut.TIRET;
+        }
+        if (fin - debut < 2) {
+            return Defaut.COURT;
+        }
+        return null;
+    }
+
+    /**
+     * @param valeur valeur à tester (peut être {@code null})
+     * @return {@code true} si la valeur est {@code null} ou ne contient que des espaces au sens de {@link String#trim()}
+     */
+    public static boolean estVide(String valeur) {
+        return valeur == null || debut(valeur) == valeur.length();
+    }
+
+    /** Premier caractère conservé par {@link String#trim()}. */
+    private static int debut(String valeur) {
+        int debut = 0;
+        while (debut < valeur.length() && valeur.charAt(debut) <= ' ') {
+            debut++;
+        }
+        return debut;
+    }
+
+    /** Fin (exclue) de la partie conservée par {@link String#trim()}. */
+    private static int fin(String valeur, int debut) {
+        int fin = valeur.length();
+        while (fin > debut && valeur.charAt(fin - 1) <= ' ') {
+            fin--;
+        }
+        return fin;
+    }
+
+    /** Fins de ligne reconnues par {@link java.util.regex.Pattern} hors mode {@code UNIX_LINES}. */
+    private static boolean estFinDeLigne(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
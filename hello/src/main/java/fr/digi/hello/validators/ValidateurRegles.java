@@ -0,0 +1,86 @@
+package fr.digi.hello.validators;
+
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base des validateurs construits sur des règles précompilées ({@link RegleNom}).
+ * <p>
+ * Chaque validateur fournit une vérification rapide, {@link #estValide(Object)}, qui ne crée
+ * aucun objet, et la validation détaillée {@link #valider(Object, Errors)}, qui enregistre
+ * les erreurs. {@link #validerLot(List, String)} s'appuie sur la première et ne construit
+ * un {@link Errors} que pour les objets rejetés.
+ *
+ * @param <T> type d'objet validé
+ */
+public abstract class ValidateurRegles<T> implements Validator {
+
+    private final Class<T> type;
+
+    protected ValidateurRegles(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Indique si ce validateur peut s’appliquer à la classe donnée.
+     *
+     * @param clazz type de l’objet à valider
+     * @return {@code true} si la classe est du type validé, {@code false} sinon
+     */
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return type.isAssignableFrom(clazz);
+    }
+
+    /**
+     * Valide un objet du type pris en charge.
+     *
+     * @param target objet à valider
+     * @param errors objet collectant les erreurs de validation
+     */
+    @Override
+    public void validate(Object target, Errors errors) {
+        valider(type.cast(target), errors);
+    }
+
+    /**
+     * Valide une liste d'objets en un appel.
+     *
+     * @param objets   objets à valider
+     * @param nomObjet nom donné à chaque objet dans ses {@link Errors}
+     * @return erreurs des objets rejetés, indexées par leur position dans la liste
+     */
+    public Map<Integer, Errors> validerLot(List<? extends T> objets, String nomObjet) {
+        Map<Integer, Errors> rejets = new LinkedHashMap<>();
+        for (int i = 0; i < objets.size(); i++) {
+            T objet = objets.get(i);
+            if (!estValide(objet)) {
+                Errors erreurs = new BeanPropertyBindingResult(objet, nomObjet);
+                valider(objet, erreurs);
+                rejets.put(i, erreurs);
+            }
+        }
+        return rejets;
+    }
+
+    /**
+     * Vérifie un objet sans enregistrer d'erreur ni allouer.
+     *
+     * @param objet objet à vérifier
+     * @return {@code true} si {@link #valider(Object, Errors)} ne rejetterait rien
+     */
+    public abstract boolean estValide(T objet);
+
+    /**
+     * Valide un objet et enregistre chaque erreur détectée.
+     *
+     * @param objet  objet à valider
+     * @param errors collecteur des erreurs
+     */
+    protected abstract void valider(T objet, Errors errors);
+}
@@ -1,10 +1,8 @@
 package fr.digi.hello.validators;
 
-import fr.digi.hello.dto.DepartementDto;
 import fr.digi.hello.dto.VilleDto;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
-import org.springframework.validation.Validator;
 
 /**
  * Validateur personnalisé pour les {@link VilleDto}.
@@ -13,7 +11,7 @@ import org.springframework.validation.Validator;
  * métier ou persistance.
  */
 @Component
-public class VilleValidator implements Validator {
+public class VilleValidator extends ValidateurRegles<VilleDto> {
 
     private final DepartementValidator departementValidator;
 
@@ -23,42 +21,34 @@ public class VilleValidator implements Validator {
      * @param departementValidator validateur utilisé pour vérifier le département associé
      */
     public VilleValidator(DepartementValidator departementValidator) {
+        super(VilleDto.class);
         this.departementValidator = departementValidator;
     }
 
     /**
-     * Indique si ce validateur peut s’appliquer à la classe donnée.
+     * Vérifie un {@link VilleDto} sans enregistrer d'erreur.
      *
-     * @param clazz type de l’objet à valider
-     * @return {@code true} si la classe est un {@link VilleDto}, sinon {@code false}
+     * @param ville ville à vérifier
+     * @return {@code true} si la ville est valide
      */
     @Override
-    public boolean supports(Class<?> clazz) {
-        return VilleDto.class.isAssignableFrom(clazz);
+    public boolean estValide(VilleDto ville) {
+        return RegleNom.analyser(ville.getNom()) == null
+                && ville.getNbHabitants() != null && ville.getNbHabitants() > 0
+                && (!aUnDepartement(ville) || departementValidator.estValide(ville.getCodeDpt(), ville.getNomDepartement()))
+                && coordonneesValides(ville);
     }
 
     /**
      * Effectue la validation d’un {@link VilleDto}.
+     * Les erreurs du département sont rattachées aux champs {@code codeDpt} et {@code nomDepartement}.
      *
-     * @param target objet à valider (doit être de type {@link VilleDto})
+     * @param ville  ville à valider
      * @param errors collecteur des erreurs de validation détectées
      */
     @Override
-    public void validate(Object target, Errors errors) {
-        VilleDto ville = (VilleDto) target;
-
-        if (ville.getNom() == null || ville.getNom().trim().isEmpty()) {
-            errors.rejectValue("nom", "NomVide", "Le nom ne peut pas être vide");
-        } else {
-            String nom = ville.getNom().trim();
-            if (nom.matches(".*\\d.*")) {
-                errors.rejectValue("nom", "FormatNom", "Le nom ne doit pas contenir de chiffres");
-            } else if (nom.startsWith("-")) {
-                errors.rejectValue("nom", "FormatNom", "Le nom ne doit pas commencer par un tiret");
-            } else if (nom.length() < 2) {
-                errors.rejectValue("nom", "NomCourt", "Le nom doit contenir au moins 2 caractères");
-            }
-        }
+    protected void valider(VilleDto ville, Errors errors) {
+        RegleNom.VILLE.appliquer(ville.getNom(), "nom", errors);
 
         if (ville.getNbHabitants() == null) {
             errors.rejectValue("nbHabitants", "NbHabitantsVide", "Le nombre d'habitants est obligatoire");
@@ -66,12 +56,71 @@ public class VilleValidator implements Validator {
             errors.rejectValue("nbHabitants", "NbHabitantsInvalide", "Le nombre d'habitants doit être supérieur ou égal à 1");
         }
 
-        if (ville.getNomDepartement() != null || ville.getCodeDpt() != null) {
-            DepartementDto departementDto = new DepartementDto();
-            departementDto.setNom(ville.getNomDepartement());
-            departementDto.setCode(ville.getCodeDpt());
+        if (aUnDepartement(ville)) {
+            departementValidator.valider(ville.getCodeDpt(), ville.getNomDepartement(), "codeDpt", "nomDepartement", errors);
+        }
+
+        validerCoordonnees(ville, errors);
+    }
+
+    /**
+     * Valide une modification partielle : au moins un champ doit être renseigné, et seuls les
+     * champs renseignés sont vérifiés, avec les mêmes règles qu'une ville complète.
+     *
+     * @param ville  champs à modifier, {@code null} pour ceux qui ne changent pas
+     * @param errors collecteur des erreurs de validation détectées
+     */
+    public void validerModification(VilleDto ville, Errors errors) {
+        if (ville.getNom() == null && ville.getNbHabitants() == null && ville.getLatitude() == null
+                && ville.getLongitude() == null && ville.getCodeDpt() == null && ville.getNomDepartement() == null) {
+            errors.reject("ModificationVide", "La modification ne porte sur aucun champ");
+            return;
+        }
+        if (ville.getNom() != null) {
+            RegleNom.VILLE.appliquer(ville.getNom(), "nom", errors);
+        }
+        if (ville.getNbHabitants() != null && ville.getNbHabitants() <= 0) {
+            errors.rejectValue("nbHabitants", "NbHabitantsInvalide", "Le nombre d'habitants doit être supérieur ou égal à 1");
+        }
+        if (ville.getCodeDpt() != null && RegleNom.estVide(ville.getCodeDpt())) {
+            errors.rejectValue("codeDpt", "CodeDptVide", "Le code du département ne peut pas être vide");
+        } else if (ville.getCodeDpt() == null && ville.getNomDepartement() != null) {
+            RegleNom.DEPARTEMENT.appliquer(ville.getNomDepartement(), "nomDepartement", errors);
+        }
+        validerCoordonnees(ville, errors);
+    }
+
+    private static void validerCoordonnees(VilleDto ville, Errors errors) {
+        if ((ville.getLatitude() == null) != (ville.getLongitude() == null)) {
+            errors.rejectValue(ville.getLatitude() == null ? "latitude" : "longitude", "CoordonneesIncompletes",
+                    "La latitude et la longitude doivent être renseignées ensemble");
+        } else if (ville.getLatitude() != null) {
+            if (!latitudeValide(ville.getLatitude())) {
+                errors.rejectValue("latitude", "LatitudeInvalide", "La latitude doit être comprise entre -90 et 90");
+            }
+            if (!longitudeValide(ville.getLongitude())) {
+                errors.rejectValue("longitude", "LongitudeInvalide", "La longitude doit être comprise entre -180 et 180");
+            }
+        }
+    }
 
-            departementValidator.validate(departementDto, errors);
+    /** Coordonnées absentes, ou toutes deux présentes et dans les bornes WGS 84. */
+    private static boolean coordonneesValides(VilleDto ville) {
+        if (ville.getLatitude() == null || ville.getLongitude() == null) {
+            return ville.getLatitude() == null && ville.getLongitude() == null;
         }
+        return latitudeValide(ville.getLatitude()) && longitudeValide(ville.getLongitude());
+    }
+
+    private static boolean latitudeValide(double latitude) {
+        return latitude >= -90 && latitude <= 90;
+    }
+
+    private static boolean longitudeValide(double longitude) {
+        return longitude >= -180 && longitude <= 180;
+    }
+
+    private static boolean aUnDepartement(VilleDto ville) {
+        return ville.getNomDepartement() != null || ville.getCodeDpt() != null;
     }
 }
@@ -0,0 +1,91 @@
+package fr.digi.hello.cache;
+
+import fr.digi.hello.generiqueData.ImportCsvService;
+import fr.digi.hello.items.Departement;
+import fr.digi.hello.services.DepartementService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cache de second niveau des départements : lectures servies sans requête, mise à jour après
+ * une modification et vidage après un import JDBC. Base dédiée, les écritures sont validées.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cache;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE")
+class CacheSecondNiveauTests {
+
+    @Autowired
+    private DepartementService departementService;
+
+    @Autowired
+    private ImportCsvService importCsvService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TempDir
+    Path repertoire;
+
+    private Statistics statistiques;
+
+    @BeforeEach
+    void reinitialiserStatistiques() {
+        statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistiques.clear();
+    }
+
+    @Test
+    void lecturesRepeteesServiesParLeCache() {
+        departementService.extractDepartement(2);
+        departementService.findByCode("75");
+        departementService.extractDepartement("Paris");
+        statistiques.clear();
+
+        assertThat(departementService.extractDepartement(2)).isPresent();
+        assertThat(departementService.findByCode("75")).map(Departement::getNom).contains("Paris");
+        assertThat(departementService.extractDepartement("paris")).map(Departement::getCode).contains("75");
+
+        assertThat(statistiques.getPrepareStatementCount()).isZero();
+        assertThat(statistiques.getSecondLevelCacheHitCount()).isPositive();
+        assertThat(statistiques.getQueryCacheHitCount()).isEqualTo(2);
+        assertThat(meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", Departement.class.getName())
+                .tag("result", "hit")
+                .functionCounter()).isNotNull();
+    }
+
+    @Test
+    void modificationVisibleMalgreLeCache() {
+        departementService.findByCode("34");
+        Departement modifie = new Departement(null, "Hérault", "34");
+
+        departementService.modifierDepartementParNom("Herault", modifie);
+
+        assertThat(departementService.findByCode("34")).map(Departement::getNom).contains("Hérault");
+        assertThat(departementService.extractDepartement("Herault")).map(Departement::getNom).contains("Hérault");
+    }
+
+    @Test
+    void importVideLesRequetesEnCache() throws Exception {
+        assertThat(departementService.findByCode("971")).isEmpty();
+
+        importCsvService.importerDepartements(
+                Files.writeString(repertoire.resolve("departements.csv"), "code;nom\n971;Guadeloupe\n"));
+
+        assertThat(departementService.findByCode("971")).map(Departement::getNom).contains("Guadeloupe");
+    }
+}
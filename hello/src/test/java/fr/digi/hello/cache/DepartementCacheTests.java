@@ -0,0 +1,40 @@
+package fr.digi.hello.cache;
+
+import fr.digi.hello.dao.DepartementDao;
+import fr.digi.hello.items.Departement;
+import fr.digi.hello.services.DepartementCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Table trop grande pour être conservée : le constat est mémorisé jusqu'à la prochaine invalidation.
+ */
+class DepartementCacheTests {
+
+    @Test
+    void tableTropGrandeNonRecomptee() {
+        DepartementDao departementDao = mock(DepartementDao.class);
+        when(departementDao.count()).thenReturn(3L);
+        when(departementDao.findByCodeIgnoreCase("30")).thenReturn(Optional.of(new Departement(1, "Gard", "30")));
+        DepartementCache cache = new DepartementCache(departementDao, 2, 500);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache.parCode("30")).map(Departement::getNom).contains("Gard");
+        }
+        verify(departementDao, times(1)).count();
+        verify(departementDao, never()).findAll();
+        verify(departementDao, times(3)).findByCodeIgnoreCase("30");
+
+        cache.invalider();
+        cache.parCode("30");
+        verify(departementDao, times(2)).count();
+    }
+}
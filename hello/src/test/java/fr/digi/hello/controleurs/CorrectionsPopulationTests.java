@@ -0,0 +1,119 @@
+package fr.digi.hello.controleurs;
+
+import fr.digi.hello.services.TamponPopulations;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Corrections de population : visibles dès leur réception, puis regroupées en une seule écriture
+ * par ville au passage du tampon.
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:populations;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE")
+@AutoConfigureMockMvc
+class CorrectionsPopulationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TamponPopulations tamponPopulations;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void correctionsRegroupeesEnUneEcriture() throws Exception {
+        int population = colonne("nb_habitants");
+        int version = colonne("version");
+        String etag = etag();
+
+        for (int i = 0; i < 100; i++) {
+            mockMvc.perform(patch("/villes/1/population").param("increment", "10"))
+                    .andExpect(status().isAccepted());
+        }
+
+        mockMvc.perform(get("/villes/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nbHabitants", is(population + 1000)));
+        assertThat(etag()).isNotEqualTo(etag);
+        assertThat(colonne("nb_habitants")).as("rien d'écrit avant le passage du tampon").isEqualTo(population);
+
+        assertThat(tamponPopulations.ecrire()).isEqualTo(1);
+
+        assertThat(colonne("nb_habitants")).isEqualTo(population + 1000);
+        assertThat(colonne("version")).as("une seule mise à jour de la ligne").isEqualTo(version + 1);
+        assertThat(tamponPopulations.nombreEnAttente()).isZero();
+        mockMvc.perform(get("/villes/1"))
+                .andExpect(jsonPath("$.nbHabitants", is(population + 1000)));
+    }
+
+    @Test
+    void valeurPuisIncrement() throws Exception {
+        mockMvc.perform(patch("/villes/2/population").param("valeur", "500000"))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(patch("/villes/2/population").param("increment", "-20"))
+                .andExpect(status().isAccepted());
+
+        tamponPopulations.ecrire();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT nb_habitants FROM villes WHERE id = 2", Integer.class))
+                .isEqualTo(499980);
+    }
+
+    @Test
+    void incrementBorneSansBloquerLesAutresVilles() throws Exception {
+        mockMvc.perform(patch("/villes/3/population").param("increment", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(patch("/villes/4/population").param("increment", "7"))
+                .andExpect(status().isAccepted());
+
+        assertThat(tamponPopulations.ecrire()).isEqualTo(2);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT nb_habitants FROM villes WHERE id = 3", Integer.class))
+                .isEqualTo(Integer.MAX_VALUE);
+        assertThat(jdbcTemplate.queryForObject("SELECT nb_habitants FROM villes WHERE id = 4", Integer.class))
+                .isEqualTo(479560);
+        assertThat(tamponPopulations.nombreEnAttente()).isZero();
+    }
+
+    @Test
+    void parametresInvalides() throws Exception {
+        mockMvc.perform(patch("/villes/1/population")).andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/villes/1/population").param("valeur", "3").param("increment", "1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/villes/1/population").param("valeur", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void villeInconnue() throws Exception {
+        mockMvc.perform(patch("/villes/999/population").param("increment", "10"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(patch("/villes/-1/population").param("valeur", "10"))
+                .andExpect(status().isNotFound());
+
+        assertThat(tamponPopulations.nombreEnAttente()).as("rien n'est mis en attente").isZero();
+    }
+
+    private int colonne(String nom) {
+        return jdbcTemplate.queryForObject("SELECT " + nom + " FROM villes WHERE id = 1", Integer.class);
+    }
+
+    private String etag() throws Exception {
+        return mockMvc.perform(get("/villes/1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
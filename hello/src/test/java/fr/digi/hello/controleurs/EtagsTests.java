@@ -0,0 +1,62 @@
+package fr.digi.hello.controleurs;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Vérifie que les ETags changent après une écriture : la revalidation d'une réponse
+ * obsolète renvoie alors le nouveau contenu plutôt qu'un 304. Les écritures sont validées (la
+ * version d'une collection n'est incrémentée qu'après validation) et aucune obsolescence des pages
+ * n'est tolérée.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:etags;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+        "instantanes.obsolescence-max=0s"
+})
+@AutoConfigureMockMvc
+class EtagsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void modificationDUneVilleChangeSesEtags() throws Exception {
+        String etagVille = etag("/villes/1");
+        String etagListe = etag("/villes");
+        String etagDepartements = etag("/departements");
+
+        mockMvc.perform(put("/villes/1")
+                        .param("retour", "minimal")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Nîmes\",\"nbHabitants\":151000,\"codeDpt\":\"30\",\"nomDepartement\":\"Gard\"}"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/villes/1").header(HttpHeaders.IF_NONE_MATCH, etagVille))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/villes").header(HttpHeaders.IF_NONE_MATCH, etagListe))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/departements").header(HttpHeaders.IF_NONE_MATCH, etagDepartements))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void etagDependDeLaPage() throws Exception {
+        assertThat(etag("/villes?taille=2")).isNotEqualTo(etag("/villes?taille=3"));
+    }
+
+    private String etag(String url) throws Exception {
+        return mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,70 @@
+package fr.digi.hello.controleurs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.digi.hello.dto.VilleDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Export NDJSON des villes : une ville par ligne, par identifiant croissant, et revalidation par ETag.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ExportTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void uneVilleParLigne() throws Exception {
+        MvcResult demarre = mockMvc.perform(get("/villes/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String corps = mockMvc.perform(asyncDispatch(demarre))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        assertThat(corps).endsWith("\n");
+        List<VilleDto> villes = new ArrayList<>();
+        for (String ligne : corps.split("\n")) {
+            villes.add(objectMapper.readValue(ligne, VilleDto.class));
+        }
+        assertThat(villes).hasSize(5);
+        assertThat(villes).extracting(VilleDto::getId).isSorted();
+        assertThat(villes.get(0).getNom()).isEqualTo("Nîmes");
+        assertThat(villes.get(0).getLatitude()).isNotNull();
+    }
+
+    @Test
+    void revalidationSansExport() throws Exception {
+        String etag = mockMvc.perform(asyncDispatch(mockMvc.perform(get("/villes/export")).andReturn()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/villes/export").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotModified());
+    }
+}
@@ -0,0 +1,106 @@
+package fr.digi.hello.controleurs;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import fr.digi.hello.dto.DepartementDto;
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.serialisation.FormatsBinairesConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Négociation de contenu CBOR et Smile : mêmes données qu'en JSON, ETags distincts par représentation.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class FormatsBinairesTests {
+
+    private static final TypeReference<List<VilleDto>> LISTE_VILLES = new TypeReference<>() {
+    };
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void villesEnCborCommeEnJson() throws Exception {
+        MockHttpServletResponse json = lire("/villes", MediaType.APPLICATION_JSON_VALUE);
+        MockHttpServletResponse cbor = lire("/villes", FormatsBinairesConfiguration.CBOR);
+
+        List<VilleDto> attendues = objectMapper.readValue(json.getContentAsByteArray(), LISTE_VILLES);
+        List<VilleDto> lues = new CBORMapper().readValue(cbor.getContentAsByteArray(), LISTE_VILLES);
+        assertThat(lues).usingRecursiveFieldByFieldElementComparator().isEqualTo(attendues);
+        assertThat(cbor.getContentAsByteArray().length).isLessThan(json.getContentAsByteArray().length);
+
+        // Sans préférence, la réponse reste en JSON.
+        mockMvc.perform(get("/villes").accept(MediaType.ALL))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void villesParPopulationEnSmile() throws Exception {
+        MockHttpServletResponse smile = lire("/departements/departements/gard/par-population?min=1&max=1000000",
+                FormatsBinairesConfiguration.SMILE);
+
+        List<VilleDto> villes = new SmileMapper().readValue(smile.getContentAsByteArray(), LISTE_VILLES);
+        assertThat(villes).extracting(VilleDto::getNom).containsExactly("Nîmes");
+    }
+
+    @Test
+    void etagParRepresentation() throws Exception {
+        MockHttpServletResponse json = lire("/villes/1", MediaType.APPLICATION_JSON_VALUE);
+        MockHttpServletResponse cbor = lire("/villes/1", FormatsBinairesConfiguration.CBOR);
+
+        assertThat(cbor.getHeader(HttpHeaders.ETAG)).isNotEqualTo(json.getHeader(HttpHeaders.ETAG));
+        assertThat(cbor.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT);
+
+        mockMvc.perform(get("/villes/1").accept(FormatsBinairesConfiguration.CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, json.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/villes/1").accept(FormatsBinairesConfiguration.CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, cbor.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional
+    void creationDepuisUnCorpsCbor() throws Exception {
+        DepartementDto departement = new DepartementDto();
+        departement.setNom("Lozère");
+        departement.setCode("48");
+
+        mockMvc.perform(post("/departements")
+                        .param("retour", "entite")
+                        .contentType(FormatsBinairesConfiguration.CBOR)
+                        .accept(FormatsBinairesConfiguration.CBOR)
+                        .content(new CBORMapper().writeValueAsBytes(departement)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(FormatsBinairesConfiguration.CBOR));
+    }
+
+    private MockHttpServletResponse lire(String url, String type) throws Exception {
+        return mockMvc.perform(get(url).accept(type))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(type))
+                .andReturn().getResponse();
+    }
+}
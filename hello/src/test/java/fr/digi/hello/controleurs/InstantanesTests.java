@@ -0,0 +1,124 @@
+package fr.digi.hello.controleurs;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.digi.hello.dto.DepartementDto;
+import fr.digi.hello.pagination.Pagination;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pages de listes servies depuis leurs instantanés : seule la version est lue une fois la page
+ * construite, le corps gzip est le même JSON compressé, et une écriture validée est visible dès
+ * la lecture suivante quand aucune obsolescence n'est tolérée. Au-delà du nombre de pages
+ * conservées, la page la moins récemment lue est évincée.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:instantanes;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+        "instantanes.obsolescence-max=0s",
+        "instantanes.pages-max=2"
+})
+@AutoConfigureMockMvc
+class InstantanesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void pageServieSansRelireLesLignes() throws Exception {
+        Statistics statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistiques.clear();
+        byte[] premiere = lire("/villes?taille=3", null).getContentAsByteArray();
+        assertThat(statistiques.getPrepareStatementCount()).as("version puis page").isEqualTo(2);
+
+        statistiques.clear();
+        MockHttpServletResponse seconde = lire("/villes?taille=3", null);
+        assertThat(statistiques.getPrepareStatementCount()).as("version seule").isEqualTo(1);
+        assertThat(seconde.getContentAsByteArray()).isEqualTo(premiere);
+        assertThat(seconde.getHeader(Pagination.ENTETE_CURSEUR_SUIVANT)).isNotNull();
+    }
+
+    @Test
+    void pageLaMoinsRecemmentLueEvincee() throws Exception {
+        Statistics statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        lire("/villes?taille=5", null);
+        lire("/villes?taille=6", null);
+        lire("/villes?taille=5", null);
+        lire("/villes?taille=7", null);
+
+        statistiques.clear();
+        lire("/villes?taille=5", null);
+        assertThat(statistiques.getPrepareStatementCount()).as("page conservée : version seule").isEqualTo(1);
+        statistiques.clear();
+        lire("/villes?taille=6", null);
+        assertThat(statistiques.getPrepareStatementCount()).as("page évincée : version puis page").isEqualTo(2);
+    }
+
+    @Test
+    void corpsGzipIdentiqueAuJson() throws Exception {
+        MockHttpServletResponse json = lire("/departements?taille=4", null);
+        MockHttpServletResponse gzip = lire("/departements?taille=4", "gzip, deflate");
+
+        assertThat(json.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(gzip.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzip.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gzip.getHeader(HttpHeaders.LINK)).isEqualTo(json.getHeader(HttpHeaders.LINK));
+        try (GZIPInputStream entree = new GZIPInputStream(new ByteArrayInputStream(gzip.getContentAsByteArray()))) {
+            assertThat(entree.readAllBytes()).isEqualTo(json.getContentAsByteArray());
+        }
+
+        assertThat(lire("/departements?taille=4", "gzip;q=0").getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    void ecritureValideeVisible() throws Exception {
+        assertThat(departements()).extracting(DepartementDto::getCode).doesNotContain("48");
+
+        mockMvc.perform(post("/departements")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Lozère\",\"code\":\"48\"}"))
+                .andExpect(status().is2xxSuccessful());
+
+        assertThat(departements()).extracting(DepartementDto::getCode).contains("48");
+    }
+
+    private List<DepartementDto> departements() throws Exception {
+        return objectMapper.readValue(lire("/departements?taille=100", null).getContentAsByteArray(),
+                new TypeReference<>() {
+                });
+    }
+
+    private MockHttpServletResponse lire(String url, String acceptEncoding) throws Exception {
+        var requete = get(url).accept(MediaType.APPLICATION_JSON);
+        if (acceptEncoding != null) {
+            requete.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return mockMvc.perform(requete)
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+}
@@ -0,0 +1,85 @@
+package fr.digi.hello.controleurs;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Lectures groupées : une réponse par clé dans l'ordre demandé, les absentes signalées, et une
+ * requête {@code IN} par lot de clés distinctes.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lecturesgroupees;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+        "lecture-groupee.taille-lot=2",
+        "lecture-groupee.taille-max=5"
+})
+@AutoConfigureMockMvc
+class LecturesGroupeesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void villesDansLOrdreDemande() throws Exception {
+        Statistics statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistiques.clear();
+
+        mockMvc.perform(get("/villes").param("ids", "3,999,1,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].cle", is(3)))
+                .andExpect(jsonPath("$[0].valeur.nom", is("Marseille")))
+                .andExpect(jsonPath("$[1].cle", is(999)))
+                .andExpect(jsonPath("$[1].trouve", is(false)))
+                .andExpect(jsonPath("$[1].valeur").doesNotExist())
+                .andExpect(jsonPath("$[2].valeur.nom", is("Nîmes")))
+                .andExpect(jsonPath("$[3].valeur.nom", is("Marseille")));
+
+        assertThat(statistiques.getPrepareStatementCount()).as("3 identifiants distincts, lots de 2").isEqualTo(2);
+
+        mockMvc.perform(post("/villes/par-ids").contentType(MediaType.APPLICATION_JSON).content("[5,2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].valeur.nom", is("Nice")))
+                .andExpect(jsonPath("$[1].valeur.nom", is("Lyon")));
+    }
+
+    @Test
+    void departementsParCodes() throws Exception {
+        mockMvc.perform(get("/departements").param("codes", "30", "ZZ", "13"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].valeur.nom", is("Gard")))
+                .andExpect(jsonPath("$[1].trouve", is(false)))
+                .andExpect(jsonPath("$[2].valeur.nom", is("Bouches-du-Rhône")));
+
+        mockMvc.perform(post("/departements/par-codes").contentType(MediaType.APPLICATION_JSON).content("[\"06\"]"))
+                .andExpect(jsonPath("$[0].cle", is("06")))
+                .andExpect(jsonPath("$[0].trouve", is(true)));
+    }
+
+    @Test
+    void listesInvalides() throws Exception {
+        mockMvc.perform(post("/villes/par-ids").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/villes").param("ids", "1,2,3,4,5,6"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/departements/par-codes").contentType(MediaType.APPLICATION_JSON).content("[\"30\",null]"))
+                .andExpect(status().isBadRequest());
+    }
+}
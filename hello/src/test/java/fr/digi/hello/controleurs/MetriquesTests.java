@@ -0,0 +1,47 @@
+package fr.digi.hello.controleurs;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Exposition Prometheus : histogrammes des endpoints et des services, lignes renvoyées
+ * et jauges du pool de connexions.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:metriques;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetriquesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void metriquesExposees() throws Exception {
+        mockMvc.perform(get("/villes")).andExpect(status().isOk());
+        mockMvc.perform(get("/villes/export")).andExpect(status().isOk());
+        mockMvc.perform(get("/departements").param("codes", "30", "69", "99")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+                .andExpect(content().string(containsString("uri=\"/villes\"")))
+                .andExpect(content().string(containsString(
+                        "hello_services_seconds_bucket{class=\"fr.digi.hello.services.VilleService\"")))
+                .andExpect(content().string(containsString(
+                        "hello_services_lignes_max{class=\"fr.digi.hello.services.VilleService\",method=\"extractVilles\"} 5.0")))
+                .andExpect(content().string(containsString(
+                        "hello_services_lignes_max{class=\"fr.digi.hello.services.VilleService\",method=\"parcourirVilles\"} 5.0")))
+                .andExpect(content().string(containsString(
+                        "hello_services_lignes_max{class=\"fr.digi.hello.services.DepartementService\",method=\"extractDepartements\"} 2.0")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")));
+    }
+}
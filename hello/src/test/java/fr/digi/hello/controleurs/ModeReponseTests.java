@@ -0,0 +1,132 @@
+package fr.digi.hello.controleurs;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Forme des réponses d'écriture selon le paramètre {@code retour} ou l'en-tête {@code Prefer} :
+ * liste historique, élément seul (201 + {@code Location} à la création) ou 204 sans corps, et 404
+ * pour un élément inexistant hors du mode liste.
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:modereponse;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE")
+@AutoConfigureMockMvc
+class ModeReponseTests {
+
+    private static final String LOCATION_VILLE = "http://localhost/villes/\\d+";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void creation() throws Exception {
+        mockMvc.perform(post("/villes").param("retour", "liste")
+                        .contentType(MediaType.APPLICATION_JSON).content(ville("Alès")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(greaterThanOrEqualTo(6))));
+
+        mockMvc.perform(post("/villes").param("retour", "entite")
+                        .contentType(MediaType.APPLICATION_JSON).content(ville("Uzès")))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, matchesPattern(LOCATION_VILLE)))
+                .andExpect(jsonPath("$.nom", is("Uzès")));
+
+        mockMvc.perform(post("/villes").param("retour", "minimal")
+                        .contentType(MediaType.APPLICATION_JSON).content(ville("Beaucaire")))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.LOCATION, matchesPattern(LOCATION_VILLE)))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void creationSelonPrefer() throws Exception {
+        mockMvc.perform(post("/villes").header("Prefer", "respond-async, return=representation")
+                        .contentType(MediaType.APPLICATION_JSON).content(ville("Sommières")))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, matchesPattern(LOCATION_VILLE)))
+                .andExpect(jsonPath("$.nom", is("Sommières")));
+
+        mockMvc.perform(post("/villes").header("Prefer", "return=minimal")
+                        .contentType(MediaType.APPLICATION_JSON).content(ville("Vauvert")))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.LOCATION, matchesPattern(LOCATION_VILLE)));
+
+        // Le paramètre retour l'emporte sur Prefer ; une valeur inconnue est ignorée.
+        mockMvc.perform(post("/villes").param("retour", "liste").header("Prefer", "return=minimal")
+                        .contentType(MediaType.APPLICATION_JSON).content(ville("Quissac")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+
+        mockMvc.perform(post("/villes").param("retour", "inconnu").header("Prefer", "return=minimal")
+                        .contentType(MediaType.APPLICATION_JSON).content(ville("Anduze")))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void modification() throws Exception {
+        mockMvc.perform(put("/villes/3").param("retour", "entite")
+                        .contentType(MediaType.APPLICATION_JSON).content(marseille()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/villes/3"))
+                .andExpect(jsonPath("$.nbHabitants", is(861700)));
+
+        mockMvc.perform(put("/villes/3").header("Prefer", "return=minimal")
+                        .contentType(MediaType.APPLICATION_JSON).content(marseille()))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/villes/3"));
+
+        mockMvc.perform(put("/villes/999").param("retour", "entite")
+                        .contentType(MediaType.APPLICATION_JSON).content(marseille()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/villes/999").header("Prefer", "return=minimal")
+                        .contentType(MediaType.APPLICATION_JSON).content(marseille()))
+                .andExpect(status().isNotFound());
+        // Sans préférence : comportement historique, la liste même pour une ville inexistante.
+        mockMvc.perform(put("/villes/999")
+                        .contentType(MediaType.APPLICATION_JSON).content(marseille()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+    }
+
+    @Test
+    void suppression() throws Exception {
+        String location = mockMvc.perform(post("/villes").param("retour", "minimal")
+                        .contentType(MediaType.APPLICATION_JSON).content(ville("Bessèges")))
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+        String chemin = location.substring("http://localhost".length());
+
+        mockMvc.perform(delete(chemin).header("Prefer", "return=minimal"))
+                .andExpect(status().isNoContent())
+                .andExpect(content().string(""));
+        mockMvc.perform(delete(chemin).param("retour", "minimal"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete(chemin))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+    }
+
+    private static String ville(String nom) {
+        return "{\"nom\":\"" + nom + "\",\"nbHabitants\":12000,\"codeDpt\":\"30\",\"nomDepartement\":\"Gard\"}";
+    }
+
+    private static String marseille() {
+        return "{\"nom\":\"Marseille\",\"nbHabitants\":861700,\"codeDpt\":\"13\",\"nomDepartement\":\"Bouches-du-Rhône\"}";
+    }
+}
@@ -0,0 +1,131 @@
+package fr.digi.hello.controleurs;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * PATCH conditionnels : une requête {@code UPDATE} par version, sans charger l'entité, et un 409
+ * pour la seconde de deux modifications partant de la même version.
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:conditionnelles;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE")
+@AutoConfigureMockMvc
+class ModificationsConditionnellesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void villeModifieeSansEtreChargee() throws Exception {
+        String etag = etag("/villes/3");
+        Statistics statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistiques.clear();
+
+        String nouvelEtag = mockMvc.perform(patch("/villes/3")
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nbHabitants\":870000}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nbHabitants", is(870000)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(statistiques.getEntityLoadCount()).isZero();
+        assertThat(nouvelEtag).isNotEqualTo(etag).isEqualTo(etag("/villes/3"));
+        mockMvc.perform(get("/villes/3"))
+                .andExpect(jsonPath("$.nbHabitants", is(870000)));
+
+        // Seconde modification partant de la même version : refusée.
+        mockMvc.perform(patch("/villes/3")
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nbHabitants\":1}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/villes/3"))
+                .andExpect(jsonPath("$.nbHabitants", is(870000)));
+    }
+
+    @Test
+    void departementModifie() throws Exception {
+        String etag = etag("/departements/2");
+
+        mockMvc.perform(patch("/departements/2")
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Ville de Paris\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nom", is("Ville de Paris")))
+                .andExpect(header().string(HttpHeaders.ETAG, etag("/departements/2")));
+        mockMvc.perform(get("/departements/2"))
+                .andExpect(jsonPath("$.nom", is("Ville de Paris")));
+
+        mockMvc.perform(patch("/departements/2")
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"code\":\"99\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void preconditionsInvalides() throws Exception {
+        mockMvc.perform(patch("/villes/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nbHabitants\":2}"))
+                .andExpect(status().isPreconditionRequired());
+        mockMvc.perform(patch("/villes/1")
+                        .header(HttpHeaders.IF_MATCH, "\"departement-1.0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nbHabitants\":2}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/villes/1")
+                        .header(HttpHeaders.IF_MATCH, etag("/villes/1"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nbHabitants\":0}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/villes/999")
+                        .header(HttpHeaders.IF_MATCH, "\"ville-999.0.0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nbHabitants\":2}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void modificationVideRefusee() throws Exception {
+        for (String corps : new String[]{"{}", "{\"id\":5}"}) {
+            mockMvc.perform(patch("/villes/1")
+                            .header(HttpHeaders.IF_MATCH, etag("/villes/1"))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(corps))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(patch("/departements/1")
+                        .header(HttpHeaders.IF_MATCH, etag("/departements/1"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String etag(String url) throws Exception {
+        return mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
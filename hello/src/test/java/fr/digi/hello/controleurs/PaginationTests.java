@@ -0,0 +1,66 @@
+package fr.digi.hello.controleurs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.digi.hello.pagination.Pagination;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Vérifie la pagination par curseur de {@code GET /villes} sur les données de démarrage.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class PaginationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void parcourtToutesLesVillesPageParPage() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        String curseur = null;
+        int pages = 0;
+
+        do {
+            var requete = get("/villes").param("taille", "2");
+            if (curseur != null) {
+                requete = requete.param("curseur", curseur);
+            }
+            MockHttpServletResponse reponse = mockMvc.perform(requete)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse();
+
+            JsonNode page = objectMapper.readTree(reponse.getContentAsString());
+            assertThat(page.size()).isLessThanOrEqualTo(2);
+            page.forEach(ville -> ids.add(ville.get("id").asInt()));
+            curseur = reponse.getHeader(Pagination.ENTETE_CURSEUR_SUIVANT);
+            pages++;
+        } while (curseur != null);
+
+        assertThat(ids).hasSize(5).isSorted().doesNotHaveDuplicates();
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void refuseUnCurseurInvalide() throws Exception {
+        mockMvc.perform(get("/villes").param("curseur", "pas-un-curseur"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/departements").param("taille", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
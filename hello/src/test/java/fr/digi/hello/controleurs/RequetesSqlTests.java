@@ -0,0 +1,133 @@
+package fr.digi.hello.controleurs;
+
+import fr.digi.hello.services.DepartementCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Vérifie le nombre de requêtes SQL émises par les endpoints de lecture des villes :
+ * une lecture de version puis une seule requête (ville et département joints) sans entité chargée
+ * (les listes, servies depuis leurs instantanés, sont vérifiées par {@link InstantanesTests}),
+ * la seule lecture de version pour une revalidation {@code If-None-Match}, aucune requête pour les
+ * classements, tranches de population et recherches géographiques servis depuis la mémoire, ainsi que l'absence de lecture
+ * du département lors de la création d'une ville, et leur relevé par le profileur SQL.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class RequetesSqlTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DepartementCache departementCache;
+
+    private Statistics statistiques;
+
+    @BeforeEach
+    void reinitialiserStatistiques() {
+        statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistiques.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/villes/1",
+            "/villes/nom/lyon"
+    })
+    void versionPuisUneSeuleRequeteParLecture(String url) throws Exception {
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        assertThat(statistiques.getPrepareStatementCount()).as("requêtes SQL pour %s", url).isEqualTo(2);
+        assertThat(statistiques.getEntityLoadCount()).as("entités chargées pour %s", url).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/villes",
+            "/villes/1",
+            "/villes/nom/lyon",
+            "/departements",
+            "/departements/1"
+    })
+    void revalidationSansLireLesLignes(String url) throws Exception {
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).as("ETag de %s", url).startsWith("\"");
+        statistiques.clear();
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        assertThat(statistiques.getPrepareStatementCount()).as("requêtes SQL pour %s", url).isEqualTo(1);
+        assertThat(statistiques.getEntityLoadCount()).as("entités chargées pour %s", url).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/departements/departements/gard/plus-grandes",
+            "/villes/plus-grandes?n=3",
+            "/departements/departements/gard/par-population?min=1&max=1000000",
+            "/villes/proches?lat=43.8&lon=4.3&k=3",
+            "/villes/rayon?lat=43.8&lon=4.3&km=300",
+            "/villes/suggest?q=toulose"
+    })
+    void classementServiSansRequete(String url) throws Exception {
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        assertThat(statistiques.getPrepareStatementCount()).as("requêtes SQL pour %s", url).isZero();
+    }
+
+    @Test
+    void profilageParEmpreinte() throws Exception {
+        mockMvc.perform(delete("/admin/sql")).andExpect(status().isNoContent());
+        mockMvc.perform(get("/villes/1")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/admin/sql"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requetes[0].empreinte").value(containsString("from villes")))
+                .andExpect(jsonPath("$.requetes[0].executions").value(1))
+                .andExpect(jsonPath("$.requetes[0].lignesParExecution").value(1.0))
+                .andExpect(jsonPath("$.nPlusUn").isEmpty());
+    }
+
+    @Test
+    @Transactional
+    void creationSansLectureDuDepartement() throws Exception {
+        departementCache.parCode("30");
+        statistiques.clear();
+
+        mockMvc.perform(post("/villes")
+                        .param("retour", "minimal")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Alès\",\"nbHabitants\":42000,\"codeDpt\":\"30\",\"nomDepartement\":\"Gard\"}"))
+                .andExpect(status().isNoContent());
+
+        assertThat(statistiques.getPrepareStatementCount())
+                .as("seule l'insertion est exécutée ; la version de la collection suit la validation").isEqualTo(1);
+    }
+}
@@ -0,0 +1,74 @@
+package fr.digi.hello.controleurs;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Suppressions ensemblistes : aucune ville n'est chargée, et les lectures suivantes (cache de
+ * second niveau des départements compris) ne voient plus les lignes supprimées.
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:suppressions;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE")
+@AutoConfigureMockMvc
+class SuppressionsGroupeesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void villesParTrancheDePopulation() throws Exception {
+        Statistics statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistiques.clear();
+
+        mockMvc.perform(delete("/villes").param("min", "400000").param("max", "600000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.villesSupprimees", is(2)));
+
+        assertThat(statistiques.getEntityLoadCount()).isZero();
+        mockMvc.perform(get("/villes/2")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/villes/4")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/villes/3")).andExpect(status().isOk());
+    }
+
+    @Test
+    void villesParIdentifiant() throws Exception {
+        mockMvc.perform(delete("/villes").param("ids", "1", "999"))
+                .andExpect(jsonPath("$.villesSupprimees", is(1)));
+        mockMvc.perform(get("/villes/1")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void departementSupprimeAvecSesVilles() throws Exception {
+        mockMvc.perform(get("/departements/10")).andExpect(status().isOk());
+        mockMvc.perform(get("/villes/5")).andExpect(jsonPath("$.codeDpt", is("06")));
+
+        mockMvc.perform(delete("/departements/10").param("retour", "minimal"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/departements/10")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/villes/5")).andExpect(status().isNotFound());
+        mockMvc.perform(delete("/villes").param("departement", "06")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void critereObligatoire() throws Exception {
+        mockMvc.perform(delete("/villes")).andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/villes").param("min", "10").param("max", "1")).andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,54 @@
+package fr.digi.hello.execution;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Profil {@code virtuel} : tâches asynchrones sur threads virtuels et détection des épinglages.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:virtuel;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE")
+@ActiveProfiles("virtuel")
+class ExecutionVirtuelleTests {
+
+    private final Object moniteur = new Object();
+
+    @Autowired
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Autowired
+    private DetecteurEpinglage detecteurEpinglage;
+
+    @Test
+    void tachesAsynchronesSurThreadsVirtuels() throws Exception {
+        assertThat(applicationTaskExecutor.submit(() -> Thread.currentThread().isVirtual()).get()).isTrue();
+    }
+
+    @Test
+    void epinglageSignale() throws Exception {
+        assertThat(detecteurEpinglage.rapport().actif()).isTrue();
+
+        Thread.ofVirtual().start(this::bloquerDansSynchronized).join();
+
+        long limite = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+        while (System.nanoTime() < limite && detecteurEpinglage.rapport().epinglages().stream()
+                .noneMatch(e -> e.origine().contains("bloquerDansSynchronized"))) {
+            Thread.sleep(100);
+        }
+        assertThat(detecteurEpinglage.rapport().epinglages())
+                .anySatisfy(e -> assertThat(e.origine()).contains("ExecutionVirtuelleTests.bloquerDansSynchronized"));
+    }
+
+    private void bloquerDansSynchronized() {
+        synchronized (moniteur) {
+            LockSupport.parkNanos(Duration.ofMillis(100).toNanos());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package fr.digi.hello.generiqueData;
+
+import fr.digi.hello.dao.DepartementDao;
+import fr.digi.hello.dao.VilleDao;
+import fr.digi.hello.utils.NormaliseurNom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Import CSV des départements puis des villes, avec lignes invalides.
+ */
+@SpringBootTest
+@Transactional
+class ImportCsvServiceTests {
+
+    @Autowired
+    private ImportCsvService importCsvService;
+
+    @Autowired
+    private DepartementDao departementDao;
+
+    @Autowired
+    private VilleDao villeDao;
+
+    @TempDir
+    Path repertoire;
+
+    @Test
+    void importeDepartementsPuisVilles() throws Exception {
+        Path departements = Files.writeString(repertoire.resolve("departements.csv"),
+                "code;nom\n2A;Corse-du-Sud\n2B;Haute-Corse\n2A;Doublon\n",
+                StandardCharsets.UTF_8);
+        Path villes = Files.writeString(repertoire.resolve("villes.csv"),
+                "nom;nbHabitants;codeDpt\nAjaccio;71361;2A\n\"Bastia\";48503;2B\nPorto-Vecchio;abc;2A\nCalvi;5600;99\n"
+                        + "Sartène;3500;2A;Corse-du-Sud;41.62;8.97\nCorte;7000;2B;Haute-Corse;42.30\n",
+                StandardCharsets.UTF_8);
+
+        RapportImport rapportDepartements = importCsvService.importerDepartements(departements);
+        RapportImport rapportVilles = importCsvService.importerVilles(villes);
+
+        assertThat(rapportDepartements.lignesLues()).isEqualTo(3);
+        assertThat(rapportDepartements.lignesImportees()).isEqualTo(2);
+        assertThat(rapportDepartements.lignesRejetees()).isEqualTo(1);
+        assertThat(rapportVilles.lignesImportees()).isEqualTo(3);
+        assertThat(rapportVilles.lignesRejetees()).as("latitude sans longitude comprise").isEqualTo(3);
+        assertThat(rapportVilles.erreurs()).hasSize(3);
+
+        assertThat(departementDao.findByNomNormalise("haute-corse")).isPresent();
+        assertThat(villeDao.findFirstByNomNormalise(NormaliseurNom.normaliser("AJACCIO")))
+                .hasValueSatisfying(ville -> assertThat(ville.getNbHabitants()).isEqualTo(71361));
+        assertThat(villeDao.findFirstByNomNormalise(NormaliseurNom.normaliser("Sartène")))
+                .hasValueSatisfying(ville -> assertThat(ville.getLongitude()).isEqualTo(8.97));
+    }
+}
@@ -0,0 +1,97 @@
+package fr.digi.hello.generiqueData;
+
+import fr.digi.hello.evenements.VillesRechargeesEvent;
+import fr.digi.hello.services.DepartementCache;
+import fr.digi.hello.services.VersionsCollections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Import interrompu par une ligne mal encodée après l'envoi de plusieurs lots : les lots déjà
+ * insérés restent en base, et les caches, versions de collections et index en tiennent compte.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importinterrompu;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+        "import.taille-lot=100"
+})
+@RecordApplicationEvents
+class ImportInterrompuTests {
+
+    /** Assez de lignes pour dépasser le tampon du lecteur avant d'atteindre l'octet invalide. */
+    private static final int LIGNES_VALIDES = 1000;
+
+    @Autowired
+    private ImportCsvService importCsvService;
+
+    @Autowired
+    private VersionsCollections versionsCollections;
+
+    @Autowired
+    private DepartementCache departementCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEvents evenements;
+
+    @TempDir
+    Path repertoire;
+
+    @Test
+    void villesDejaInsereesPublieesMalgreLEchec() throws Exception {
+        long version = versionsCollections.version(VersionsCollections.VILLES);
+        int villes = compter("villes");
+        Path fichier = fichierInterrompu("villes.csv", "nom;nbHabitants;codeDpt\n",
+                i -> "Villeneuve;" + (1000 + i) + ";30\n");
+
+        assertThatThrownBy(() -> importCsvService.importerVilles(fichier))
+                .isInstanceOf(MalformedInputException.class);
+
+        assertThat(compter("villes")).as("lots envoyés avant l'échec").isGreaterThan(villes);
+        assertThat(versionsCollections.version(VersionsCollections.VILLES)).isGreaterThan(version);
+        assertThat(evenements.stream(VillesRechargeesEvent.class)).hasSize(1);
+    }
+
+    @Test
+    void departementsDejaInseresVisiblesMalgreLEchec() throws Exception {
+        long version = versionsCollections.version(VersionsCollections.DEPARTEMENTS);
+        assertThat(departementCache.parCode("D1")).isEmpty();
+        Path fichier = fichierInterrompu("departements.csv", "code;nom\n", i -> "D" + i + ";Département\n");
+
+        assertThatThrownBy(() -> importCsvService.importerDepartements(fichier))
+                .isInstanceOf(MalformedInputException.class);
+
+        assertThat(departementCache.parCode("D1")).as("cache des départements invalidé").isPresent();
+        assertThat(versionsCollections.version(VersionsCollections.DEPARTEMENTS)).isGreaterThan(version);
+    }
+
+    private Path fichierInterrompu(String nom, String entete, IntFunction<String> ligne) throws Exception {
+        ByteArrayOutputStream contenu = new ByteArrayOutputStream();
+        contenu.writeBytes(entete.getBytes(StandardCharsets.UTF_8));
+        for (int i = 1; i <= LIGNES_VALIDES; i++) {
+            contenu.writeBytes(ligne.apply(i).getBytes(StandardCharsets.UTF_8));
+        }
+        contenu.writeBytes(new byte[]{(byte) 0xC3, '(', '\n'});
+        return Files.write(repertoire.resolve(nom), contenu.toByteArray());
+    }
+
+    private int compter(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
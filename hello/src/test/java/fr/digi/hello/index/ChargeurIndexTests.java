@@ -0,0 +1,39 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.services.VilleService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Une seule lecture des villes alimente tous les index.
+ */
+class ChargeurIndexTests {
+
+    @Test
+    void uneLecturePourTousLesIndex() {
+        VilleService villeService = mock(VilleService.class);
+        when(villeService.extractVilles()).thenReturn(List.of(
+                new VilleDto(1, "Nîmes", 150000, "Gard", "30", 43.8367, 4.3601)));
+        ClassementVilles classement = new ClassementVilles();
+        IndexPopulation population = new IndexPopulation();
+        IndexSpatial spatial = new IndexSpatial(0.1);
+        IndexSuggestions suggestions = new IndexSuggestions(0.5);
+
+        new ChargeurIndex(villeService, List.of(classement, population, spatial, suggestions)).recharger();
+
+        verify(villeService, times(1)).extractVilles();
+        assertThat(classement.plusGrandes(1)).hasValueSatisfying(villes -> assertThat(villes).hasSize(1));
+        assertThat(population.entre("Gard", 0, 200000)).hasValueSatisfying(villes -> assertThat(villes).hasSize(1));
+        assertThat(spatial.plusProches(44, 4, 1)).hasValueSatisfying(villes -> assertThat(villes).hasSize(1));
+        assertThat(suggestions.suggerer("nimes", 1)).hasValueSatisfying(villes -> assertThat(villes).hasSize(1));
+        assertThat(classement.verrou.isLocked() || spatial.verrou.isLocked()).isFalse();
+    }
+}
@@ -0,0 +1,43 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tenue à jour incrémentale du classement des villes.
+ */
+class ClassementVillesTests extends IndexVillesTests<ClassementVilles> {
+
+    @Override
+    ClassementVilles nouvelIndex() {
+        return new ClassementVilles();
+    }
+
+    @Override
+    Optional<List<VilleDto>> lire(ClassementVilles classement) {
+        return classement.plusGrandes("Gard", 3);
+    }
+
+    @Test
+    void appliqueCreationModificationEtSuppression() {
+        ClassementVilles classement = construit(List.of(
+                new VilleDto(1, "Nîmes", 150000, "Gard", "30"),
+                new VilleDto(2, "Alès", 42000, "Gard", "30"),
+                new VilleDto(3, "Lyon", 520000, "Rhône", "69")));
+        assertThat(ids(classement.plusGrandes(2))).containsExactly(3, 1);
+
+        classement.surModification(new VilleModifieeEvent(4, new VilleDto(4, "Beaucaire", 160000, "Gard", "30"), 1));
+        classement.surModification(new VilleModifieeEvent(2, new VilleDto(2, "Alès", 170000, "Gard", "30"), 1));
+        assertThat(ids(classement.plusGrandes("gard", 10))).containsExactly(2, 4, 1);
+
+        classement.surModification(VilleModifieeEvent.suppression(2));
+        assertThat(ids(classement.plusGrandes("GARD", 10))).containsExactly(4, 1);
+        assertThat(ids(classement.plusGrandes(10))).containsExactly(3, 4, 1);
+    }
+}
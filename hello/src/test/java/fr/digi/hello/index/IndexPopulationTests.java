@@ -0,0 +1,58 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Requêtes par tranche de population et tenue à jour de l'index.
+ */
+class IndexPopulationTests extends IndexVillesTests<IndexPopulation> {
+
+    private static final List<VilleDto> VILLES = List.of(
+            new VilleDto(1, "Nîmes", 150000, "Gard", "30"),
+            new VilleDto(2, "Alès", 42000, "Gard", "30"),
+            new VilleDto(3, "Uzès", 8000, "Gard", "30"),
+            new VilleDto(4, "Bagnols", 42000, "Gard", "30"),
+            new VilleDto(5, "Sans population", null, "Gard", "30"),
+            new VilleDto(6, "Lyon", 520000, "Rhône", "69"));
+
+    @Override
+    IndexPopulation nouvelIndex() {
+        return new IndexPopulation();
+    }
+
+    @Override
+    Optional<List<VilleDto>> lire(IndexPopulation index) {
+        return index.entre("Gard", 0, 1000000);
+    }
+
+    @Test
+    void bornesInclusesParPopulationDecroissante() {
+        IndexPopulation index = construit(VILLES);
+
+        assertThat(ids(index.entre("gard", 8000, 150000))).containsExactly(1, 2, 4, 3);
+        assertThat(ids(index.entre("Gard", 42000, 42000))).containsExactly(2, 4);
+        assertThat(ids(index.entre("Gard", 0, Integer.MAX_VALUE))).containsExactly(1, 2, 4, 3);
+        assertThat(ids(index.entre("Gard", 200000, 100))).isEmpty();
+        assertThat(ids(index.entre("Inconnu", 0, 1000000))).isEmpty();
+    }
+
+    @Test
+    void appliqueCreationModificationEtSuppression() {
+        IndexPopulation index = construit(VILLES);
+
+        index.surModification(new VilleModifieeEvent(7, new VilleDto(7, "Beaucaire", 16000, "Gard", "30"), 1));
+        index.surModification(new VilleModifieeEvent(1, new VilleDto(1, "Nîmes", 9000, "Gard", "30"), 1));
+        index.surModification(new VilleModifieeEvent(6, new VilleDto(6, "Lyon", 520000, "Gard", "30"), 1));
+        index.surModification(VilleModifieeEvent.suppression(2));
+
+        assertThat(ids(index.entre("Gard", 0, 1000000))).containsExactly(6, 4, 7, 1, 3);
+        assertThat(ids(index.entre("Rhône", 0, 1000000))).isEmpty();
+    }
+}
@@ -0,0 +1,94 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import fr.digi.hello.utils.Geodesie;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plus proches voisins et recherche par rayon, comparés à un parcours exhaustif, et tenue à jour de l'index.
+ */
+class IndexSpatialTests extends IndexVillesTests<IndexSpatial> {
+
+    @Override
+    IndexSpatial nouvelIndex() {
+        return new IndexSpatial(0.1);
+    }
+
+    @Override
+    Optional<List<VilleDto>> lire(IndexSpatial index) {
+        return index.plusProches(45, 5, 3);
+    }
+
+    @Test
+    void memesResultatsQuUnParcoursExhaustif() {
+        SplittableRandom aleatoire = new SplittableRandom(7);
+        List<VilleDto> villes = new ArrayList<>();
+        for (int i = 1; i <= 3000; i++) {
+            // Villes concentrées en France, plus quelques-unes ailleurs (pôles, antiméridien).
+            double latitude = i % 50 == 0 ? aleatoire.nextDouble(-90, 90) : aleatoire.nextDouble(42, 51);
+            double longitude = i % 50 == 0 ? aleatoire.nextDouble(-180, 180) : aleatoire.nextDouble(-5, 8);
+            villes.add(new VilleDto(i, "Ville-" + i, 1000, "Gard", "30", latitude, longitude));
+        }
+        villes.add(new VilleDto(0, "Sans coordonnées", 1000, "Gard", "30"));
+
+        for (double tailleCellule : new double[]{0.1, 1, 30}) {
+            IndexSpatial index = new IndexSpatial(tailleCellule);
+            index.recharger(villes);
+            for (int essai = 0; essai < 200; essai++) {
+                double latitude = essai % 10 == 0 ? aleatoire.nextDouble(-90, 90) : aleatoire.nextDouble(42, 51);
+                double longitude = essai % 10 == 0 ? aleatoire.nextDouble(-180, 180) : aleatoire.nextDouble(-5, 8);
+                int k = 1 + aleatoire.nextInt(20);
+                double rayon = aleatoire.nextDouble(1, 300);
+
+                assertThat(ids(index.plusProches(latitude, longitude, k)))
+                        .as("%d plus proches de (%f, %f), cellules de %f°", k, latitude, longitude, tailleCellule)
+                        .containsExactlyElementsOf(exhaustif(villes, latitude, longitude, Double.MAX_VALUE, k));
+                assertThat(ids(index.dansRayon(latitude, longitude, rayon, 1000)))
+                        .as("rayon %f km autour de (%f, %f), cellules de %f°", rayon, latitude, longitude, tailleCellule)
+                        .containsExactlyElementsOf(exhaustif(villes, latitude, longitude, rayon, 1000));
+            }
+        }
+    }
+
+    @Test
+    void appliqueCreationModificationEtSuppression() {
+        IndexSpatial index = construit(List.of(
+                new VilleDto(1, "Nîmes", 150000, "Gard", "30", 43.8367, 4.3601),
+                new VilleDto(2, "Lyon", 515695, "Rhône", "69", 45.7640, 4.8357)));
+
+        index.surModification(new VilleModifieeEvent(3, new VilleDto(3, "Alès", 42000, "Gard", "30", 44.1250, 4.0810), 1));
+        index.surModification(new VilleModifieeEvent(2, new VilleDto(2, "Lyon", 515695, "Rhône", "69"), 1));
+        index.surModification(new VilleModifieeEvent(1, new VilleDto(1, "Nîmes", 150000, "Gard", "30", 43.2965, 5.3698), 1));
+
+        assertThat(ids(index.plusProches(44.1, 4.1, 5))).containsExactly(3, 1);
+        assertThat(ids(index.dansRayon(44.1, 4.1, 50, 10))).containsExactly(3);
+
+        index.surModification(VilleModifieeEvent.suppression(3));
+        assertThat(ids(index.plusProches(44.1, 4.1, 5))).containsExactly(1);
+    }
+
+    private static List<Integer> exhaustif(List<VilleDto> villes, double latitude, double longitude,
+                                           double rayonKm, int limite) {
+        return villes.stream()
+                .filter(ville -> ville.getLatitude() != null)
+                .filter(ville -> distance(ville, latitude, longitude) <= rayonKm)
+                .sorted(Comparator.comparingDouble((VilleDto ville) -> distance(ville, latitude, longitude))
+                        .thenComparing(VilleDto::getId))
+                .limit(limite)
+                .map(VilleDto::getId)
+                .toList();
+    }
+
+    private static double distance(VilleDto ville, double latitude, double longitude) {
+        return Geodesie.distanceKm(latitude, longitude, ville.getLatitude(), ville.getLongitude());
+    }
+}
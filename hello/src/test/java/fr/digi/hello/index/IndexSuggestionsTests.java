@@ -0,0 +1,69 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Suggestions par début de nom et avec fautes de frappe, classement et tenue à jour de l'index.
+ */
+class IndexSuggestionsTests extends IndexVillesTests<IndexSuggestions> {
+
+    private static final List<VilleDto> VILLES = List.of(
+            new VilleDto(1, "Nîmes", 150000, "Gard", "30"),
+            new VilleDto(2, "Lyon", 515695, "Rhône", "69"),
+            new VilleDto(3, "Marseille", 861635, "Bouches-du-Rhône", "13"),
+            new VilleDto(4, "Toulouse", 479553, "Haute-Garonne", "31"),
+            new VilleDto(5, "Nice", 342669, "Alpes-Maritimes", "06"),
+            new VilleDto(6, "Mars", 500, "Ardèche", "07"),
+            new VilleDto(7, "Saint-Étienne", 171924, "Loire", "42"));
+
+    @Override
+    IndexSuggestions nouvelIndex() {
+        return new IndexSuggestions(0.5);
+    }
+
+    @Override
+    Optional<List<VilleDto>> lire(IndexSuggestions index) {
+        return index.suggerer("lyon", 5);
+    }
+
+    @Test
+    void debutDeNomEtFautesDeFrappe() {
+        IndexSuggestions index = construit(VILLES);
+
+        // À ressemblance égale, la plus peuplée d'abord.
+        assertThat(noms(index.suggerer("mars", 5))).startsWith("Marseille", "Mars");
+        assertThat(noms(index.suggerer("NIMES", 5))).startsWith("Nîmes");
+        assertThat(noms(index.suggerer("toulose", 5))).startsWith("Toulouse");
+        assertThat(noms(index.suggerer("narseille", 5))).startsWith("Marseille");
+        assertThat(noms(index.suggerer("saint etienne", 5))).startsWith("Saint-Étienne");
+        assertThat(noms(index.suggerer("n", 5))).containsExactly("Nice", "Nîmes");
+        assertThat(noms(index.suggerer("xyz", 5))).isEmpty();
+        assertThat(noms(index.suggerer(" -- ", 5))).isEmpty();
+        assertThat(noms(index.suggerer("m", 1))).containsExactly("Marseille");
+    }
+
+    @Test
+    void appliqueCreationModificationEtSuppression() {
+        IndexSuggestions index = construit(VILLES);
+
+        index.surModification(new VilleModifieeEvent(8, new VilleDto(8, "Montpellier", 302454, "Hérault", "34"), 1));
+        index.surModification(new VilleModifieeEvent(4, new VilleDto(4, "Toulon", 180452, "Var", "83"), 1));
+        index.surModification(VilleModifieeEvent.suppression(6));
+
+        assertThat(noms(index.suggerer("montpelier", 5))).startsWith("Montpellier");
+        assertThat(noms(index.suggerer("toulouse", 5))).doesNotContain("Toulouse");
+        assertThat(noms(index.suggerer("toulo", 5))).startsWith("Toulon");
+        assertThat(noms(index.suggerer("mars", 5))).containsExactly("Marseille");
+    }
+
+    private static List<String> noms(Optional<List<VilleDto>> villes) {
+        return villes.orElseThrow().stream().map(VilleDto::getNom).toList();
+    }
+}
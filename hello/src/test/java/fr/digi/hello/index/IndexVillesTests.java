@@ -0,0 +1,66 @@
+package fr.digi.hello.index;
+
+import fr.digi.hello.dto.VilleDto;
+import fr.digi.hello.evenements.VilleModifieeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Socle des tests d'index : construction à partir d'une liste de villes, état non construit et
+ * événements reçus dans le désordre.
+ *
+ * @param <I> type d'index testé
+ */
+abstract class IndexVillesTests<I extends IndexVilles> {
+
+    /**
+     * @return nouvel index, non construit
+     */
+    abstract I nouvelIndex();
+
+    /**
+     * @return une lecture quelconque de l'index
+     */
+    abstract Optional<List<VilleDto>> lire(I index);
+
+    /**
+     * @return index construit à partir des villes
+     */
+    I construit(List<VilleDto> villes) {
+        I index = nouvelIndex();
+        index.recharger(villes);
+        return index;
+    }
+
+    @Test
+    void videTantQueNonConstruit() {
+        assertThat(lire(nouvelIndex())).isEmpty();
+        assertThat(lire(construit(List.of()))).isPresent();
+    }
+
+    @Test
+    void evenementObsoleteIgnore() {
+        I index = construit(List.of(lyon(1000)));
+
+        index.surModification(new VilleModifieeEvent(1, lyon(3000), 3));
+        index.surModification(new VilleModifieeEvent(1, lyon(2000), 2));
+        assertThat(lire(index).orElseThrow()).extracting(VilleDto::getNbHabitants).containsExactly(3000);
+
+        index.surModification(VilleModifieeEvent.suppression(1));
+        index.surModification(new VilleModifieeEvent(1, lyon(4000), 4));
+        assertThat(lire(index).orElseThrow()).as("une suppression est définitive").isEmpty();
+    }
+
+    /** Ville trouvée par la lecture de chacun des index. */
+    private static VilleDto lyon(int nbHabitants) {
+        return new VilleDto(1, "Lyon", nbHabitants, "Gard", "30", 45.0, 5.0);
+    }
+
+    static List<Integer> ids(Optional<List<VilleDto>> villes) {
+        return villes.orElseThrow().stream().map(VilleDto::getId).toList();
+    }
+}
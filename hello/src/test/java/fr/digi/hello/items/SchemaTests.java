@@ -0,0 +1,48 @@
+package fr.digi.hello.items;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Le schéma H2 partagé avec les tests de {@code reactif} ({@code src/test/resources/schema-h2.sql})
+ * doit rester celui que Hibernate génère à partir des entités.
+ * <p>
+ * En cas d'écart, recopier {@code target/schema-h2.sql} (généré par ce test) dans le fichier partagé.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schema;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+        "spring.jpa.properties.jakarta.persistence.schema-generation.database.action=drop-and-create",
+        "spring.jpa.properties.jakarta.persistence.schema-generation.scripts.action=create",
+        "spring.jpa.properties.jakarta.persistence.schema-generation.scripts.create-target=" + SchemaTests.GENERE,
+        "spring.jpa.properties.hibernate.hbm2ddl.schema-generation.script.append=false",
+        "spring.jpa.properties.hibernate.hbm2ddl.delimiter=;",
+        "spring.jpa.properties.hibernate.format_sql=true"
+})
+class SchemaTests {
+
+    static final String GENERE = "target/schema-h2.sql";
+
+    private static final Path PARTAGE = Path.of("src/test/resources/schema-h2.sql");
+
+    @Test
+    void schemaPartageAJour() throws IOException {
+        assertThat(instructions(PARTAGE))
+                .as("%s ne correspond plus aux entités : le remplacer par %s", PARTAGE, GENERE)
+                .isEqualTo(instructions(Path.of(GENERE)));
+    }
+
+    /** Lignes significatives du script, sans commentaires ni indentation. */
+    private static List<String> instructions(Path script) throws IOException {
+        return Files.readAllLines(script).stream()
+                .map(String::strip)
+                .filter(ligne -> !ligne.isEmpty() && !ligne.startsWith("--"))
+                .toList();
+    }
+}
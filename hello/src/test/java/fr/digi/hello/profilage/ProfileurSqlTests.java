@@ -0,0 +1,41 @@
+package fr.digi.hello.profilage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Empreintes des requêtes et détection des motifs N+1.
+ */
+class ProfileurSqlTests {
+
+    @Test
+    void empreinteSansParametres() {
+        assertThat(ProfileurSql.normaliser("SELECT v1_0.id FROM villes v1_0\n  WHERE v1_0.nom = 'l''isle' AND v1_0.nb_habitants > 42"))
+                .isEqualTo("select v1_0.id from villes v1_0 where v1_0.nom = ? and v1_0.nb_habitants > ?");
+        assertThat(ProfileurSql.normaliser("select * from villes where id in (?, ?, ?) fetch first 101 rows only"))
+                .isEqualTo("select * from villes where id in (?...) fetch first ? rows only");
+    }
+
+    @Test
+    void motifNPlusUnSignale() {
+        ProfileurSql profileur = new ProfileurSql(1.0, 3, 100);
+
+        profileur.ouvrirRequete();
+        profileur.executer("select * from villes");
+        for (int id = 1; id <= 4; id++) {
+            String empreinte = profileur.executer("select * from departement where id = " + id);
+            profileur.mesurer(empreinte, 1_000_000);
+        }
+        profileur.fermerRequete("GET /villes");
+
+        ProfileurSql.Rapport rapport = profileur.rapport(10);
+        assertThat(rapport.nPlusUn()).singleElement().satisfies(motif -> {
+            assertThat(motif.requete()).isEqualTo("GET /villes");
+            assertThat(motif.empreinte()).isEqualTo("select * from departement where id = ?");
+            assertThat(motif.repetitionsMax()).isEqualTo(4);
+        });
+        assertThat(rapport.requetes().get(0).executions()).isEqualTo(4);
+        assertThat(rapport.requetes().get(0).dureeP99Ms()).isEqualTo(1.0);
+    }
+}
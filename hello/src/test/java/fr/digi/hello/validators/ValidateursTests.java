@@ -0,0 +1,82 @@
+package fr.digi.hello.validators;
+
+import fr.digi.hello.dto.DepartementDto;
+import fr.digi.hello.dto.VilleDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Règles précompilées : mêmes verdicts que les expressions d'origine, erreurs rattachées
+ * aux bons champs et validation par lot.
+ */
+class ValidateursTests {
+
+    private final DepartementValidator departementValidator = new DepartementValidator();
+    private final VilleValidator villeValidator = new VilleValidator(departementValidator);
+
+    @Test
+    void memeVerdictQueLaValidationParExpression() {
+        List<String> noms = List.of("", "   ", "a", " a ", "ab", "-ab", " -ab", "a1", "1", " Lyon 2 ", "Saint-Étienne",
+                "Lyon\n2", "2\r", "\t2\t", "a 2", "a\u0085", "x ", "٣a", "  \n ", "-", "-1");
+        for (String nom : noms) {
+            assertThat(RegleNom.analyser(nom)).as("nom [%s]", nom).isEqualTo(analyseParExpression(nom));
+        }
+        assertThat(RegleNom.analyser(null)).isEqualTo(RegleNom.Defaut.VIDE);
+    }
+
+    @Test
+    void erreursDuDepartementSurLesChampsDeLaVille() {
+        VilleDto ville = new VilleDto(null, "Ville2", 0, "  ", " ");
+        Errors erreurs = new BeanPropertyBindingResult(ville, "villeDto");
+
+        villeValidator.validate(ville, erreurs);
+
+        assertThat(erreurs.getFieldErrors()).extracting(FieldError::getField, FieldError::getDefaultMessage)
+                .containsExactly(
+                        tuple("nom", "Le nom ne doit pas contenir de chiffres"),
+                        tuple("nbHabitants", "Le nombre d'habitants doit être supérieur ou égal à 1"),
+                        tuple("codeDpt", "Le code du département ne peut pas être vide"),
+                        tuple("nomDepartement", "Le nom du département ne peut pas être vide"));
+        assertThat(villeValidator.estValide(ville)).isFalse();
+    }
+
+    @Test
+    void validationParLot() {
+        List<DepartementDto> departements = List.of(
+                new DepartementDto(null, "Gard", "30"),
+                new DepartementDto(null, "-Gard", "30"),
+                new DepartementDto(null, "Hérault", "34"),
+                new DepartementDto(null, "G", null));
+
+        Map<Integer, Errors> rejets = departementValidator.validerLot(departements, "departementDto");
+
+        assertThat(rejets).containsOnlyKeys(1, 3);
+        assertThat(rejets.get(1).getFieldError("nom").getDefaultMessage())
+                .isEqualTo("Le nom du département ne doit pas commencer par un tiret");
+        assertThat(rejets.get(3).getErrorCount()).isEqualTo(2);
+    }
+
+    /** Logique des validateurs avant leur réécriture. */
+    private static RegleNom.Defaut analyseParExpression(String nom) {
+        if (nom == null || nom.trim().isEmpty()) {
+            return RegleNom.Defaut.VIDE;
+        }
+        String n = nom.trim();
+        if (n.matches(".*\\d.*")) {
+            return RegleNom.Defaut.CHIFFRES;
+        } else if (n.startsWith("-")) {
+            return RegleNom.Defaut.TIRET;
+        } else if (n.length() < 2) {
+            return RegleNom.Defaut.COURT;
+        }
+        return null;
+    }
+}
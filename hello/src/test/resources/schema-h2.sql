@@ -0,0 +1,40 @@
+-- Schéma H2 généré par Hibernate à partir des entités de hello, vérifié par SchemaTests.
+-- Chargé par les tests de reactif ; ne pas modifier à la main.
+
+    create table departement (
+        id integer generated by default as identity,
+        version integer,
+        code varchar(255),
+        nom varchar(255),
+        nom_normalise varchar(255),
+        primary key (id)
+    );
+
+    create table versions_collection (
+        version bigint not null,
+        nom varchar(255) not null,
+        primary key (nom)
+    );
+
+    create table villes (
+        departement_id integer,
+        id integer generated by default as identity,
+        latitude float(53),
+        longitude float(53),
+        nb_habitants integer,
+        version integer,
+        nom varchar(255),
+        nom_normalise varchar(255),
+        primary key (id)
+    );
+
+    create index idx_departement_nom_normalise
+       on departement (nom_normalise);
+
+    create index idx_villes_nom_normalise
+       on villes (nom_normalise);
+
+    alter table if exists villes
+       add constraint FKrxkhod4vnryso7scphohqtobn
+       foreign key (departement_id)
+       references departement;
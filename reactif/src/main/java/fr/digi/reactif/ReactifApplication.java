@@ -0,0 +1,24 @@
+package fr.digi.reactif;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Classe principale de l'application réactive.
+ * <p>
+ * Expose en lecture seule les villes et départements de l'application {@code hello}, sur la même
+ * base, avec Spring WebFlux et un pilote R2DBC : aucune requête ne retient de thread pendant
+ * l'attente de la base. L'application {@code hello} reste propriétaire du schéma et des écritures.
+ */
+@SpringBootApplication
+public class ReactifApplication {
+
+    /**
+     * Point d'entrée principal de l'application.
+     *
+     * @param args Arguments de la ligne de commande (non utilisés ici).
+     */
+    public static void main(String[] args) {
+        SpringApplication.run(ReactifApplication.class, args);
+    }
+}
@@ -0,0 +1,58 @@
+package fr.digi.reactif.controleurs;
+
+import fr.digi.reactif.dto.VilleDto;
+import fr.digi.reactif.services.VilleService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Contrôleur réactif des lectures de villes par département, aux mêmes adresses que le
+ * contrôleur de {@code hello}.
+ */
+@RestController
+@RequestMapping("/departements")
+public class DepartementControleur {
+
+    private final VilleService villeService;
+
+    /**
+     * Constructeur avec injection des dépendances nécessaires.
+     *
+     * @param villeService lectures des villes
+     */
+    public DepartementControleur(VilleService villeService) {
+        this.villeService = villeService;
+    }
+
+    /**
+     * Liste les n plus grandes villes (par habitants) d’un département donné.
+     *
+     * @param nom nom du département
+     * @param n   nombre de villes à retourner (par défaut 3)
+     * @return villes par population décroissante
+     */
+    @GetMapping("/departements/{nom}/plus-grandes")
+    public Flux<VilleDto> getNPlusGrandesVilles(@PathVariable String nom,
+                                                @RequestParam(defaultValue = "3") int n) {
+        return villeService.plusGrandes(nom, n);
+    }
+
+    /**
+     * Liste les villes d'un département dont la population est comprise entre deux bornes incluses.
+     *
+     * @param nom nom du département
+     * @param min population minimale
+     * @param max population maximale
+     * @return villes par population décroissante
+     */
+    @GetMapping("/departements/{nom}/par-population")
+    public Flux<VilleDto> getVillesParPopulation(@PathVariable String nom,
+                                                 @RequestParam int min,
+                                                 @RequestParam int max) {
+        return villeService.parPopulation(nom, min, max);
+    }
+}
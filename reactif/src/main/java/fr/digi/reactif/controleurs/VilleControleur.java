@@ -0,0 +1,91 @@
+package fr.digi.reactif.controleurs;
+
+import fr.digi.reactif.dto.VilleDto;
+import fr.digi.reactif.pagination.Pagination;
+import fr.digi.reactif.services.VilleService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Contrôleur réactif des lectures de villes, aux mêmes adresses que le contrôleur de {@code hello}.
+ */
+@RestController
+@RequestMapping("/villes")
+public class VilleControleur {
+
+    private final VilleService villeService;
+    private final Pagination pagination;
+
+    /**
+     * Constructeur injectant les dépendances nécessaires.
+     *
+     * @param villeService lectures des villes
+     * @param pagination   pagination par curseur des listes
+     */
+    public VilleControleur(VilleService villeService, Pagination pagination) {
+        this.villeService = villeService;
+        this.pagination = pagination;
+    }
+
+    /**
+     * Récupère une page de villes, triées par identifiant.
+     * Le curseur de la page suivante est renvoyé dans l'en-tête
+     * {@value Pagination#ENTETE_CURSEUR_SUIVANT} (absent sur la dernière page).
+     *
+     * @param curseur curseur opaque de la page à lire (absent pour la première page)
+     * @param taille  taille de page souhaitée, plafonnée par {@code pagination.taille-max}
+     * @param requete requête en cours, pour le lien vers la page suivante
+     * @return page de villes, ou 400 si le curseur ou la taille est invalide
+     */
+    @GetMapping
+    public Mono<ResponseEntity<?>> getAllVilles(@RequestParam(required = false) String curseur,
+                                                @RequestParam(required = false) Integer taille,
+                                                ServerHttpRequest requete) {
+        int apresId;
+        int tailleEffective;
+        try {
+            apresId = pagination.decoder(curseur);
+            tailleEffective = pagination.taille(taille);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+
+        return villeService.villesApres(apresId, tailleEffective + 1)
+                .collectList()
+                .map(villes -> pagination.reponse(requete, villes, tailleEffective, VilleDto::id));
+    }
+
+    /**
+     * Exporte les villes au format NDJSON (un objet JSON par ligne), par identifiant croissant.
+     * <p>
+     * Les lignes sont lues au rythme où le client les consomme : la mémoire utilisée ne dépend
+     * pas du nombre de villes.
+     *
+     * @return flux NDJSON des villes
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<VilleDto> exportVilles() {
+        return villeService.villesApres(0);
+    }
+
+    /**
+     * Récupère une ville par son identifiant.
+     *
+     * @param id identifiant de la ville
+     * @return ville trouvée, ou 404 si non trouvée
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<VilleDto>> getVilleParId(@PathVariable int id) {
+        return villeService.ville(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
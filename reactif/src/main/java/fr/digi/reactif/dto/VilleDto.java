@@ -0,0 +1,16 @@
+package fr.digi.reactif.dto;
+
+/**
+ * Ville et son département, sérialisée avec les mêmes champs que le {@code VilleDto} de {@code hello}.
+ *
+ * @param id             identifiant de la ville
+ * @param nom            nom de la ville
+ * @param nbHabitants    population
+ * @param nomDepartement nom du département ({@code null} si la ville n'en a pas)
+ * @param codeDpt        code du département
+ * @param latitude       latitude, en degrés
+ * @param longitude      longitude, en degrés
+ */
+public record VilleDto(Integer id, String nom, Integer nbHabitants, String nomDepartement, String codeDpt,
+                       Double latitude, Double longitude) {
+}
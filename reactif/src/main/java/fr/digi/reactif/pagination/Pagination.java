@@ -0,0 +1,120 @@
+package fr.digi.reactif.pagination;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pagination par curseur (keyset) des listes de villes.
+ * <p>
+ * Mêmes curseurs, mêmes bornes ({@code pagination.taille-defaut}, {@code pagination.taille-max})
+ * et mêmes en-têtes que la pagination de {@code hello} : un client peut passer d'une application
+ * à l'autre au milieu d'un parcours.
+ */
+@Component
+public class Pagination {
+
+    /** En-tête portant le curseur de la page suivante (absent sur la dernière page). */
+    public static final String ENTETE_CURSEUR_SUIVANT = "X-Curseur-Suivant";
+
+    private static final String PREFIXE = "id:";
+
+    private final int tailleDefaut;
+    private final int tailleMax;
+
+    /**
+     * Constructeur avec injection des bornes de pagination.
+     *
+     * @param tailleDefaut taille de page utilisée si le client n'en précise pas
+     * @param tailleMax    taille de page maximale acceptée
+     */
+    public Pagination(@Value("${pagination.taille-defaut:100}") int tailleDefaut,
+                      @Value("${pagination.taille-max:1000}") int tailleMax) {
+        this.tailleMax = Math.max(1, tailleMax);
+        this.tailleDefaut = Math.min(Math.max(1, tailleDefaut), this.tailleMax);
+    }
+
+    /**
+     * Calcule la taille de page effective à partir de la taille demandée.
+     *
+     * @param demandee taille demandée par le client (peut être {@code null})
+     * @return taille par défaut si absente, sinon la taille plafonnée à {@code pagination.taille-max}
+     * @throws IllegalArgumentException si la taille demandée est inférieure à 1
+     */
+    public int taille(Integer demandee) {
+        if (demandee == null) {
+            return tailleDefaut;
+        }
+        if (demandee < 1) {
+            throw new IllegalArgumentException("La taille de page doit être supérieure ou égale à 1");
+        }
+        return Math.min(demandee, tailleMax);
+    }
+
+    /**
+     * Décode un curseur reçu du client.
+     *
+     * @param curseur jeton opaque (peut être {@code null} pour la première page)
+     * @return dernier identifiant déjà renvoyé, {@code 0} pour la première page
+     * @throws IllegalArgumentException si le jeton n'a pas été produit par {@link #encoder(int)}
+     */
+    public int decoder(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return 0;
+        }
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            if (!brut.startsWith(PREFIXE)) {
+                throw new IllegalArgumentException("Curseur invalide");
+            }
+            return Integer.parseInt(brut.substring(PREFIXE.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide", e);
+        }
+    }
+
+    /**
+     * Encode le dernier identifiant d'une page en curseur opaque.
+     *
+     * @param dernierId identifiant du dernier élément de la page
+     * @return jeton à renvoyer tel quel pour obtenir la page suivante
+     */
+    public String encoder(int dernierId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIXE + dernierId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Construit la réponse HTTP d'une page lue avec {@code taille + 1} lignes.
+     *
+     * @param requete requête en cours, pour le lien {@code rel="next"}
+     * @param lignes  lignes lues (au plus {@code taille + 1})
+     * @param taille  taille de page effective
+     * @param idDe    fonction extrayant l'identifiant d'un élément
+     * @param <T>     type des éléments
+     * @return réponse 200 contenant au plus {@code taille} éléments
+     */
+    public <T> ResponseEntity<List<T>> reponse(ServerHttpRequest requete, List<T> lignes, int taille,
+                                               Function<T, Integer> idDe) {
+        if (lignes.size() <= taille) {
+            return ResponseEntity.ok(lignes);
+        }
+        String suivant = encoder(idDe.apply(lignes.get(taille - 1)));
+        String lien = UriComponentsBuilder.fromUri(requete.getURI())
+                .replaceQueryParam("curseur", suivant)
+                .replaceQueryParam("taille", taille)
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(ENTETE_CURSEUR_SUIVANT, suivant)
+                .header(HttpHeaders.LINK, "<" + lien + ">; rel=\"next\"")
+                .body(lignes.subList(0, taille));
+    }
+}
@@ -0,0 +1,126 @@
+package fr.digi.reactif.services;
+
+import fr.digi.reactif.dto.VilleDto;
+import fr.digi.reactif.utils.NormaliseurNom;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lectures des villes, projetées directement en {@link VilleDto} par une requête SQL jointe au
+ * département, comme la projection JPQL de {@code hello} ({@code VilleDao.PROJECTION_DTO}).
+ * <p>
+ * Les lignes ne sont extraites du pilote R2DBC qu'à la demande de l'abonné, avec au plus la lecture
+ * anticipée des opérateurs Reactor (quelques dizaines de lignes) : un client lent ralentit la lecture
+ * au lieu de faire grossir un tampon. Ce que le pilote lit lui-même d'avance dépend de celui-ci
+ * (H2 embarquée charge le résultat entier).
+ */
+@Service
+public class VilleService {
+
+    /** Début de requête ; l'alias de la ville est {@code v}, celui du département {@code d}. */
+    static final String PROJECTION = "SELECT v.id, v.nom, v.nb_habitants, d.nom AS nom_departement, "
+            + "d.code AS code_dpt, v.latitude, v.longitude "
+            + "FROM villes v LEFT JOIN departement d ON d.id = v.departement_id ";
+
+    private final DatabaseClient client;
+
+    /**
+     * Constructeur.
+     *
+     * @param client client R2DBC de l'application
+     */
+    public VilleService(DatabaseClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Villes d'identifiant strictement supérieur à {@code apresId}, par identifiant croissant.
+     *
+     * @param apresId dernier identifiant déjà lu ({@code 0} pour commencer au début)
+     * @param limite  nombre maximal de villes
+     * @return les villes, émises au fil de la lecture
+     */
+    public Flux<VilleDto> villesApres(int apresId, int limite) {
+        return client.sql(PROJECTION + "WHERE v.id > :apresId ORDER BY v.id LIMIT :limite")
+                .bind("apresId", apresId)
+                .bind("limite", limite)
+                .map(VilleService::versDto)
+                .all();
+    }
+
+    /**
+     * Toutes les villes d'identifiant strictement supérieur à {@code apresId}, par identifiant croissant.
+     *
+     * @param apresId dernier identifiant déjà lu ({@code 0} pour commencer au début)
+     * @return les villes, émises au fil de la lecture et de la demande de l'abonné
+     */
+    public Flux<VilleDto> villesApres(int apresId) {
+        return client.sql(PROJECTION + "WHERE v.id > :apresId ORDER BY v.id")
+                .bind("apresId", apresId)
+                .map(VilleService::versDto)
+                .all();
+    }
+
+    /**
+     * Recherche une ville par son identifiant.
+     *
+     * @param id identifiant de la ville
+     * @return la ville, ou vide si elle n'existe pas
+     */
+    public Mono<VilleDto> ville(int id) {
+        return client.sql(PROJECTION + "WHERE v.id = :id")
+                .bind("id", id)
+                .map(VilleService::versDto)
+                .one();
+    }
+
+    /**
+     * Les {@code n} villes les plus peuplées d'un département.
+     *
+     * @param nomDepartement nom du département (insensible à la casse et aux accents)
+     * @param n              nombre maximal de villes
+     * @return les villes par population décroissante
+     */
+    public Flux<VilleDto> plusGrandes(String nomDepartement, int n) {
+        if (n <= 0) {
+            return Flux.empty();
+        }
+        return client.sql(PROJECTION + "WHERE d.nom_normalise = :nom ORDER BY v.nb_habitants DESC, v.id LIMIT :n")
+                .bind("nom", NormaliseurNom.normaliser(nomDepartement))
+                .bind("n", n)
+                .map(VilleService::versDto)
+                .all();
+    }
+
+    /**
+     * Villes d'un département dont la population est comprise entre deux bornes incluses.
+     *
+     * @param nomDepartement nom du département (insensible à la casse et aux accents)
+     * @param min            population minimale
+     * @param max            population maximale
+     * @return les villes par population décroissante
+     */
+    public Flux<VilleDto> parPopulation(String nomDepartement, int min, int max) {
+        return client.sql(PROJECTION + "WHERE d.nom_normalise = :nom AND v.nb_habitants BETWEEN :min AND :max "
+                        + "ORDER BY v.nb_habitants DESC, v.id")
+                .bind("nom", NormaliseurNom.normaliser(nomDepartement))
+                .bind("min", min)
+                .bind("max", max)
+                .map(VilleService::versDto)
+                .all();
+    }
+
+    private static VilleDto versDto(Readable ligne) {
+        return new VilleDto(
+                ligne.get("id", Integer.class),
+                ligne.get("nom", String.class),
+                ligne.get("nb_habitants", Integer.class),
+                ligne.get("nom_departement", String.class),
+                ligne.get("code_dpt", String.class),
+                ligne.get("latitude", Double.class),
+                ligne.get("longitude", Double.class));
+    }
+}
@@ -0,0 +1,115 @@
+package fr.digi.reactif.charge;
+
+import fr.digi.reactif.ReactifApplication;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Démarre l'application réactive pour un test de charge, dans les mêmes conditions que
+ * {@code fr.digi.hello.benchmarks.ChargeHttp} pour {@code hello} : H2 embarquée (données de
+ * {@code data.sql}) dont chaque requête SQL est retardée de {@code --latence-ms}, connexion tenue,
+ * pour simuler l'aller-retour réseau vers MariaDB. Le retard est une attente non bloquante.
+ * <p>
+ * La charge est ensuite envoyée par {@code ChargeHttp}, depuis {@code hello/} :
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbench.classe=fr.digi.hello.benchmarks.ChargeHttp \
+ *     -Djmh.args="--url=http://localhost:8081 --chemin=/villes/1 --concurrence=400 --duree=20"
+ * </pre>
+ * Options : {@code --port=8081 --latence-ms=20 --pool=200}.
+ */
+public final class ServeurCharge {
+
+    private ServeurCharge() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = options(args);
+        Duration latence = Duration.ofMillis(Long.parseLong(options.getOrDefault("latence-ms", "20")));
+
+        SpringApplication application = new SpringApplication(ReactifApplication.class);
+        application.setDefaultProperties(Map.of(
+                "server.port", options.getOrDefault("port", "8081"),
+                "spring.r2dbc.url", "r2dbc:h2:mem:///charge;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE",
+                "spring.r2dbc.pool.max-size", options.getOrDefault("pool", "200"),
+                // La fabrique enveloppée ne dit plus qu'elle est embarquée : schéma et données toujours chargés.
+                "spring.sql.init.mode", "always",
+                "logging.level.root", "WARN"));
+        application.addInitializers(contexte -> contexte.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nom) {
+                return bean instanceof ConnectionFactory fabrique ? ralentir(fabrique, latence) : bean;
+            }
+        }));
+        application.run(args);
+    }
+
+    /**
+     * Enveloppe une fabrique de connexions : l'exécution de chaque requête attend {@code latence}
+     * avant de partir vers la base.
+     */
+    private static ConnectionFactory ralentir(ConnectionFactory fabrique, Duration latence) {
+        return envelopper(ConnectionFactory.class, fabrique, (methode, resultat) -> {
+            if (methode.getName().equals("create")) {
+                return Mono.from((Publisher<?>) resultat)
+                        .map(connexion -> envelopper(Connection.class, (Connection) connexion,
+                                (m, r) -> r instanceof Statement requete ? ralentir(requete, latence) : r));
+            }
+            return resultat;
+        });
+    }
+
+    private static Statement ralentir(Statement requete, Duration latence) {
+        Statement[] enveloppe = new Statement[1];
+        enveloppe[0] = envelopper(Statement.class, requete, (methode, resultat) -> {
+            if (methode.getName().equals("execute")) {
+                return Mono.delay(latence).thenMany(Flux.from((Publisher<?>) resultat));
+            }
+            // bind(), add()... renvoient la requête elle-même : garder l'enveloppe.
+            return resultat == requete ? enveloppe[0] : resultat;
+        });
+        return enveloppe[0];
+    }
+
+    /** Transformation du résultat d'un appel de méthode. */
+    private interface Transformation {
+        Object appliquer(Method methode, Object resultat);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T envelopper(Class<T> type, T cible, Transformation transformation) {
+        return (T) Proxy.newProxyInstance(ServeurCharge.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, methode, arguments) -> transformation.appliquer(methode, invoquer(cible, methode, arguments)));
+    }
+
+    private static Object invoquer(Object cible, Method methode, Object[] arguments) throws Throwable {
+        try {
+            return methode.invoke(cible, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int egal = arg.indexOf('=');
+                options.put(egal < 0 ? arg.substring(2) : arg.substring(2, egal), egal < 0 ? "" : arg.substring(egal + 1));
+            }
+        }
+        return options;
+    }
+}
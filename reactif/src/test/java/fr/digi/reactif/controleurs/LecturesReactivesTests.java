@@ -0,0 +1,78 @@
+package fr.digi.reactif.controleurs;
+
+import fr.digi.reactif.dto.VilleDto;
+import fr.digi.reactif.pagination.Pagination;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lectures réactives sur une base H2 embarquée : mêmes réponses et mêmes curseurs que {@code hello}.
+ */
+@SpringBootTest
+@AutoConfigureWebTestClient
+class LecturesReactivesTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void pagesParCurseur() {
+        var premiere = client.get().uri("/villes?taille=4").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(VilleDto.class).hasSize(4)
+                .returnResult();
+        String curseur = premiere.getResponseHeaders().getFirst(Pagination.ENTETE_CURSEUR_SUIVANT);
+        assertThat(premiere.getResponseHeaders().getFirst(HttpHeaders.LINK)).contains("curseur=" + curseur);
+
+        var seconde = client.get().uri("/villes?taille=4&curseur={c}", curseur).exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(Pagination.ENTETE_CURSEUR_SUIVANT)
+                .expectBodyList(VilleDto.class).returnResult();
+        assertThat(seconde.getResponseBody()).extracting(VilleDto::id).containsExactly(5, 6);
+
+        client.get().uri("/villes?curseur=invalide").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void villeParId() {
+        client.get().uri("/villes/1").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.nom").isEqualTo("Nîmes")
+                .jsonPath("$.nomDepartement").isEqualTo("Gard")
+                .jsonPath("$.codeDpt").isEqualTo("30");
+
+        client.get().uri("/villes/999").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void villesParDepartement() {
+        List<VilleDto> plusGrandes = client.get().uri("/departements/departements/GARD/plus-grandes?n=1").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(VilleDto.class).returnResult().getResponseBody();
+        assertThat(plusGrandes).extracting(VilleDto::nom).containsExactly("Nîmes");
+
+        List<VilleDto> parPopulation = client.get()
+                .uri("/departements/departements/gard/par-population?min=1&max=1000000").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(VilleDto.class).returnResult().getResponseBody();
+        assertThat(parPopulation).extracting(VilleDto::nom).containsExactly("Nîmes", "Alès");
+    }
+
+    @Test
+    void exportNdjson() {
+        client.get().uri("/villes/export").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(VilleDto.class).hasSize(6);
+    }
+}
@@ -0,0 +1,105 @@
+package fr.digi.reactif.services;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lecture à la demande : les lignes émises par le pilote R2DBC sont comptées, pour vérifier qu'un
+ * abonné lent ne fait lire que quelques lignes d'avance et non le résultat entier.
+ */
+@SpringBootTest(properties =
+        "spring.r2dbc.url=r2dbc:h2:mem:///demande;MODE=MariaDB;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE")
+class VilleServiceTests {
+
+    private static final int VILLES_AJOUTEES = 5000;
+
+    /** Lecture anticipée maximale tolérée entre le pilote et l'abonné. */
+    private static final int AVANCE_MAX = 256;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Test
+    void lectureALaDemande() {
+        DatabaseClient.create(connectionFactory)
+                .sql("INSERT INTO villes (id, version, nom, nom_normalise, nb_habitants, departement_id) "
+                        + "SELECT 100 + \"X\", 0, 'Ville ' || \"X\", 'ville ' || \"X\", 1000, 1 "
+                        + "FROM SYSTEM_RANGE(1, " + VILLES_AJOUTEES + ")")
+                .then().block();
+        AtomicInteger lignesLues = new AtomicInteger();
+        VilleService service = new VilleService(DatabaseClient.create(compterLignes(connectionFactory, lignesLues)));
+        int[] luesApresDeux = new int[1];
+
+        StepVerifier.create(service.villesApres(0), 2)
+                .expectNextCount(2)
+                .then(() -> luesApresDeux[0] = lignesLues.get())
+                .thenRequest(1)
+                .assertNext(ville -> assertThat(ville.id()).isEqualTo(3))
+                .thenCancel()
+                .verify();
+
+        assertThat(luesApresDeux[0]).as("lignes extraites du pilote pour deux villes demandées")
+                .isBetween(2, AVANCE_MAX);
+        assertThat(lignesLues).as("rien n'est lu au-delà de l'avance après l'annulation")
+                .hasValueLessThanOrEqualTo(AVANCE_MAX);
+    }
+
+    /**
+     * Enveloppe une fabrique de connexions : chaque ligne émise par un résultat du pilote est comptée.
+     */
+    private static ConnectionFactory compterLignes(ConnectionFactory fabrique, AtomicInteger lignes) {
+        return envelopper(ConnectionFactory.class, fabrique, (methode, resultat) -> {
+            if (methode.getName().equals("create")) {
+                return Mono.from((Publisher<?>) resultat)
+                        .map(connexion -> envelopper(Connection.class, (Connection) connexion,
+                                (m, r) -> r instanceof Statement requete ? compterLignes(requete, lignes) : r));
+            }
+            return resultat;
+        });
+    }
+
+    private static Statement compterLignes(Statement requete, AtomicInteger lignes) {
+        Statement[] enveloppe = new Statement[1];
+        enveloppe[0] = envelopper(Statement.class, requete, (methode, resultat) -> {
+            if (methode.getName().equals("execute")) {
+                return Flux.from((Publisher<?>) resultat)
+                        .map(reponse -> envelopper(Result.class, (Result) reponse, (m, r) -> m.getName().equals("map")
+                                ? Flux.from((Publisher<?>) r).doOnNext(ligne -> lignes.incrementAndGet())
+                                : r));
+            }
+            // bind(), add()... renvoient la requête elle-même : garder l'enveloppe.
+            return resultat == requete ? enveloppe[0] : resultat;
+        });
+        return enveloppe[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T envelopper(Class<T> type, T cible, BiFunction<Method, Object, Object> transformation) {
+        return (T) Proxy.newProxyInstance(VilleServiceTests.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, methode, arguments) -> {
+                    try {
+                        return transformation.apply(methode, methode.invoke(cible, arguments));
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,15 @@
+-- Villes du chargement initial de hello, plus Alès pour un département à deux villes ; le schéma vient de hello.
+INSERT INTO departement (id, version, nom, nom_normalise, code) VALUES
+    (1, 0, 'Gard', 'gard', '30'),
+    (2, 0, 'Rhône', 'rhone', '69'),
+    (3, 0, 'Bouches-du-Rhône', 'bouches-du-rhone', '13'),
+    (4, 0, 'Haute-Garonne', 'haute-garonne', '31'),
+    (5, 0, 'Alpes-Maritimes', 'alpes-maritimes', '06');
+
+INSERT INTO villes (id, version, nom, nom_normalise, nb_habitants, latitude, longitude, departement_id) VALUES
+    (1, 0, 'Nîmes', 'nimes', 150000, 43.8367, 4.3601, 1),
+    (2, 0, 'Alès', 'ales', 42000, 44.1250, 4.0817, 1),
+    (3, 0, 'Lyon', 'lyon', 515695, 45.7640, 4.8357, 2),
+    (4, 0, 'Marseille', 'marseille', 861635, 43.2965, 5.3698, 3),
+    (5, 0, 'Toulouse', 'toulouse', 479553, 43.6047, 1.4442, 4),
+    (6, 0, 'Nice', 'nice', 342669, 43.7102, 7.2620, 5);